@@ -8,9 +8,11 @@ import static org.cytoscape.work.ServiceProperties.MENU_GRAVITY;
 import static org.cytoscape.work.ServiceProperties.PREFERRED_MENU;
 import static org.cytoscape.work.ServiceProperties.TITLE;
 
+import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.util.Dictionary;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.Icon;
 
@@ -22,12 +24,16 @@ import org.cytoscape.cyndex2.internal.rest.NdexAdminStatusService;
 import org.cytoscape.cyndex2.internal.rest.NdexClient;
 import org.cytoscape.cyndex2.internal.rest.NdexV3AdminStatus;
 import org.cytoscape.cyndex2.internal.rest.endpoints.NdexBaseResource;
+import org.cytoscape.cyndex2.internal.rest.endpoints.NdexJobResource;
 import org.cytoscape.cyndex2.internal.rest.endpoints.NdexNetworkResource;
 import org.cytoscape.cyndex2.internal.rest.endpoints.NdexStatusResource;
 import org.cytoscape.cyndex2.internal.rest.endpoints.impl.NdexBaseResourceImpl;
+import org.cytoscape.cyndex2.internal.rest.endpoints.impl.NdexJobResourceImpl;
 import org.cytoscape.cyndex2.internal.rest.endpoints.impl.NdexNetworkResourceImpl;
 import org.cytoscape.cyndex2.internal.rest.endpoints.impl.NdexStatusResourceImpl;
 import org.cytoscape.cyndex2.internal.rest.errors.ErrorBuilder;
+import org.cytoscape.cyndex2.internal.task.DeferredViewManager;
+import org.cytoscape.cyndex2.internal.task.NDExNetworkService;
 import org.cytoscape.cyndex2.internal.task.OpenBrowseTaskFactory;
 import org.cytoscape.cyndex2.internal.task.OpenSaveCollectionTaskFactory;
 import org.cytoscape.cyndex2.internal.task.OpenSaveTaskFactory;
@@ -35,9 +41,18 @@ import org.cytoscape.cyndex2.internal.ui.ImportUserNetworkFromNDExTaskFactory;
 import org.cytoscape.cyndex2.internal.ui.ImportNetworkFromNDExTaskFactory;
 import org.cytoscape.cyndex2.internal.ui.MainToolBarAction;
 import org.cytoscape.cyndex2.internal.ui.SaveNetworkToNDExTaskFactory;
+import org.cytoscape.cyndex2.internal.util.AccessLayerCache;
+import org.cytoscape.cyndex2.internal.util.CxCache;
+import org.cytoscape.cyndex2.internal.util.CxPreferences;
+import org.cytoscape.cyndex2.internal.util.MachineCapacity;
+import org.cytoscape.cyndex2.internal.util.ResumableDownload;
+import org.cytoscape.cyndex2.internal.util.NetworkSummaryCache;
 import org.cytoscape.cyndex2.internal.util.CIServiceManager;
 import org.cytoscape.cyndex2.internal.util.ExternalAppManager;
+import org.cytoscape.cyndex2.internal.util.HeadlessTaskExecutor;
 import org.cytoscape.cyndex2.internal.util.IconUtil;
+import org.cytoscape.cyndex2.internal.util.ServerKey;
+import org.cytoscape.cyndex2.internal.util.ServerManager;
 import org.cytoscape.cyndex2.internal.util.StringResources;
 import org.cytoscape.io.read.InputStreamTaskFactory;
 import org.cytoscape.io.write.CyNetworkViewWriterFactory;
@@ -61,6 +76,7 @@ public class CyActivator extends AbstractCyActivator {
 	private static final Logger logger = LoggerFactory.getLogger(CyActivator.class);
 	
 	private static CyProperty<Properties> cyProps;
+	private static final long STALE_DOWNLOAD_MILLIS = TimeUnit.DAYS.toMillis(7);
 
 	private static String appVersion;
 	private static String cytoscapeVersion;
@@ -68,6 +84,10 @@ public class CyActivator extends AbstractCyActivator {
 	private static boolean hasCyNDEx1;
 
 	private CIServiceManager ciServiceManager;
+	private NdexClient ndexClient;
+	private HeadlessTaskExecutor taskExecutor;
+	private HeadlessTaskExecutor jobExecutor;
+	private PropertyChangeListener serverListener;
 	public static TaskManager<?, ?> taskManager;
 
 	public CyActivator() {
@@ -186,8 +206,33 @@ public class CyActivator extends AbstractCyActivator {
 
 		// Expose CyREST endpoints
 		final ErrorBuilder errorBuilder = new ErrorBuilder(ciServiceManager, config);
-		final NdexClient ndexClient = new NdexClient(errorBuilder);
+		ndexClient = new NdexClient(errorBuilder);
 		CyServiceModule.setErrorBuilder(errorBuilder);
+		CyServiceModule.setNdexClient(ndexClient);
+		// A new pool per start, since the previous one was shut down with the bundle
+		taskExecutor = new HeadlessTaskExecutor(HeadlessTaskExecutor.DEFAULT_THREADS);
+		CyServiceModule.setTaskExecutor(taskExecutor);
+		// Async jobs get their own pool so long jobs cannot hold up synchronous headless calls
+		jobExecutor = new HeadlessTaskExecutor(HeadlessTaskExecutor.DEFAULT_THREADS);
+		CyServiceModule.setJobExecutor(jobExecutor);
+		// Cached NDEx sessions and summaries may belong to a profile that was just changed or removed
+		serverListener = evt -> {
+			// Profiles are only selected or removed, so only the previous one can be stale
+			if (evt.getOldValue() instanceof ServerKey) {
+				AccessLayerCache.INSTANCE.invalidate((ServerKey) evt.getOldValue());
+			}
+			NetworkSummaryCache.INSTANCE.invalidateAll();
+		};
+		ServerManager.INSTANCE.addPropertyChangeListener(serverListener);
+		CyServiceModule.setCxCache(new CxCache(new File(CyServiceModule.INSTANCE.getConfigDir(), "cx-cache"),
+				CxPreferences.getCacheSize() * 1024L * 1024L));
+		// Downloads left behind by imports that were never retried
+		final Thread pruneThread = new Thread(() -> ResumableDownload
+				.pruneStale(CxPreferences.getSpoolDirectory().toPath(), STALE_DOWNLOAD_MILLIS), "CyNDEx-2 spool cleanup");
+		pruneThread.setDaemon(true);
+		pruneThread.start();
+		// Predictions for the adaptive view and layout modes
+		MachineCapacity.calibrateInBackground();
 		
 		// Base
 		registerService(bc,
@@ -199,8 +244,15 @@ public class CyActivator extends AbstractCyActivator {
 				new Properties());
 
 		// Network IO
-		registerService(bc, new NdexNetworkResourceImpl(ndexClient, appManager, netmgr, ciServiceManager),
+		final NDExNetworkService networkService = new NDExNetworkService(netmgr);
+		CyServiceModule.setNetworkService(networkService);
+		registerService(bc, new NdexNetworkResourceImpl(ndexClient, appManager, ciServiceManager, networkService),
 				NdexNetworkResource.class, new Properties());
+		registerService(bc, new NdexJobResourceImpl(ciServiceManager, networkService.getJobManager()),
+				NdexJobResource.class, new Properties());
+
+		// Views of imported networks are created once the network is focused
+		registerAllServices(bc, DeferredViewManager.INSTANCE, new Properties());
 
 		OpenSaveTaskFactory saveNetworkToNDExContextMenuTaskFactory = new OpenSaveTaskFactory(appManager);
 		Properties saveNetworkToNDExContextMenuProps = new Properties();
@@ -223,6 +275,22 @@ public class CyActivator extends AbstractCyActivator {
 			ciServiceManager.close();
 		}
 		
+		if (ndexClient != null) {
+			ndexClient.close();
+		}
+		
+		if (serverListener != null) {
+			ServerManager.INSTANCE.removePropertyChangeListener(serverListener);
+		}
+		
+		if (taskExecutor != null) {
+			taskExecutor.shutdown();
+		}
+		
+		if (jobExecutor != null) {
+			jobExecutor.shutdown();
+		}
+		
 		super.shutDown();
 	}
 
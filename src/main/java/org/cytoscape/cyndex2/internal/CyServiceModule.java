@@ -5,7 +5,11 @@ import java.io.File;
 import org.cytoscape.application.swing.CySwingApplication;
 import org.cytoscape.application.CyApplicationConfiguration;
 import org.cytoscape.cyndex2.internal.rest.NdexAdminStatusService;
+import org.cytoscape.cyndex2.internal.rest.NdexClient;
 import org.cytoscape.cyndex2.internal.rest.errors.ErrorBuilder;
+import org.cytoscape.cyndex2.internal.task.NDExNetworkService;
+import org.cytoscape.cyndex2.internal.util.CxCache;
+import org.cytoscape.cyndex2.internal.util.HeadlessTaskExecutor;
 import org.cytoscape.service.util.CyServiceRegistrar;
 
 public class CyServiceModule {
@@ -19,6 +23,16 @@ public class CyServiceModule {
 	private ErrorBuilder errorBuilder;
 
 	private NdexAdminStatusService adminStatusService;
+
+	private NdexClient ndexClient;
+
+	private NDExNetworkService networkService;
+
+	private CxCache cxCache;
+
+	private HeadlessTaskExecutor taskExecutor;
+
+	private HeadlessTaskExecutor jobExecutor;
 	
 	private CyServiceModule() {
 		
@@ -46,6 +60,46 @@ public class CyServiceModule {
 		return INSTANCE.adminStatusService;
 	}
 	
+	public static void setNdexClient(NdexClient ndexClient) {
+		INSTANCE.ndexClient = ndexClient;
+	}
+
+	public static NdexClient getNdexClient() {
+		return INSTANCE.ndexClient;
+	}
+	
+	public static void setNetworkService(NDExNetworkService networkService) {
+		INSTANCE.networkService = networkService;
+	}
+
+	public static NDExNetworkService getNetworkService() {
+		return INSTANCE.networkService;
+	}
+	
+	public static void setCxCache(CxCache cxCache) {
+		INSTANCE.cxCache = cxCache;
+	}
+
+	public static CxCache getCxCache() {
+		return INSTANCE.cxCache;
+	}
+
+	public static void setTaskExecutor(HeadlessTaskExecutor taskExecutor) {
+		INSTANCE.taskExecutor = taskExecutor;
+	}
+
+	public static HeadlessTaskExecutor getTaskExecutor() {
+		return INSTANCE.taskExecutor;
+	}
+
+	public static void setJobExecutor(HeadlessTaskExecutor jobExecutor) {
+		INSTANCE.jobExecutor = jobExecutor;
+	}
+
+	public static HeadlessTaskExecutor getJobExecutor() {
+		return INSTANCE.jobExecutor;
+	}
+	
 	public static void setSwingApplication(CySwingApplication swingApplication) {
 		INSTANCE.swingApplication = swingApplication;
 	}
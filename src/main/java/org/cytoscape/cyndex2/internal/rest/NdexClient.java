@@ -1,10 +1,22 @@
 package org.cytoscape.cyndex2.internal.rest;
 
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response.Status;
@@ -12,40 +24,119 @@ import javax.ws.rs.core.Response.Status;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.http.Header;
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
 import org.apache.http.ParseException;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
-import org.apache.http.message.BasicHeader;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 import org.cytoscape.cyndex2.internal.rest.errors.ErrorBuilder;
 import org.cytoscape.cyndex2.internal.rest.errors.ErrorType;
+import org.cytoscape.cyndex2.internal.util.CxAspectStream;
+import org.cytoscape.cyndex2.internal.util.NetworkQuery;
+import org.cytoscape.cyndex2.internal.util.NetworkSummaryCache;
+import org.cytoscape.cyndex2.internal.util.ResumableDownload;
+import org.cytoscape.cyndex2.internal.util.SegmentedDownload;
+import org.cytoscape.cyndex2.internal.util.UrlUtils;
+import org.ndexbio.model.object.network.NetworkSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 
 /**
  * Minimalistic NDEx V2 client
  *
+ * All calls share one pooled HTTP client, so connections to the same NDEx
+ * server are kept alive and reused. Credentials are sent per request.
  */
-public class NdexClient {
+public class NdexClient implements Closeable {
 
 	private static final Logger logger = LoggerFactory.getLogger(NdexClient.class);
 
 	private static final String PUBLIC_NDEX_URL = "http://www.ndexbio.org/v2";
 
+	public static final int MAX_CONNECTIONS_TOTAL = 40;
+	public static final int MAX_CONNECTIONS_PER_ROUTE = 10;
+	private static final long MAX_KEEP_ALIVE_MILLIS = 60000;
+	private static final long MAX_IDLE_SECONDS = 30;
+	private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+	private static final int SOCKET_TIMEOUT_MILLIS = 120000;
+
+	private static final int MAX_VALIDATED_RESPONSES = 512;
+
 	private final ObjectMapper mapper;
+	private final Map<String, ValidatedResponse> validatedResponses = Collections
+			.synchronizedMap(new LinkedHashMap<String, ValidatedResponse>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<String, ValidatedResponse> eldest) {
+					return size() > MAX_VALIDATED_RESPONSES;
+				}
+			});
 	private final ErrorBuilder errorBuilder;
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final CloseableHttpClient client;
 
 	public NdexClient(final ErrorBuilder errorBuilder) {
+		this(errorBuilder, createConnectionManager());
+	}
+
+	private NdexClient(final ErrorBuilder errorBuilder, final PoolingHttpClientConnectionManager connectionManager) {
+		this(errorBuilder, createClient(connectionManager), connectionManager);
+	}
+
+	public NdexClient(final ErrorBuilder errorBuilder, final CloseableHttpClient client,
+			final PoolingHttpClientConnectionManager connectionManager) {
 		mapper = new ObjectMapper();
+		mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 		this.errorBuilder = errorBuilder;
+		this.client = client;
+		this.connectionManager = connectionManager;
+	}
+
+	private static PoolingHttpClientConnectionManager createConnectionManager() {
+		final PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+		manager.setMaxTotal(MAX_CONNECTIONS_TOTAL);
+		manager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+		// Revalidate connections that sat idle, since servers may drop them silently
+		manager.setValidateAfterInactivity(2000);
+		return manager;
+	}
 
+	private static CloseableHttpClient createClient(final PoolingHttpClientConnectionManager connectionManager) {
+		final ConnectionKeepAliveStrategy keepAlive = (response, context) -> {
+			final long serverValue = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return serverValue > 0 ? Math.min(serverValue, MAX_KEEP_ALIVE_MILLIS) : MAX_KEEP_ALIVE_MILLIS;
+		};
+		final RequestConfig config = RequestConfig.custom()
+				.setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+				.setSocketTimeout(SOCKET_TIMEOUT_MILLIS)
+				.build();
+		// Compression stays enabled: responses are requested with Accept-Encoding: gzip
+		// and decompressed while they are read
+		return HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setKeepAliveStrategy(keepAlive)
+				.setDefaultRequestConfig(config)
+				.evictExpiredConnections()
+				.evictIdleConnections(MAX_IDLE_SECONDS, TimeUnit.SECONDS)
+				.build();
 	}
 
 	private final String getAuth(final String id, final String pw) {
@@ -53,16 +144,28 @@ public class NdexClient {
 		return "Basic " + new String(new Base64().encode(credentials.getBytes()));
 	}
 
-	private final CloseableHttpClient getClient(String id, String pw) {
-
+	private final void setCredentials(final HttpRequestBase request, final String id, final String pw) {
 		if (id == null || id.isEmpty() || pw == null || pw.isEmpty()) {
-			return HttpClients.custom().build();
+			return;
 		}
+		request.setHeader(HttpHeaders.AUTHORIZATION, getAuth(id, pw));
+	}
 
-		final Header header = new BasicHeader(HttpHeaders.AUTHORIZATION, getAuth(id, pw));
-		final List<Header> headers = new ArrayList<>();
-		headers.add(header);
-		return HttpClients.custom().setDefaultHeaders(headers).build();
+	/**
+	 * Connection pool usage across all routes, or null if the pool is not managed
+	 * by this client.
+	 */
+	public PoolStats getPoolStats() {
+		return connectionManager == null ? null : connectionManager.getTotalStats();
+	}
+
+	@Override
+	public void close() {
+		try {
+			client.close();
+		} catch (IOException e) {
+			logger.warn("Failed to close NDEx HTTP client", e);
+		}
 	}
 
 	public Map<String, ?> getSummary(String url, String uuid) throws Exception {
@@ -75,15 +178,48 @@ public class NdexClient {
 	@SuppressWarnings("unchecked")
 	public Map<String, ?> getSummary(String url, String uuid, String userId, String pw) throws WebApplicationException {
 
-		String serverUrl = null;
-		if (url == null || url.isEmpty()) {
-			serverUrl = PUBLIC_NDEX_URL + "/network/" + uuid + "/summary";
-		} else {
-			serverUrl = url + "/network/" + uuid + "/summary";
-		}
+		final Map<String, ?> result = getValidated(getSummaryUrl(url, uuid, null), userId, pw, Map.class);
+		// The parsed summary is shared with later revalidated calls
+		return new LinkedHashMap<>(result);
+	}
 
-		CloseableHttpClient client = getClient(userId, pw);
-		HttpGet httpget = new HttpGet(serverUrl);
+	/**
+	 * Call network summary API, returning a typed summary.
+	 * 
+	 * Summaries are revalidated with the server's ETag or Last-Modified validators,
+	 * so an unchanged summary costs a 304 instead of a download. The returned
+	 * object may be shared between calls and must not be modified.
+	 */
+	public NetworkSummary getNetworkSummary(String url, String uuid, String accessKey, String userId, String pw)
+			throws WebApplicationException {
+		return getValidated(getSummaryUrl(url, uuid, accessKey), userId, pw, NetworkSummary.class);
+	}
+
+	private static String getSummaryUrl(final String url, final String uuid, final String accessKey) {
+		String serverUrl = getApiUrl(url);
+		serverUrl += "/network/" + uuid + "/summary";
+		return serverUrl + getAccessKeyQuery(accessKey);
+	}
+
+	/**
+	 * GETs a JSON resource, sending the validators of an earlier response so the
+	 * server can answer 304 Not Modified.
+	 */
+	private <T> T getValidated(final String serverUrl, final String userId, final String pw, final Class<T> type)
+			throws WebApplicationException {
+		final String key = userId + "@" + serverUrl;
+		final ValidatedResponse cached = validatedResponses.get(key);
+
+		final HttpGet httpget = new HttpGet(serverUrl);
+		setCredentials(httpget, userId, pw);
+		if (cached != null) {
+			if (cached.etag != null) {
+				httpget.setHeader(HttpHeaders.IF_NONE_MATCH, cached.etag);
+			}
+			if (cached.lastModified != null) {
+				httpget.setHeader(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified);
+			}
+		}
 
 		CloseableHttpResponse response = null;
 		try {
@@ -94,23 +230,407 @@ public class NdexClient {
 					ErrorType.NDEX_API);
 		}
 
-		// Check response
-		getError(response);
-
-		Map<String, ?> result = null;
-		String val;
 		try {
-			val = EntityUtils.toString(response.getEntity());
-			result = mapper.readValue(val, Map.class);
-			response.close();
-			client.close();
+			if (cached != null && type.isInstance(cached.value)
+					&& response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+				return type.cast(cached.value);
+			}
+
+			// Check response
+			getError(response);
+
+			final String val = EntityUtils.toString(response.getEntity());
+			final T result = mapper.readValue(val, type);
+
+			final Header etag = response.getFirstHeader(HttpHeaders.ETAG);
+			final Header lastModified = response.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+			if (etag != null || lastModified != null) {
+				validatedResponses.put(key, new ValidatedResponse(etag == null ? null : etag.getValue(),
+						lastModified == null ? null : lastModified.getValue(), result));
+			} else {
+				validatedResponses.remove(key);
+			}
+			return result;
 		} catch (ParseException | IOException e) {
 			logger.error(e.getMessage(), e);
 			throw errorBuilder.buildException(Status.INTERNAL_SERVER_ERROR, "Could not build network summary object.",
 					ErrorType.INTERNAL);
+		} catch (WebApplicationException e) {
+			validatedResponses.remove(key);
+			throw e;
+		} finally {
+			closeResponse(response);
 		}
+	}
 
-		return result;
+	/**
+	 * Opens the CX of a network. The HTTP client asks for a gzip-compressed
+	 * response and decompresses it while it is read. Closing the stream releases
+	 * the connection.
+	 */
+	public InputStream getNetworkAsCXStream(String url, String uuid, String accessKey, String userId, String pw)
+			throws WebApplicationException {
+		return openStream(getNetworkUrl(url, uuid, "", accessKey), userId, pw);
+	}
+
+	/**
+	 * Opens a CX document holding only the given aspects of a network, fetched
+	 * one after another from the per-aspect endpoints. Aspects the network does
+	 * not have are left out.
+	 */
+	public InputStream getNetworkAspectsAsCXStream(String url, String uuid, String accessKey, String userId, String pw,
+			Collection<String> aspects) throws WebApplicationException {
+		final JsonNode metaData;
+		try (InputStream in = openStream(getNetworkUrl(url, uuid, "/aspect", accessKey), userId, pw)) {
+			final JsonNode root = mapper.readTree(in);
+			metaData = root.isArray() ? root : root.path("metaData");
+		} catch (IOException e) {
+			logger.error(e.getMessage(), e);
+			throw errorBuilder.buildException(Status.INTERNAL_SERVER_ERROR, "Could not get network metadata from NDEx.",
+					ErrorType.NDEX_API);
+		}
+
+		final ArrayNode selectedMetaData = mapper.createArrayNode();
+		final List<String> selected = new ArrayList<>();
+		for (JsonNode element : metaData) {
+			final String name = element.path("name").asText();
+			if (aspects.contains(name)) {
+				selectedMetaData.add(element);
+				selected.add(name);
+			}
+		}
+
+		final String metaDataJson;
+		try {
+			metaDataJson = mapper.writeValueAsString(selectedMetaData);
+		} catch (JsonProcessingException e) {
+			throw errorBuilder.buildException(Status.INTERNAL_SERVER_ERROR, "Invalid network metadata.",
+					ErrorType.INTERNAL);
+		}
+		return new CxAspectStream(metaDataJson, selected,
+				aspect -> openStream(getNetworkUrl(url, uuid, "/aspect/" + aspect, accessKey), userId, pw));
+	}
+
+	/**
+	 * Runs a neighborhood or interconnect query on NDEx and opens the resulting
+	 * subnetwork as CX. Results with more edges than the query's limit are
+	 * rejected by the server.
+	 */
+	public InputStream queryNetwork(String url, String uuid, String accessKey, String userId, String pw,
+			NetworkQuery query) throws WebApplicationException {
+		String serverUrl = getApiUrl(url);
+		serverUrl += "/search/network/" + uuid + (query.isInterconnect() ? "/interconnectquery" : "/query");
+		serverUrl += getAccessKeyQuery(accessKey);
+
+		final Map<String, Object> body = new HashMap<>();
+		body.put("searchString", query.getSearchString());
+		body.put("searchDepth", query.getDepth());
+		body.put("edgeLimit", query.getEdgeLimit());
+		body.put("errorWhenLimitIsOver", true);
+
+		final HttpPost httppost = new HttpPost(serverUrl);
+		try {
+			final StringEntity entity = new StringEntity(mapper.writeValueAsString(body), "UTF-8");
+			entity.setContentType("application/json");
+			httppost.setEntity(entity);
+		} catch (JsonProcessingException e) {
+			final String message = "Given parameters are invalid";
+			logger.error(message, e);
+			throw errorBuilder.buildException(Status.BAD_REQUEST, message, ErrorType.INTERNAL);
+		}
+		return openStream(httppost, userId, pw);
+	}
+
+	private InputStream openStream(String requestUrl, String userId, String pw) throws WebApplicationException {
+		return openStream(new HttpGet(requestUrl), userId, pw);
+	}
+
+	private InputStream openStream(HttpRequestBase request, String userId, String pw) throws WebApplicationException {
+		setCredentials(request, userId, pw);
+
+		final CloseableHttpResponse response;
+		try {
+			response = client.execute(request);
+		} catch (Exception e) {
+			logger.error(e.getMessage());
+			throw errorBuilder.buildException(Status.INTERNAL_SERVER_ERROR, "Could not get network from NDEx.",
+					ErrorType.NDEX_API);
+		}
+
+		try {
+			getError(response);
+			final int code = response.getStatusLine().getStatusCode();
+			if (code == HttpStatus.SC_BAD_REQUEST) {
+				// e.g. a query result over the edge limit
+				final String reason = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity());
+				throw errorBuilder.buildException(Status.BAD_REQUEST, "NDEx rejected the request. " + reason,
+						ErrorType.NDEX_API);
+			}
+			if (code != HttpStatus.SC_OK || response.getEntity() == null) {
+				throw errorBuilder.buildException(Status.INTERNAL_SERVER_ERROR,
+						"Could not get network from NDEx. Status: " + code, ErrorType.NDEX_API);
+			}
+			return new FilterInputStream(response.getEntity().getContent()) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						// Aborts the connection if the CX was not read to the end
+						response.close();
+					}
+				}
+			};
+		} catch (IOException e) {
+			closeResponse(response);
+			logger.error(e.getMessage(), e);
+			throw errorBuilder.buildException(Status.INTERNAL_SERVER_ERROR, "Could not get network from NDEx.",
+					ErrorType.NDEX_API);
+		} catch (RuntimeException e) {
+			closeResponse(response);
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens the CX of a network from the given byte offset, for a
+	 * {@link ResumableDownload}. The content is requested without compression, as
+	 * byte ranges of a compressed response could not be stitched together.
+	 * 
+	 * @param validator
+	 *            - sent as If-Range, so that a changed network is sent in full
+	 * @throws IOException
+	 *             on failures that are worth retrying
+	 */
+	public ResumableDownload.Range openNetworkRange(String url, String uuid, String accessKey, String userId, String pw,
+			long offset, String validator) throws IOException {
+		return openNetworkRange(url, uuid, accessKey, userId, pw, offset, -1, validator);
+	}
+
+	/**
+	 * Opens bytes offset to end, inclusive, of the CX of a network.
+	 * 
+	 * @param end
+	 *            - last byte wanted, or -1 for everything from offset on
+	 */
+	public ResumableDownload.Range openNetworkRange(String url, String uuid, String accessKey, String userId, String pw,
+			long offset, long end, String validator) throws IOException {
+		final HttpGet httpget = new HttpGet(getNetworkUrl(url, uuid, "", accessKey));
+		setCredentials(httpget, userId, pw);
+		httpget.setHeader(HttpHeaders.ACCEPT_ENCODING, "identity");
+		if (offset > 0 || end >= 0) {
+			httpget.setHeader(HttpHeaders.RANGE, "bytes=" + offset + "-" + (end >= 0 ? Long.toString(end) : ""));
+			if (validator != null) {
+				httpget.setHeader(HttpHeaders.IF_RANGE, validator);
+			}
+		}
+
+		final CloseableHttpResponse response = client.execute(httpget);
+		try {
+			final int code = response.getStatusLine().getStatusCode();
+			if (code >= 500) {
+				// Transient, so the download retries instead of failing
+				throw new IOException("NDEx returned status " + code);
+			}
+			getError(response);
+			if (code == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+				final long total = parseContentRangeTotal(response.getFirstHeader(HttpHeaders.CONTENT_RANGE));
+				closeResponse(response);
+				if (total == offset) {
+					// Everything was downloaded before the connection dropped
+					return new ResumableDownload.Range(new ByteArrayInputStream(new byte[0]), offset, total, validator);
+				}
+				return openNetworkRange(url, uuid, accessKey, userId, pw, 0, -1, null);
+			}
+			if ((code != HttpStatus.SC_OK && code != HttpStatus.SC_PARTIAL_CONTENT) || response.getEntity() == null) {
+				throw errorBuilder.buildException(Status.INTERNAL_SERVER_ERROR,
+						"Could not get network from NDEx. Status: " + code, ErrorType.NDEX_API);
+			}
+
+			long start = 0;
+			long last = -1;
+			long total = response.getEntity().getContentLength();
+			if (code == HttpStatus.SC_PARTIAL_CONTENT) {
+				final Header contentRange = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+				start = parseContentRangeStart(contentRange);
+				last = parseContentRangeEnd(contentRange);
+				total = parseContentRangeTotal(contentRange);
+			}
+			final ResumableDownload.Range range = new ResumableDownload.Range(
+					new FilterInputStream(response.getEntity().getContent()) {
+						@Override
+						public void close() throws IOException {
+							try {
+								super.close();
+							} finally {
+								response.close();
+							}
+						}
+					}, start, last, total, getValidator(response));
+			setDigest(range, response.getFirstHeader("Digest"));
+			return range;
+		} catch (IOException | RuntimeException e) {
+			closeResponse(response);
+			throw e;
+		}
+	}
+
+	/**
+	 * Downloads the CX of a network to a file, continuing from where an earlier
+	 * attempt to download it to the same file stopped.
+	 * 
+	 * @param expectedLength
+	 *            - size of the CX, if known from the network summary, or -1
+	 */
+	public ResumableDownload newDownload(String url, String uuid, String accessKey, String userId, String pw,
+			Path target, long expectedLength) {
+		final ResumableDownload download = new ResumableDownload(target,
+				(offset, validator) -> openNetworkRange(url, uuid, accessKey, userId, pw, offset, validator));
+		download.setExpectedLength(expectedLength);
+		return download;
+	}
+
+	/**
+	 * Downloads the CX of a network to a file over several connections, each
+	 * fetching a byte range. Falls back to a single connection if the server does
+	 * not support ranges.
+	 */
+	public SegmentedDownload newSegmentedDownload(String url, String uuid, String accessKey, String userId, String pw,
+			Path target, long expectedLength, int segments) {
+		final SegmentedDownload download = new SegmentedDownload(target,
+				(start, end, validator) -> openNetworkRange(url, uuid, accessKey, userId, pw, start, end, validator),
+				Math.min(segments, MAX_CONNECTIONS_PER_ROUTE));
+		download.setExpectedLength(expectedLength);
+		return download;
+	}
+
+	/**
+	 * The v2 API route of a server URL, which may be stored without /v2, with no
+	 * trailing slash.
+	 */
+	private static String getApiUrl(final String url) {
+		if (url == null || url.isEmpty()) {
+			return PUBLIC_NDEX_URL;
+		}
+		final String serverUrl = UrlUtils.getBaseRoute(url.endsWith("/") ? url.substring(0, url.length() - 1) : url);
+		return serverUrl.endsWith("/") ? serverUrl.substring(0, serverUrl.length() - 1) : serverUrl;
+	}
+
+	private static String getAccessKeyQuery(final String accessKey) {
+		return accessKey == null ? "" : "?accesskey=" + URLEncoder.encode(accessKey, StandardCharsets.UTF_8);
+	}
+
+	private static String getNetworkUrl(String url, String uuid, String path, String accessKey) {
+		String serverUrl = getApiUrl(url);
+		serverUrl += "/network/" + uuid + path;
+		serverUrl += getAccessKeyQuery(accessKey);
+		return serverUrl;
+	}
+
+	private static String getValidator(CloseableHttpResponse response) {
+		final Header etag = response.getFirstHeader(HttpHeaders.ETAG);
+		// Weak entity tags cannot be used with If-Range
+		if (etag != null && !etag.getValue().startsWith("W/")) {
+			return etag.getValue();
+		}
+		final Header lastModified = response.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+		return lastModified == null ? null : lastModified.getValue();
+	}
+
+	// Content-Range: bytes 100-199/1000, or bytes */1000 on status 416
+	private static long parseContentRangeStart(Header header) throws IOException {
+		try {
+			final String value = header.getValue().trim();
+			return Long.parseLong(value.substring(value.indexOf(' ') + 1, value.indexOf('-')).trim());
+		} catch (RuntimeException e) {
+			throw new IOException("Invalid Content-Range: " + header, e);
+		}
+	}
+
+	private static long parseContentRangeEnd(Header header) throws IOException {
+		try {
+			final String value = header.getValue();
+			return Long.parseLong(value.substring(value.indexOf('-') + 1, value.lastIndexOf('/')).trim());
+		} catch (RuntimeException e) {
+			throw new IOException("Invalid Content-Range: " + header, e);
+		}
+	}
+
+	private static long parseContentRangeTotal(Header header) {
+		if (header == null) {
+			return -1;
+		}
+		final String value = header.getValue();
+		final String total = value.substring(value.lastIndexOf('/') + 1).trim();
+		try {
+			return "*".equals(total) ? -1 : Long.parseLong(total);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	// Digest: sha-256=<base64>, as defined by RFC 3230
+	private static void setDigest(ResumableDownload.Range range, Header header) {
+		if (header == null) {
+			return;
+		}
+		for (String digest : header.getValue().split(",")) {
+			final int split = digest.indexOf('=');
+			if (split < 0) {
+				continue;
+			}
+			final String name = digest.substring(0, split).trim().toLowerCase();
+			final String algorithm = "sha-256".equals(name) ? "SHA-256"
+					: "sha-512".equals(name) ? "SHA-512" : "md5".equals(name) ? "MD5" : null;
+			if (algorithm != null) {
+				range.setDigest(algorithm, Base64.decodeBase64(digest.substring(split + 1).trim()));
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Call batch network summary API, fetching the summaries of several networks
+	 * in one round trip.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Map<String, ?>> getSummaries(String url, Collection<String> uuids, String userId, String pw)
+			throws WebApplicationException {
+		final String serverUrl = getApiUrl(url) + "/batch/network/summary";
+
+		final HttpPost httppost = new HttpPost(serverUrl);
+		setCredentials(httppost, userId, pw);
+		try {
+			final StringEntity body = new StringEntity(mapper.writeValueAsString(uuids), "UTF-8");
+			body.setContentType("application/json");
+			httppost.setEntity(body);
+		} catch (JsonProcessingException e) {
+			final String message = "Given parameters are invalid";
+			logger.error(message, e);
+			throw errorBuilder.buildException(Status.BAD_REQUEST, message, ErrorType.INTERNAL);
+		}
+
+		CloseableHttpResponse response = null;
+		try {
+			response = client.execute(httppost);
+		} catch (Exception e) {
+			logger.error(e.getMessage());
+			throw errorBuilder.buildException(Status.INTERNAL_SERVER_ERROR, "Could not get network summaries from NDEx.",
+					ErrorType.NDEX_API);
+		}
+
+		try {
+			getError(response);
+
+			final String val = EntityUtils.toString(response.getEntity());
+			return mapper.readValue(val, List.class);
+		} catch (ParseException | IOException e) {
+			logger.error(e.getMessage(), e);
+			throw errorBuilder.buildException(Status.INTERNAL_SERVER_ERROR, "Could not build network summary objects.",
+					ErrorType.INTERNAL);
+		} finally {
+			closeResponse(response);
+		}
 	}
 
 	private final void getError(CloseableHttpResponse response) throws WebApplicationException {
@@ -144,8 +664,8 @@ public class NdexClient {
 		final Map<String, String> propMap = new HashMap<>();
 		propMap.put("visibility", visibility);
 
-		CloseableHttpClient client = getClient(id, pw);
 		HttpPut httpput = new HttpPut(endpoint);
+		setCredentials(httpput, id, pw);
 
 		String props = null;
 		try {
@@ -168,7 +688,50 @@ public class NdexClient {
 			logger.error(message, e);
 			throw errorBuilder.buildException(Status.INTERNAL_SERVER_ERROR, message, ErrorType.NDEX_API);
 		}
-		getError(response);
+		try {
+			getError(response);
+		} finally {
+			closeResponse(response);
+			invalidateSummary(url, uuid);
+		}
+	}
+
+	/**
+	 * Forgets what is known about a network after writing to it.
+	 */
+	private void invalidateSummary(final String url, final String uuid) {
+		final String summaryUrl = getSummaryUrl(url, uuid, null);
+		validatedResponses.keySet().removeIf(key -> key.endsWith("@" + summaryUrl));
+		try {
+			NetworkSummaryCache.INSTANCE.invalidate(UUID.fromString(uuid));
+		} catch (IllegalArgumentException e) {
+			logger.debug("Not a network UUID: " + uuid, e);
+		}
+	}
+
+	/**
+	 * Consumes any remaining entity so the connection goes back to the pool.
+	 */
+	private static void closeResponse(final CloseableHttpResponse response) {
+		try {
+			EntityUtils.consume(response.getEntity());
+			response.close();
+		} catch (IOException e) {
+			logger.debug("Failed to release NDEx response", e);
+		}
+	}
+
+	private static class ValidatedResponse {
+
+		private final String etag;
+		private final String lastModified;
+		private final Object value;
+
+		ValidatedResponse(final String etag, final String lastModified, final Object value) {
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.value = value;
+		}
 	}
 
 }
@@ -5,117 +5,199 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Streaming multipart/form-data uploader.
+ *
+ * Parts are collected first and written by {@link #finish()}. When every part
+ * has a known length the body is sent in fixed-length streaming mode, otherwise
+ * in chunks, so HttpURLConnection never buffers the whole body in memory. File
+ * parts are read only while they are being sent.
+ */
 public class UploadUtil {
 
 	private static final String LINE_FEED = "\r\n";
-	
+	private static final int BUFFER_SIZE = 256 * 1024;
+	private static final int CHUNK_SIZE = 256 * 1024;
+
+	/**
+	 * Receives the number of body bytes sent so far, before compression.
+	 */
+	@FunctionalInterface
+	public interface ProgressListener {
+		/**
+		 * @param bytesSent
+		 *            - body bytes written so far
+		 * @param totalBytes
+		 *            - size of the body, or -1 if unknown
+		 */
+		void progress(long bytesSent, long totalBytes);
+	}
+
 	private final String boundary;
-	private HttpURLConnection httpConn;
-	private String charset;
-	private OutputStream outputStream;
-	private PrintWriter writer;
+	private final String requestURL;
+	private final String method;
+	private final Charset charset;
+	private final String authenticationString;
+	private final boolean gzip;
+	private final List<Part> parts = new ArrayList<>();
+
+	private ProgressListener progressListener;
+	private volatile HttpURLConnection httpConn;
 
 	public UploadUtil(String requestURL, String charset, String authenticationString) throws IOException {
-		this.charset = charset;
+		this(requestURL, "POST", charset, authenticationString, false);
+	}
+
+	/**
+	 * @param method
+	 *            - POST to create a resource, PUT to replace one
+	 * @param gzip
+	 *            - compress the whole multipart body and send it with
+	 *            Content-Encoding: gzip. The compressed body is streamed in chunks,
+	 *            so it is never held in memory.
+	 */
+	public UploadUtil(String requestURL, String method, String charset, String authenticationString, boolean gzip)
+			throws IOException {
+		this.requestURL = requestURL;
+		this.method = method;
+		this.charset = Charset.forName(charset);
+		this.authenticationString = authenticationString;
+		this.gzip = gzip;
 
 		// creates a unique boundary based on time stamp
 		boundary = "===" + System.currentTimeMillis() + "===";
+	}
 
-		URL url = new URL(requestURL);
-		httpConn = (HttpURLConnection) url.openConnection();
-		httpConn.setUseCaches(false);
-		httpConn.setDoOutput(true); // indicates POST method
-		httpConn.setDoInput(true);
-		httpConn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
-		httpConn.setRequestProperty("Authorization", authenticationString);
-
-		outputStream = httpConn.getOutputStream();
-		writer = new PrintWriter(new OutputStreamWriter(outputStream, charset), true);
+	public void setProgressListener(ProgressListener progressListener) {
+		this.progressListener = progressListener;
 	}
 
 	public void addFormField(String name, String value) {
-		writer.append("--" + boundary).append(LINE_FEED);
-		writer.append("Content-Disposition: form-data; name=\"" + name + "\"").append(LINE_FEED);
-		writer.append("Content-Type: text/plain; charset=" + charset).append(LINE_FEED);
-		writer.append(LINE_FEED);
-		writer.append(value).append(LINE_FEED);
-		writer.flush();
+		final String head = "--" + boundary + LINE_FEED
+				+ "Content-Disposition: form-data; name=\"" + name + "\"" + LINE_FEED
+				+ "Content-Type: text/plain; charset=" + charset.name() + LINE_FEED
+				+ LINE_FEED;
+		parts.add(new Part(bytes(head), bytes(value + LINE_FEED)));
 	}
 
 	public void addFormJson(String name, String value) {
-		writer.append("--" + boundary).append(LINE_FEED);
-		writer.append("Content-Disposition: form-data; name=\"" + name + "\"").append(LINE_FEED).append(LINE_FEED);
-		writer.append(value).append(LINE_FEED);
-		writer.flush();
+		final String head = "--" + boundary + LINE_FEED
+				+ "Content-Disposition: form-data; name=\"" + name + "\"" + LINE_FEED
+				+ LINE_FEED;
+		parts.add(new Part(bytes(head), bytes(value + LINE_FEED)));
 	}
 
 	/**
 	 * Adds a upload file section to the request
-	 * 
+	 *
 	 * @param fieldName
 	 *            name attribute in <input type="file" name="..." />
-	 * @param uploadFile
-	 *            a File to be uploaded
-	 * @throws IOException
+	 * @param cxStream
+	 *            content to upload; it is read and closed by {@link #finish()}
 	 */
 	public void addFilePart(String fieldName, InputStream cxStream) throws IOException {
+		addFilePart(fieldName, cxStream, -1);
+	}
 
-		writer.append("--" + boundary).append(LINE_FEED);
-		writer.append("Content-Disposition: form-data; name=\"" + fieldName + "\"").append(LINE_FEED);
-		writer.append("Content-Type: application/octet-stream").append(LINE_FEED);
-		writer.append(LINE_FEED);
-		writer.flush();
-
-		byte[] buffer = new byte[4096];
-		int bytesRead = -1;
-		while ((bytesRead = cxStream.read(buffer)) != -1) {
-			outputStream.write(buffer, 0, bytesRead);
-		}
-		outputStream.flush();
-		cxStream.close();
-
-		writer.append(LINE_FEED);
-		writer.flush();
+	/**
+	 * Adds a upload file section of known size, which allows the body to be sent
+	 * with a Content-Length instead of in chunks.
+	 *
+	 * @param length
+	 *            exact number of bytes in the stream, or -1 if unknown
+	 */
+	public void addFilePart(String fieldName, InputStream cxStream, long length) throws IOException {
+		final String head = "--" + boundary + LINE_FEED
+				+ "Content-Disposition: form-data; name=\"" + fieldName + "\"" + LINE_FEED
+				+ "Content-Type: application/octet-stream" + LINE_FEED
+				+ LINE_FEED;
+		parts.add(new Part(bytes(head), cxStream, length));
 	}
 
 	/**
 	 * Adds a header field to the request.
-	 * 
+	 *
 	 * @param name
 	 *            - name of the header field
 	 * @param value
 	 *            - value of the header field
 	 */
 	public void addHeaderField(String name, String value) {
-		writer.append(name + ": " + value).append(LINE_FEED);
-		writer.flush();
+		parts.add(new Part(bytes(name + ": " + value + LINE_FEED), new byte[0]));
 	}
 
 	/**
-	 * Completes the request and receives response from the server.
-	 * 
+	 * Size of the multipart body in bytes, or -1 if a part has an unknown length.
+	 */
+	public long getContentLength() {
+		long length = bytes(closingBoundary()).length;
+		for (Part part : parts) {
+			if (part.length < 0) {
+				return -1;
+			}
+			length += part.head.length + part.length + part.tail.length;
+		}
+		return length;
+	}
+
+	private String closingBoundary() {
+		return "--" + boundary + "--" + LINE_FEED;
+	}
+
+	private byte[] bytes(String value) {
+		return value.getBytes(charset);
+	}
+
+	/**
+	 * Sends the request and receives response from the server.
+	 *
 	 * @return a list of Strings as response in case the server returned status
 	 *         OK, otherwise an exception is thrown.
 	 * @throws IOException
 	 */
 	public List<String> finish() throws IOException {
-		List<String> response = new ArrayList<>();
+		final long contentLength = getContentLength();
+
+		URL url = new URL(requestURL);
+		httpConn = (HttpURLConnection) url.openConnection();
+		httpConn.setUseCaches(false);
+		httpConn.setDoOutput(true);
+		httpConn.setDoInput(true);
+		httpConn.setRequestMethod(method);
+		httpConn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+		if (authenticationString != null) {
+			httpConn.setRequestProperty("Authorization", authenticationString);
+		}
+		if (gzip) {
+			httpConn.setRequestProperty("Content-Encoding", "gzip");
+		}
+		if (contentLength >= 0 && !gzip) {
+			httpConn.setFixedLengthStreamingMode(contentLength);
+		} else {
+			httpConn.setChunkedStreamingMode(CHUNK_SIZE);
+		}
 
-		writer.append(LINE_FEED).flush();
-		writer.append("--" + boundary + "--").append(LINE_FEED);
-		writer.close();
+		try {
+			writeBody(contentLength);
+		} catch (IOException | RuntimeException e) {
+			closeParts();
+			httpConn.disconnect();
+			throw e;
+		}
+
+		List<String> response = new ArrayList<>();
 
 		// checks server's status code first
 		int status = httpConn.getResponseCode();
 		if (status == HttpURLConnection.HTTP_OK || status == HttpURLConnection.HTTP_CREATED) {
-			BufferedReader reader = new BufferedReader(new InputStreamReader(httpConn.getInputStream()));
+			BufferedReader reader = new BufferedReader(new InputStreamReader(httpConn.getInputStream(), charset));
 			String line = null;
 			while ((line = reader.readLine()) != null) {
 				response.add(line);
@@ -126,12 +208,112 @@ public class UploadUtil {
 			httpConn.disconnect();
 			return null;
 		} else {
+			final String message = httpConn.getResponseMessage();
 			httpConn.disconnect();
-			throw new IOException("Server returned non-OK status: " + status + ".  Response message from server: "
-					+ httpConn.getResponseMessage());
+			throw new HttpStatusException(status, "Server returned non-OK status: " + status
+					+ ".  Response message from server: " + message);
 		}
 
 		return response;
 	}
 
+	/**
+	 * Aborts a request that is being sent, e.g. when the upload is cancelled.
+	 */
+	public void abort() {
+		final HttpURLConnection httpConn = this.httpConn;
+		if (httpConn != null) {
+			httpConn.disconnect();
+		}
+	}
+
+	private void writeBody(final long contentLength) throws IOException {
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		long sent = 0;
+		OutputStream out = httpConn.getOutputStream();
+		if (gzip) {
+			out = new GZIPOutputStream(out, BUFFER_SIZE);
+		}
+		try (OutputStream body = out) {
+			for (Part part : parts) {
+				body.write(part.head);
+				sent = reportProgress(sent + part.head.length, contentLength);
+				if (part.content != null) {
+					try (InputStream in = part.content) {
+						int read;
+						while ((read = in.read(buffer)) != -1) {
+							body.write(buffer, 0, read);
+							sent = reportProgress(sent + read, contentLength);
+						}
+					}
+				}
+				body.write(part.tail);
+				sent = reportProgress(sent + part.tail.length, contentLength);
+			}
+			final byte[] closing = bytes(closingBoundary());
+			body.write(closing);
+			reportProgress(sent + closing.length, contentLength);
+		}
+	}
+
+	private long reportProgress(final long sent, final long contentLength) {
+		if (progressListener != null) {
+			progressListener.progress(sent, contentLength);
+		}
+		return sent;
+	}
+
+	private void closeParts() {
+		for (Part part : parts) {
+			if (part.content != null) {
+				try {
+					part.content.close();
+				} catch (IOException e) {
+					// The request already failed
+				}
+			}
+		}
+	}
+
+	private class Part {
+
+		private final byte[] head;
+		private final InputStream content;
+		private final long length;
+		private final byte[] tail;
+
+		Part(final byte[] head, final byte[] inline) {
+			this.head = head;
+			this.content = null;
+			this.length = 0;
+			this.tail = inline;
+		}
+
+		Part(final byte[] head, final InputStream content, final long length) {
+			this.head = head;
+			this.content = content;
+			this.length = length;
+			this.tail = bytes(LINE_FEED);
+		}
+	}
+
+	/**
+	 * Thrown when the server answers with an unexpected HTTP status.
+	 */
+	public static class HttpStatusException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int status;
+
+		public HttpStatusException(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+
+		public int getStatus() {
+			return status;
+		}
+	}
+
 }
@@ -0,0 +1,53 @@
+package org.cytoscape.cyndex2.internal.rest.endpoints;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import org.cytoscape.ci.model.CIResponse;
+import org.cytoscape.cyndex2.internal.rest.response.JobResponse;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+
+@Api(tags="Apps: CyNDEx-2")
+@Path("/cyndex2/v1/jobs")
+public interface NdexJobResource {
+
+	@ApiModel(
+			value="Job Response",
+			parent=CIResponse.class)
+	public static class CIJobResponse extends CIResponse<JobResponse>{/**/}
+
+	@GET
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("/{id}")
+	@ApiOperation(
+			value = "Get the state of an asynchronous import or export.",
+			notes = "Returns the phase, progress and, once finished, the result of the job. Finished jobs expire after a while.",
+			response = CIJobResponse.class)
+	@ApiResponses(value = {
+			@ApiResponse(code = 404, message = "Job does not exist or has expired", response = CIJobResponse.class), })
+	public CIJobResponse getJob(
+			@ApiParam(value="Job ID") @PathParam("id") final String id);
+
+	@DELETE
+	@Produces(MediaType.APPLICATION_JSON)
+	@Path("/{id}")
+	@ApiOperation(
+			value = "Cancel an asynchronous import or export.",
+			notes = "Cancels the job if it is still running and returns its state.",
+			response = CIJobResponse.class)
+	@ApiResponses(value = {
+			@ApiResponse(code = 404, message = "Job does not exist or has expired", response = CIJobResponse.class), })
+	public CIJobResponse cancelJob(
+			@ApiParam(value="Job ID") @PathParam("id") final String id);
+}
@@ -13,9 +13,14 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 
 import org.cytoscape.ci.model.CIResponse;
+import org.cytoscape.cyndex2.internal.rest.endpoints.NdexJobResource.CIJobResponse;
 import org.cytoscape.cyndex2.internal.rest.parameter.NDExBasicSaveParameters;
+import org.cytoscape.cyndex2.internal.rest.parameter.NDExBatchImportParameters;
+import org.cytoscape.cyndex2.internal.rest.parameter.NDExBatchSaveParameters;
 import org.cytoscape.cyndex2.internal.rest.parameter.NDExImportParameters;
 import org.cytoscape.cyndex2.internal.rest.parameter.NDExSaveParameters;
+import org.cytoscape.cyndex2.internal.rest.response.BatchImportResponse;
+import org.cytoscape.cyndex2.internal.rest.response.BatchSaveResponse;
 import org.cytoscape.cyndex2.internal.rest.response.NdexBaseResponse;
 import org.cytoscape.cyndex2.internal.rest.response.SummaryResponse;
 
@@ -82,6 +87,52 @@ public interface NdexNetworkResource {
 			 @ApiParam(value = "Raw CX object to be imported to Cytoscape.", required = true) NDExImportParameters params);
 	
 
+	@ApiModel(
+			value="Batch Import Response",
+			parent=CIResponse.class)
+    public static class CIBatchImportResponse extends CIResponse<BatchImportResponse>{/**/}
+
+	@POST
+	@Produces("application/json")
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Path("/batch")
+	@ApiOperation(
+			value = "Import many networks from NDEx",
+			notes = "Imports networks from NDEx, downloading and parsing several at a time. "
+					+ "Returns the SUID or the error for each requested network, in request order.",
+			response = CIBatchImportResponse.class)
+	public CIBatchImportResponse createNetworksFromNdex(
+			@ApiParam(value = "Networks to import and the number of parallel downloads.", required = true) NDExBatchImportParameters params);
+
+	@ApiModel(
+			value="Batch Save Response",
+			parent=CIResponse.class)
+    public static class CIBatchSaveResponse extends CIResponse<BatchSaveResponse>{/**/}
+
+	@POST
+	@Produces("application/json")
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Path("/batch/save")
+	@ApiOperation(
+			value = "Save many networks/collections to NDEx",
+			notes = "Saves or updates networks/collections in NDEx, writing and uploading several at a time. "
+					+ "Returns the NDEx UUID or the error for each requested SUID, in request order.",
+			response = CIBatchSaveResponse.class)
+	public CIBatchSaveResponse saveNetworksToNdex(
+			@ApiParam(value = "SUIDs to save, the save parameters and the number of parallel uploads.", required = true) NDExBatchSaveParameters params);
+
+	@POST
+	@Produces("application/json")
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Path("/async")
+	@ApiOperation(
+			value = "Start importing a network from NDEx",
+			notes = "Starts importing network(s) from NDEx on a background worker and returns a job ID immediately. "
+					+ "Poll /cyndex2/v1/jobs/{id} for progress and the SUID of the new network.",
+			response = CIJobResponse.class)
+	public CIJobResponse createNetworkFromNdexAsync(
+			@ApiParam(value = "Properties required to import a network from NDEx.", required = true) NDExImportParameters params);
+	
 	@POST
 	@Produces("application/json")
 	@Consumes(MediaType.APPLICATION_JSON)
@@ -125,6 +176,21 @@ public interface NdexNetworkResource {
 			@ApiParam(value = "Properties required to save network to NDEx.", required = true) final NDExSaveParameters params);
 
 	
+	@POST
+	@Produces("application/json")
+	@Consumes("application/json")
+	@Path("/{suid}/async")
+	@ApiOperation(value = "Start saving a network/collection to NDEx",
+			notes = "Starts saving a network/collection to NDEx on a background worker and returns a job ID immediately. "
+					+ "Poll /cyndex2/v1/jobs/{id} for progress and the UUID of the new NDEx network.",
+			response = CIJobResponse.class)
+	@ApiResponses(value = {
+			@ApiResponse(code = 404, message = "Network does not exist", response = CIJobResponse.class), })
+	public CIJobResponse saveNetworkToNdexAsync(
+			@ApiParam(value="Cytoscape Collection/Subnetwork SUID") @PathParam("suid") Long suid,
+			@ApiParam(value = "Properties required to save network to NDEx.", required = true) final NDExSaveParameters params);
+
+	
 	@PUT
 	@Produces("application/json")
 	@Consumes("application/json")
@@ -0,0 +1,64 @@
+package org.cytoscape.cyndex2.internal.rest.endpoints.impl;
+
+import javax.ws.rs.core.Response.Status;
+
+import org.cytoscape.ci.CIWrapping;
+import org.cytoscape.cyndex2.internal.CyServiceModule;
+import org.cytoscape.cyndex2.internal.rest.endpoints.NdexJobResource;
+import org.cytoscape.cyndex2.internal.rest.errors.ErrorBuilder;
+import org.cytoscape.cyndex2.internal.rest.errors.ErrorType;
+import org.cytoscape.cyndex2.internal.rest.response.JobResponse;
+import org.cytoscape.cyndex2.internal.task.NDExJob;
+import org.cytoscape.cyndex2.internal.task.NDExJobManager;
+import org.cytoscape.cyndex2.internal.util.CIServiceManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class NdexJobResourceImpl implements NdexJobResource {
+
+	private static final Logger logger = LoggerFactory.getLogger(NdexJobResourceImpl.class);
+
+	private final CIServiceManager ciServiceManager;
+	private final NDExJobManager jobManager;
+	private final ErrorBuilder errorBuilder;
+
+	public NdexJobResourceImpl(final CIServiceManager ciServiceManager, final NDExJobManager jobManager) {
+		this.ciServiceManager = ciServiceManager;
+		this.jobManager = jobManager;
+		this.errorBuilder = CyServiceModule.INSTANCE.getErrorBuilder();
+	}
+
+	private NDExJob getExistingJob(final String id) {
+		final NDExJob job = jobManager.get(id);
+		if (job == null) {
+			final String message = "Job " + id + " does not exist or has expired.";
+			logger.error(message);
+			throw errorBuilder.buildException(Status.NOT_FOUND, message, ErrorType.INVALID_PARAMETERS);
+		}
+		return job;
+	}
+
+	@Override
+	@CIWrapping
+	public CIJobResponse getJob(final String id) {
+		return buildResponse(getExistingJob(id));
+	}
+
+	@Override
+	@CIWrapping
+	public CIJobResponse cancelJob(final String id) {
+		final NDExJob job = getExistingJob(id);
+		job.cancel();
+		return buildResponse(job);
+	}
+
+	private CIJobResponse buildResponse(final NDExJob job) {
+		try {
+			return ciServiceManager.getCIResponseFactory().getCIResponse(new JobResponse(job), CIJobResponse.class);
+		} catch (InstantiationException | IllegalAccessException e) {
+			final String message = "Could not create wrapped CI JSON. Error: " + e.getMessage();
+			logger.error(message);
+			throw errorBuilder.buildException(Status.INTERNAL_SERVER_ERROR, message, ErrorType.INTERNAL);
+		}
+	}
+}
@@ -16,6 +16,8 @@ public class NDExBasicSaveParameters {
 	public String serverUrl;
 	@ApiModelProperty(value = "Network metadata", required = true)
 	public Map<String, String> metadata;
+	@ApiModelProperty(value = "Run the export on a background worker without a progress dialog. Intended for scripted callers.", example = "false")
+	public Boolean headless;
 
 	public NDExBasicSaveParameters() {
 		super();
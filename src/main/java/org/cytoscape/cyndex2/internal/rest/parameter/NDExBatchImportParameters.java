@@ -0,0 +1,20 @@
+package org.cytoscape.cyndex2.internal.rest.parameter;
+
+import java.util.List;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(description = "Parameters for loading many networks from NDEx in one request.")
+public class NDExBatchImportParameters {
+
+	@ApiModelProperty(value = "Import parameters for each network", required = true)
+	public List<NDExImportParameters> networks;
+
+	@ApiModelProperty(value = "Maximum number of networks downloaded and parsed at the same time, defaults to 4", example = "4", required = false)
+	public Integer parallelism;
+
+	public NDExBatchImportParameters() {
+		super();
+	}
+}
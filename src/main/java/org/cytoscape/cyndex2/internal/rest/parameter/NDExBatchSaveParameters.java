@@ -0,0 +1,26 @@
+package org.cytoscape.cyndex2.internal.rest.parameter;
+
+import java.util.List;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(description = "Parameters for saving many networks to NDEx in one request.")
+public class NDExBatchSaveParameters {
+
+	@ApiModelProperty(value = "SUIDs of the Cytoscape networks or collections to save", required = true)
+	public List<Long> suids;
+
+	@ApiModelProperty(value = "Account, server and visibility used for every network. Metadata is applied to every network, so leave out the name to keep each network's own name.", required = true)
+	public NDExSaveParameters parameters;
+
+	@ApiModelProperty(value = "Update the NDEx networks the given networks were imported from or saved to, instead of creating new ones", example = "false", required = false)
+	public Boolean update;
+
+	@ApiModelProperty(value = "Maximum number of networks written and uploaded at the same time, defaults to 4", example = "4", required = false)
+	public Integer parallelism;
+
+	public NDExBatchSaveParameters() {
+		super();
+	}
+}
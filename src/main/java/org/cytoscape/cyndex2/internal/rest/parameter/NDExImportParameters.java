@@ -1,5 +1,7 @@
 package org.cytoscape.cyndex2.internal.rest.parameter;
 
+import java.util.List;
+
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
 
@@ -27,6 +29,28 @@ public class NDExImportParameters {
 	
 	@ApiModelProperty(value="Explicitly create or don't create a view. Leave undefined to fall back on default behaviour.", example="", required=false)
 	public Boolean createView;
+
+	@ApiModelProperty(value="Names of the CX aspects to download, e.g. [\"nodeAttributes\", \"edgeAttributes\"]. Nodes and edges are always downloaded. Leave undefined to download all aspects.", example="", required=false)
+	public List<String> aspects;
+
+	@ApiModelProperty(value="Space separated node names, e.g. gene symbols. When given, only the result of a neighborhood query for these nodes is imported instead of the whole network.", example="TP53 MDM2", required=false)
+	public String query;
+
+	@ApiModelProperty(value="Number of hops from the query nodes, defaults to 1", example="1", required=false)
+	public Integer queryDepth;
+
+	@ApiModelProperty(value="Import only the edges between the query nodes (interconnect query) instead of their neighborhood", example="false", required=false)
+	public Boolean interconnect;
+
+	@ApiModelProperty(value="Largest number of edges a query result may have, defaults to 50000", example="50000", required=false)
+	public Integer edgeLimit;
+
+	@ApiModelProperty(value="Run the import on a background worker without a progress dialog. Intended for scripted callers.", example="false", required=false)
+	public Boolean headless;
+	
+	public NDExImportParameters() {
+		super();
+	}
 	
 	public NDExImportParameters(String uuid, String username, String password, String serverUrl, String accessKey, String IDToken, Boolean createView) {
 		this.uuid = uuid;
@@ -0,0 +1,36 @@
+package org.cytoscape.cyndex2.internal.rest.response;
+
+import java.util.List;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(description = "Response for a batch import API call.")
+public class BatchImportResponse {
+
+	@ApiModel(description = "Result of importing one network of a batch.")
+	public static class Result {
+
+		@ApiModelProperty(value = "NDEx network UUID, as given in the request")
+		public String uuid;
+
+		@ApiModelProperty(value = "SUID of the new network, if the import succeeded")
+		public Long suid;
+
+		@ApiModelProperty(value = "Error message, if the import failed")
+		public String error;
+
+		public Result(final String uuid, final Long suid, final String error) {
+			this.uuid = uuid;
+			this.suid = suid;
+			this.error = error;
+		}
+	}
+
+	@ApiModelProperty(value = "Results in the order of the request")
+	public List<Result> results;
+
+	public BatchImportResponse(final List<Result> results) {
+		this.results = results;
+	}
+}
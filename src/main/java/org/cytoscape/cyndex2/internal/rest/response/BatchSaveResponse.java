@@ -0,0 +1,36 @@
+package org.cytoscape.cyndex2.internal.rest.response;
+
+import java.util.List;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(description = "Response for a batch save API call.")
+public class BatchSaveResponse {
+
+	@ApiModel(description = "Result of saving one network of a batch.")
+	public static class Result {
+
+		@ApiModelProperty(value = "SUID of the Cytoscape network or collection, as given in the request")
+		public Long suid;
+
+		@ApiModelProperty(value = "NDEx network UUID, if the upload succeeded")
+		public String uuid;
+
+		@ApiModelProperty(value = "Error message, if the save failed")
+		public String error;
+
+		public Result(final Long suid, final String uuid, final String error) {
+			this.suid = suid;
+			this.uuid = uuid;
+			this.error = error;
+		}
+	}
+
+	@ApiModelProperty(value = "Results in the order of the request")
+	public List<Result> results;
+
+	public BatchSaveResponse(final List<Result> results) {
+		this.results = results;
+	}
+}
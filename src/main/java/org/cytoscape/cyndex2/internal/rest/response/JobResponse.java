@@ -0,0 +1,73 @@
+package org.cytoscape.cyndex2.internal.rest.response;
+
+import org.cytoscape.cyndex2.internal.task.NDExJob;
+import org.cytoscape.cyndex2.internal.task.NetworkImportTask;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+@ApiModel(description = "State of an asynchronous NDEx import or export.")
+public class JobResponse {
+
+	@ApiModelProperty(value = "Job ID, used to poll or cancel the job")
+	public String jobId;
+
+	@ApiModelProperty(value = "Kind of job", allowableValues = "import,export")
+	public String type;
+
+	@ApiModelProperty(value = "Job state", allowableValues = "queued,running,succeeded,failed,cancelled")
+	public String state;
+
+	@ApiModelProperty(value = "Current stage of an import", allowableValues = "download,parse,register,view,done")
+	public String phase;
+
+	@ApiModelProperty(value = "Last status message reported by the task")
+	public String status;
+
+	@ApiModelProperty(value = "Overall progress between 0 and 1")
+	public double progress;
+
+	@ApiModelProperty(value = "CX bytes received from NDEx so far (imports only)")
+	public Long bytesRead;
+
+	@ApiModelProperty(value = "CX size reported by NDEx, if known (imports only)")
+	public Long totalBytes;
+
+	@ApiModelProperty(value = "SUID of the imported or exported network, once known")
+	public Long suid;
+
+	@ApiModelProperty(value = "NDEx network UUID, once known")
+	public String uuid;
+
+	@ApiModelProperty(value = "Error message if the job failed")
+	public String error;
+
+	@ApiModelProperty(value = "Time the job was created, in milliseconds since the epoch")
+	public long createdAt;
+
+	@ApiModelProperty(value = "Time the job finished, in milliseconds since the epoch")
+	public Long finishedAt;
+
+	public JobResponse(final NDExJob job) {
+		jobId = job.getId();
+		type = job.getType();
+		state = job.getState().name().toLowerCase();
+		status = job.getStatusMessage();
+		progress = job.getProgress();
+		suid = job.getSuid();
+		uuid = job.getUuid();
+		error = job.getError();
+		createdAt = job.getCreatedAt();
+		finishedAt = job.isDone() ? job.getFinishedAt() : null;
+
+		final NetworkImportTask importTask = job.getImportTask();
+		if (importTask != null) {
+			if (importTask.getPhase() != null) {
+				phase = importTask.getPhase().name().toLowerCase();
+			}
+			bytesRead = importTask.getBytesRead();
+			final long expected = importTask.getExpectedBytes();
+			totalBytes = expected > 0 ? expected : null;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package org.cytoscape.cyndex2.internal.task;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.cytoscape.application.events.SetCurrentNetworkEvent;
+import org.cytoscape.application.events.SetCurrentNetworkListener;
+import org.cytoscape.cyndex2.internal.CyServiceModule;
+import org.cytoscape.cyndex2.internal.util.CartesianLayoutStore;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedEvent;
+import org.cytoscape.model.events.NetworkAboutToBeDestroyedListener;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.events.NetworkViewAddedEvent;
+import org.cytoscape.view.model.events.NetworkViewAddedListener;
+import org.cytoscape.work.FinishStatus;
+import org.cytoscape.work.ObservableTask;
+import org.cytoscape.work.TaskIterator;
+import org.cytoscape.work.TaskObserver;
+import org.cytoscape.work.swing.DialogTaskManager;
+
+/**
+ * Keeps track of imported networks whose view has not been created yet, and
+ * creates it in the background once the network becomes the current one.
+ *
+ * A view creation that is cancelled or fails leaves the network pending, so
+ * focusing it again retries. The CX layout of a network imported without a
+ * view is kept as well, and applied to whatever view is created for it later.
+ */
+public class DeferredViewManager
+		implements SetCurrentNetworkListener, NetworkViewAddedListener, NetworkAboutToBeDestroyedListener {
+
+	public static final DeferredViewManager INSTANCE = new DeferredViewManager();
+
+	private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+	private final Map<Long, CartesianLayoutStore> layouts = new ConcurrentHashMap<>();
+
+	private static class Pending {
+		private final CyNetwork network;
+		private DeferredViewTask task;
+
+		Pending(final CyNetwork network) {
+			this.network = network;
+		}
+	}
+
+	private DeferredViewManager() {
+	}
+
+	/**
+	 * Creates the view of a registered network the next time it becomes the
+	 * current network.
+	 *
+	 * @param layout
+	 *            - positions by SUID, or null to lay it out instead
+	 */
+	public void defer(final CyNetwork network, final CartesianLayoutStore layout) {
+		keep(network, layout);
+		pending.put(network.getSUID(), new Pending(network));
+	}
+
+	/**
+	 * Keeps node positions by SUID until a view is created for the network.
+	 */
+	public void keep(final CyNetwork network, final CartesianLayoutStore layout) {
+		if (layout != null) {
+			layouts.put(network.getSUID(), layout);
+		}
+	}
+
+	/**
+	 * Removes and returns the positions kept for a network, or null.
+	 */
+	CartesianLayoutStore takeLayout(final CyNetwork network) {
+		return layouts.remove(network.getSUID());
+	}
+
+	public boolean isDeferred(final CyNetwork network) {
+		return pending.containsKey(network.getSUID());
+	}
+
+	public boolean hasLayout(final CyNetwork network) {
+		return layouts.containsKey(network.getSUID());
+	}
+
+	@Override
+	public void handleEvent(final SetCurrentNetworkEvent e) {
+		final CyNetwork network = e.getNetwork();
+		if (network == null) {
+			return;
+		}
+		final Pending entry = pending.get(network.getSUID());
+		if (entry == null) {
+			return;
+		}
+		final DeferredViewTask viewTask;
+		synchronized (entry) {
+			if (entry.task != null) {
+				return;
+			}
+			viewTask = new DeferredViewTask(entry.network);
+			entry.task = viewTask;
+		}
+		CyServiceModule.getService(DialogTaskManager.class).execute(new TaskIterator(viewTask), new TaskObserver() {
+
+			@Override
+			public void taskFinished(ObservableTask task) {
+			}
+
+			@Override
+			public void allFinished(FinishStatus finishStatus) {
+				if (finishStatus.getType() == FinishStatus.Type.SUCCEEDED) {
+					pending.remove(network.getSUID(), entry);
+				} else {
+					synchronized (entry) {
+						entry.task = null;
+					}
+				}
+			}
+		});
+	}
+
+	@Override
+	public void handleEvent(final NetworkViewAddedEvent e) {
+		// A view created elsewhere, e.g. with Cytoscape's Create View
+		final CyNetworkView view = e.getNetworkView();
+		final CartesianLayoutStore layout = takeLayout(view.getModel());
+		if (layout != null) {
+			DeferredViewTask.applyPositions(view, layout, null);
+			view.updateView();
+		}
+	}
+
+	@Override
+	public void handleEvent(final NetworkAboutToBeDestroyedEvent e) {
+		final Long suid = e.getNetwork().getSUID();
+		layouts.remove(suid);
+		final Pending entry = pending.remove(suid);
+		if (entry == null) {
+			return;
+		}
+		synchronized (entry) {
+			if (entry.task != null) {
+				entry.task.cancel();
+			}
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package org.cytoscape.cyndex2.internal.task;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+import org.cytoscape.application.CyApplicationManager;
+import org.cytoscape.cyndex2.internal.CyServiceModule;
+import org.cytoscape.cyndex2.internal.util.CartesianLayoutStore;
+import org.cytoscape.cyndex2.internal.util.CxPreferences;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.layout.CyLayoutAlgorithm;
+import org.cytoscape.view.layout.CyLayoutAlgorithmManager;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.CyNetworkViewFactory;
+import org.cytoscape.view.model.CyNetworkViewManager;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.cytoscape.view.vizmap.VisualMappingManager;
+import org.cytoscape.view.vizmap.VisualStyle;
+import org.cytoscape.work.AbstractTask;
+import org.cytoscape.work.TaskMonitor;
+
+/**
+ * Creates the view of a network that was imported without one, placing nodes
+ * at the positions kept from its CX layout by {@link DeferredViewManager}.
+ * Networks without a kept layout get the default layout, if they are small
+ * enough.
+ */
+public class DeferredViewTask extends AbstractTask {
+
+	private static final int CANCEL_CHECK_INTERVAL = 4096;
+
+	private final CyNetwork network;
+	private volatile CyNetworkView view;
+
+	public DeferredViewTask(final CyNetwork network) {
+		this.network = network;
+	}
+
+	@Override
+	public void run(final TaskMonitor taskMonitor) throws Exception {
+		taskMonitor.setTitle("Creating network view");
+		final CyNetworkViewManager viewManager = CyServiceModule.getService(CyNetworkViewManager.class);
+		if (!viewManager.getNetworkViews(network).isEmpty()) {
+			return;
+		}
+		// Taken so the view added below is not positioned a second time
+		final CartesianLayoutStore layout = DeferredViewManager.INSTANCE.takeLayout(network);
+		boolean positioned = false;
+		try {
+			taskMonitor.setStatusMessage("Building view");
+			final CyApplicationManager appManager = CyServiceModule.getService(CyApplicationManager.class);
+			final CyNetworkViewFactory viewFactory = appManager.getDefaultNetworkViewRenderer().getNetworkViewFactory();
+			view = viewFactory.createNetworkView(network);
+			if (cancelled) {
+				return;
+			}
+
+			if (layout != null) {
+				taskMonitor.setStatusMessage("Applying layout from NDEx");
+				positioned = applyPositions(view, layout, this) > 0;
+				if (cancelled) {
+					return;
+				}
+			}
+
+			final VisualMappingManager vmm = CyServiceModule.getService(VisualMappingManager.class);
+			final VisualStyle style = vmm.getDefaultVisualStyle();
+			vmm.setVisualStyle(style, view);
+			style.apply(view);
+
+			register(viewManager, appManager);
+		} finally {
+			if (!viewManager.getNetworkViewSet().contains(view)) {
+				// Not registered: keep the layout for the next attempt
+				dispose();
+				DeferredViewManager.INSTANCE.keep(network, layout);
+			}
+		}
+		if (cancelled) {
+			return;
+		}
+
+		if (!positioned && CxPreferences.isLayoutApplied(network.getNodeCount(), network.getEdgeCount())) {
+			final CyLayoutAlgorithm algorithm = CyServiceModule.getService(CyLayoutAlgorithmManager.class)
+					.getDefaultLayout();
+			insertTasksAfterCurrentTask(algorithm.createTaskIterator(view, algorithm.createLayoutContext(),
+					CyLayoutAlgorithm.ALL_NODE_VIEWS, null));
+		}
+	}
+
+	/**
+	 * Places the nodes of a view at their kept positions.
+	 *
+	 * @param task
+	 *            - checked for cancellation, or null
+	 * @return the number of nodes placed
+	 */
+	static int applyPositions(final CyNetworkView view, final CartesianLayoutStore layout, final DeferredViewTask task) {
+		final double[] position = new double[3];
+		final List<CyNode> nodes = view.getModel().getNodeList();
+		int placed = 0;
+		for (int i = 0; i < nodes.size(); i++) {
+			if (task != null && i % CANCEL_CHECK_INTERVAL == 0 && task.cancelled) {
+				return placed;
+			}
+			final CyNode node = nodes.get(i);
+			if (!layout.get(node.getSUID(), position)) {
+				continue;
+			}
+			final View<CyNode> nodeView = view.getNodeView(node);
+			nodeView.setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, position[0]);
+			nodeView.setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, position[1]);
+			nodeView.setVisualProperty(BasicVisualLexicon.NODE_Z_LOCATION, position[2]);
+			placed++;
+		}
+		return placed;
+	}
+
+	private void register(final CyNetworkViewManager viewManager, final CyApplicationManager appManager)
+			throws InvocationTargetException, InterruptedException {
+		final Runnable registration = () -> {
+			viewManager.addNetworkView(view);
+			appManager.setCurrentNetworkView(view);
+			view.fitContent();
+			view.updateView();
+		};
+		if (SwingUtilities.isEventDispatchThread()) {
+			registration.run();
+		} else {
+			SwingUtilities.invokeAndWait(registration);
+		}
+	}
+
+	private void dispose() {
+		final CyNetworkView view = this.view;
+		if (view != null) {
+			view.dispose();
+			this.view = null;
+		}
+	}
+}
@@ -1,8 +1,8 @@
 package org.cytoscape.cyndex2.internal.task;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.HashMap;
@@ -17,7 +17,12 @@ import org.cytoscape.cyndex2.internal.rest.errors.ErrorBuilder;
 import org.cytoscape.cyndex2.internal.rest.errors.ErrorType;
 import org.cytoscape.cyndex2.internal.rest.parameter.NDExBasicSaveParameters;
 import org.cytoscape.cyndex2.internal.rest.parameter.NDExSaveParameters;
-import org.cytoscape.cyndex2.internal.util.UserAgentUtil;
+import org.cytoscape.cyndex2.internal.task.NetworkExportTask.CxSource;
+import org.cytoscape.cyndex2.internal.util.AccessLayerCache;
+import org.cytoscape.cyndex2.internal.util.BoundedPipe;
+import org.cytoscape.cyndex2.internal.util.CxPreferences;
+import org.cytoscape.cyndex2.internal.util.HeadlessTaskMonitor;
+import org.cytoscape.cyndex2.internal.util.SpillOutputStream;
 import org.cytoscape.io.write.CyNetworkViewWriterFactory;
 import org.cytoscape.io.write.CyWriter;
 import org.cytoscape.model.CyColumn;
@@ -31,13 +36,13 @@ import org.cytoscape.view.model.CyNetworkView;
 import org.cytoscape.work.AbstractTask;
 import org.cytoscape.work.TaskIterator;
 import org.cytoscape.work.TaskMonitor;
-import org.ndexbio.rest.client.NdexRestClient;
 import org.ndexbio.rest.client.NdexRestClientModelAccessLayer;
 
 public class NDExExportTaskFactory implements NetworkViewTaskFactory, NetworkTaskFactory {
 
 	private final NDExBasicSaveParameters params;
 	private final boolean isUpdate;
+	private boolean recordSummary = true;
 
 	private CyWriter writer;
 	private NetworkExportTask exporter;
@@ -96,37 +101,136 @@ public class NDExExportTaskFactory implements NetworkViewTaskFactory, NetworkTas
 	private AbstractTask getTaskWrapper(CyNetwork network, boolean writeCollection) {
 		
 		AbstractTask wrapper = new AbstractTask() {
-			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			private volatile CxSource source;
+
 			@Override
 			public void run(TaskMonitor taskMonitor) throws Exception {
-				CyNetworkViewWriterFactory writerFactory = CxTaskFactoryManager.INSTANCE.getCxWriterFactory();
-				writer = writerFactory.createWriter(out, network);
-				setTunables(writer, writeCollection);
-				
-				writer.run(taskMonitor);
-				byte[] bytes = out.toByteArray();
-				ByteArrayInputStream in = new ByteArrayInputStream(bytes);
-				
-				NdexRestClient client = new NdexRestClient(params.username, params.password, params.serverUrl,
-						 UserAgentUtil.getUserAgent());
-				NdexRestClientModelAccessLayer mal = new NdexRestClientModelAccessLayer(client);
+				NdexRestClientModelAccessLayer mal = AccessLayerCache.INSTANCE.getAccessLayer(params.username,
+						params.password, params.serverUrl);
 				
-				exporter = new NetworkExportTask(mal, network.getSUID(), in, params, writeCollection, isUpdate);
+				final CxSource source;
+				if (CxPreferences.isDiskExportBuffer()) {
+					// Written when the export task opens it, after the network has been renamed
+					source = new BufferedCxSource(network, writeCollection);
+					this.source = source;
+				} else {
+					// The CX is written while it is uploaded, so only the pipe capacity is held in memory
+					source = () -> startWriter(network, writeCollection);
+				}
+				exporter = new NetworkExportTask(mal, network.getSUID(), source, params, writeCollection, isUpdate);
+				exporter.setRecordSummary(recordSummary);
+				exporter.setGzipUpload(CxPreferences.isGzipUpload());
 				getTaskIterator().append(exporter);
 			}
+
 			@Override
 			public void cancel() {
 				super.cancel();
-				try {
-					out.close();
-				} catch (IOException e) {
-					throw new RuntimeException("Task cancelled");
+				// The export task that would dispose the buffer may never run
+				final CxSource source = this.source;
+				if (source != null) {
+					source.dispose();
 				}
 			}
 		};
 		return wrapper;
 	}
 	
+	/**
+	 * CX serialized into a {@link SpillOutputStream} the first time it is opened,
+	 * so that it carries the names the export task sets before uploading.
+	 */
+	private class BufferedCxSource implements CxSource {
+
+		private final CyNetwork network;
+		private final boolean writeCollection;
+		private SpillOutputStream out;
+		private boolean disposed;
+
+		BufferedCxSource(final CyNetwork network, final boolean writeCollection) {
+			this.network = network;
+			this.writeCollection = writeCollection;
+		}
+
+		@Override
+		public synchronized InputStream open() throws IOException {
+			if (disposed) {
+				throw new IOException("Export buffer was discarded");
+			}
+			if (out == null) {
+				final long threshold = CxPreferences.getExportSpillThreshold() * 1024L * 1024L;
+				final SpillOutputStream buffer = new SpillOutputStream(threshold, getSpillDirectory());
+				try {
+					final CyNetworkViewWriterFactory writerFactory = CxTaskFactoryManager.INSTANCE.getCxWriterFactory();
+					writer = writerFactory.createWriter(buffer, network);
+					setTunables(writer, writeCollection);
+					writer.run(new HeadlessTaskMonitor());
+					buffer.close();
+				} catch (IOException | RuntimeException e) {
+					buffer.delete();
+					throw e;
+				} catch (Exception e) {
+					buffer.delete();
+					throw new IOException("Failed to write CX", e);
+				}
+				out = buffer;
+			}
+			return out.openInputStream();
+		}
+
+		/**
+		 * Known once the source has been opened.
+		 */
+		@Override
+		public synchronized long length() {
+			return out == null ? -1 : out.length();
+		}
+
+		@Override
+		public boolean isRepeatable() {
+			return true;
+		}
+
+		@Override
+		public synchronized void dispose() {
+			disposed = true;
+			if (out != null) {
+				out.delete();
+				out = null;
+			}
+		}
+	}
+	
+	private static File getSpillDirectory() {
+		try {
+			return new File(CyServiceModule.INSTANCE.getConfigDir(), "export");
+		} catch (RuntimeException e) {
+			// No Cytoscape configuration available, fall back to the system temp dir
+			return null;
+		}
+	}
+	
+	private InputStream startWriter(final CyNetwork network, final boolean writeCollection) {
+		final BoundedPipe pipe = new BoundedPipe();
+		final CyNetworkViewWriterFactory writerFactory = CxTaskFactoryManager.INSTANCE.getCxWriterFactory();
+		writer = writerFactory.createWriter(pipe.getOutputStream(), network);
+		setTunables(writer, writeCollection);
+		
+		final CyWriter cxWriter = writer;
+		final Thread writerThread = new Thread(() -> {
+			try {
+				cxWriter.run(new HeadlessTaskMonitor());
+				pipe.getOutputStream().close();
+			} catch (Throwable e) {
+				pipe.fail(e);
+			}
+		}, "CyNDEx-2 CX writer " + network.getSUID());
+		writerThread.setDaemon(true);
+		writerThread.start();
+		
+		return pipe.getInputStream();
+	}
+	
 	@Override
 	public TaskIterator createTaskIterator(CyNetworkView networkView) {
 		validateSaveParameters(params);
@@ -188,10 +292,21 @@ public class NDExExportTaskFactory implements NetworkViewTaskFactory, NetworkTas
 		row.set(columnName, value);
 	}
 
+	/**
+	 * See {@link NetworkExportTask#setRecordSummary(boolean)}.
+	 */
+	public void setRecordSummary(final boolean recordSummary) {
+		this.recordSummary = recordSummary;
+	}
+
 	public UUID getUUID() {
 		return exporter.getUUID();
 	}
 
+	public boolean isUploadRetried() {
+		return exporter != null && exporter.isUploadRetried();
+	}
+
 	@Override
 	public boolean isReady(CyNetwork network) {
 		return network != null;
@@ -3,18 +3,23 @@ package org.cytoscape.cyndex2.internal.task;
 import java.io.IOException;
 import java.util.UUID;
 
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response.Status;
 
 import org.cytoscape.cyndex2.internal.CyActivator;
 import org.cytoscape.cyndex2.internal.CyServiceModule;
+import org.cytoscape.cyndex2.internal.rest.NdexClient;
 import org.cytoscape.cyndex2.internal.rest.errors.ErrorBuilder;
 import org.cytoscape.cyndex2.internal.rest.errors.ErrorType;
 import org.cytoscape.cyndex2.internal.rest.parameter.NDExImportParameters;
-import org.cytoscape.cyndex2.internal.util.UserAgentUtil;
+import org.cytoscape.cyndex2.internal.util.AccessLayerCache;
+import org.cytoscape.cyndex2.internal.util.CxPreferences;
+import org.cytoscape.cyndex2.internal.util.NetworkQuery;
+import org.cytoscape.cyndex2.internal.util.NetworkSummaryCache;
 import org.cytoscape.work.AbstractTaskFactory;
 import org.cytoscape.work.TaskIterator;
 import org.ndexbio.model.exceptions.NdexException;
-import org.ndexbio.rest.client.NdexRestClient;
+import org.ndexbio.model.object.network.NetworkSummary;
 import org.ndexbio.rest.client.NdexRestClientModelAccessLayer;
 
 public class NDExImportTaskFactory extends AbstractTaskFactory {
@@ -23,6 +28,7 @@ public class NDExImportTaskFactory extends AbstractTaskFactory {
 	private NDExImportParameters params;
 
 	private NetworkImportTask importer;
+	private boolean deferView = false;
 
 	public NDExImportTaskFactory(NDExImportParameters params) {
 		super();
@@ -37,26 +43,88 @@ public class NDExImportTaskFactory extends AbstractTaskFactory {
 		if (params.username != null && params.password != null) {
 			final String serverUrl = params.serverUrl == null ? "http://ndexbio.org/v2/" : params.serverUrl;
 
-			final NdexRestClient client = new NdexRestClient(params.username, params.password, serverUrl,
-					UserAgentUtil.getUserAgent());
-			final NdexRestClientModelAccessLayer mal = new NdexRestClientModelAccessLayer(client);
-			return new NetworkImportTask(mal, uuid, params.accessKey, params.createView);
+			final NdexRestClientModelAccessLayer mal = AccessLayerCache.INSTANCE.getAccessLayer(params.username,
+					params.password, serverUrl);
+			final NetworkSummary summary = getNetworkSummary(mal, serverUrl, uuid, params.username, params.password);
+			return new NetworkImportTask(mal, uuid, params.accessKey, params.createView, summary);
 		} else {
-			final NdexRestClient client = new NdexRestClient(null, null, params.serverUrl,
-					UserAgentUtil.getUserAgent());
-			if (params.idToken != null)
-				client.signIn(params.idToken);
+			final NdexRestClientModelAccessLayer mal = AccessLayerCache.INSTANCE.getAccessLayer(null, null,
+					params.serverUrl, params.idToken);
+			final NetworkSummary summary = getNetworkSummary(mal, params.serverUrl, uuid, null, null);
 
-			final NdexRestClientModelAccessLayer mal = new NdexRestClientModelAccessLayer(client);
+			return new NetworkImportTask(mal, uuid, params.accessKey, params.createView, summary);
+		}
+	}
 
-			return new NetworkImportTask(mal, uuid, params.accessKey, params.createView);
+	/**
+	 * Takes the summary from the summary cache when a dialog or an earlier call
+	 * already fetched it. Otherwise it is fetched through the shared NdexClient,
+	 * which revalidates repeated lookups, or through the access layer for ID
+	 * token sessions.
+	 */
+	private NetworkSummary getNetworkSummary(final NdexRestClientModelAccessLayer mal, final String serverUrl,
+			final UUID uuid, final String username, final String password) throws IOException, NdexException {
+		final boolean cacheable = params.accessKey == null && params.idToken == null;
+		if (cacheable) {
+			final NetworkSummary cached = NetworkSummaryCache.INSTANCE.getSummary(serverUrl, username, uuid);
+			if (cached != null) {
+				return cached;
+			}
+		}
+
+		NetworkSummary summary = null;
+		final NdexClient client = CyServiceModule.getNdexClient();
+		if (client != null && params.idToken == null) {
+			try {
+				summary = client.getNetworkSummary(serverUrl, uuid.toString(), params.accessKey, username, password);
+			} catch (WebApplicationException e) {
+				summary = null;
+			}
+		}
+		if (summary == null) {
+			summary = mal.getNetworkSummaryById(uuid, params.accessKey);
 		}
+		if (cacheable) {
+			NetworkSummaryCache.INSTANCE.putSummary(serverUrl, username, summary);
+		}
+		return summary;
+	}
+
+	/**
+	 * See {@link NetworkImportTask#setDeferView(boolean)}. Off by default, so
+	 * that REST callers asking for a view get it before the import returns.
+	 */
+	public void setDeferView(final boolean deferView) {
+		this.deferView = deferView;
 	}
 
 	@Override
 	public TaskIterator createTaskIterator() {
 		try {
 			importer = buildImportTask();
+			importer.setServer(params.serverUrl, params.username, params.password);
+			importer.setAspects(params.aspects);
+			if (params.query != null && !params.query.trim().isEmpty()) {
+				importer.setQuery(new NetworkQuery(params.query.trim(),
+						params.queryDepth == null ? NetworkQuery.DEFAULT_DEPTH : params.queryDepth,
+						params.edgeLimit == null ? NetworkQuery.DEFAULT_EDGE_LIMIT : params.edgeLimit,
+						Boolean.TRUE.equals(params.interconnect)));
+			}
+			importer.setCxCache(CyServiceModule.getCxCache());
+			importer.setCollectionParallelism(CxPreferences.getCollectionParallelism());
+			importer.setDeferView(deferView);
+			if (params.idToken == null) {
+				// ID token sessions are only known to the access layer
+				importer.setNdexClient(CyServiceModule.getNdexClient());
+				// Large networks are spooled so that a failed download can be resumed
+				final long size = importer.getEstimatedBytes();
+				importer.setSpoolDirectory(CxPreferences.getImportSpoolDirectory(size));
+				if (CxPreferences.isSegmentedDownload(size)) {
+					importer.setDownloadSegments(CxPreferences.getDownloadSegments());
+				}
+			} else {
+				importer.setSpoolDirectory(CxPreferences.getImportSpoolDirectory());
+			}
 			return new TaskIterator(importer);
 		} catch (IOException | NdexException e) {
 			final String message = "Failed to connect to server and retrieve network. " + e.getMessage();
@@ -88,4 +156,11 @@ public class NDExImportTaskFactory extends AbstractTaskFactory {
 		return importer.getSUID();
 	}
 
+	/**
+	 * The task built by the last call to {@link #createTaskIterator()}.
+	 */
+	public NetworkImportTask getImportTask() {
+		return importer;
+	}
+
 }
@@ -0,0 +1,187 @@
+package org.cytoscape.cyndex2.internal.task;
+
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+import org.cytoscape.work.FinishStatus;
+import org.cytoscape.work.TaskMonitor;
+
+/**
+ * A long-running import or export started through the asynchronous REST API.
+ *
+ * The job acts as the task monitor of its tasks, so progress and status
+ * messages can be polled while they run.
+ */
+public class NDExJob implements TaskMonitor {
+
+	public static final String TYPE_IMPORT = "import";
+	public static final String TYPE_EXPORT = "export";
+
+	public enum State {
+		QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+	}
+
+	private final String id = UUID.randomUUID().toString();
+	private final String type;
+	private final long createdAt = System.currentTimeMillis();
+
+	private volatile State state = State.QUEUED;
+	private volatile double progress;
+	private volatile String statusMessage;
+	private volatile long finishedAt;
+	private volatile Long suid;
+	private volatile String uuid;
+	private volatile String error;
+	private volatile NetworkImportTask importTask;
+
+	private Future<FinishStatus> future;
+	private boolean cancelRequested;
+
+	public NDExJob(final String type) {
+		this.type = type;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public long getCreatedAt() {
+		return createdAt;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public boolean isDone() {
+		final State state = this.state;
+		return state == State.SUCCEEDED || state == State.FAILED || state == State.CANCELLED;
+	}
+
+	public double getProgress() {
+		return progress;
+	}
+
+	public String getStatusMessage() {
+		return statusMessage;
+	}
+
+	/**
+	 * Time the job finished, or 0 while it is still queued or running.
+	 */
+	public long getFinishedAt() {
+		return finishedAt;
+	}
+
+	public Long getSuid() {
+		return suid;
+	}
+
+	public void setSuid(final Long suid) {
+		this.suid = suid;
+	}
+
+	public String getUuid() {
+		return uuid;
+	}
+
+	public void setUuid(final String uuid) {
+		this.uuid = uuid;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * The import task, for phase and byte counts, or null for exports.
+	 */
+	public NetworkImportTask getImportTask() {
+		return importTask;
+	}
+
+	public void setImportTask(final NetworkImportTask importTask) {
+		this.importTask = importTask;
+	}
+
+	synchronized void setFuture(final Future<FinishStatus> future) {
+		this.future = future;
+		if (cancelRequested) {
+			future.cancel(true);
+		}
+	}
+
+	/**
+	 * Cancels the running task. Returns false if the job had already finished.
+	 */
+	public synchronized boolean cancel() {
+		if (isDone()) {
+			return false;
+		}
+		cancelRequested = true;
+		if (future != null) {
+			future.cancel(true);
+		}
+		if (state == State.QUEUED) {
+			// A job that never started gets no completion callback
+			state = State.CANCELLED;
+			finishedAt = System.currentTimeMillis();
+		}
+		return true;
+	}
+
+	void finish(final FinishStatus status) {
+		if (status.getType() == FinishStatus.Type.SUCCEEDED) {
+			progress = 1.0;
+			state = State.SUCCEEDED;
+		} else if (status.getType() == FinishStatus.Type.CANCELLED) {
+			state = State.CANCELLED;
+		} else {
+			final Exception e = status.getException();
+			error = NDExNetworkService.getErrorMessage(e == null ? new IllegalStateException("Unknown error") : e);
+			state = State.FAILED;
+		}
+		finishedAt = System.currentTimeMillis();
+	}
+
+	void fail(final Throwable e) {
+		error = NDExNetworkService.getErrorMessage(e);
+		state = State.FAILED;
+		finishedAt = System.currentTimeMillis();
+	}
+
+	private void running() {
+		if (state == State.QUEUED) {
+			state = State.RUNNING;
+		}
+	}
+
+	@Override
+	public void setTitle(final String title) {
+		running();
+	}
+
+	@Override
+	public void setProgress(final double progress) {
+		running();
+		this.progress = progress;
+	}
+
+	@Override
+	public void setStatusMessage(final String statusMessage) {
+		running();
+		this.statusMessage = statusMessage;
+	}
+
+	@Override
+	public void showMessage(final Level level, final String message) {
+		running();
+		if (level == Level.ERROR) {
+			error = message;
+		}
+	}
+}
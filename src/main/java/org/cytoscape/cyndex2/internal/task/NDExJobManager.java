@@ -0,0 +1,76 @@
+package org.cytoscape.cyndex2.internal.task;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of asynchronous jobs.
+ *
+ * Holds at most a fixed number of jobs. Finished jobs are dropped once their
+ * result has been kept for a while, or earlier when room is needed for a new
+ * job; running jobs are never dropped.
+ */
+public class NDExJobManager {
+
+	public static final int DEFAULT_MAX_JOBS = 64;
+	public static final long DEFAULT_RESULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+	private final int maxJobs;
+	private final long resultTtlMillis;
+
+	// Insertion order, so eviction drops the oldest finished jobs first
+	private final Map<String, NDExJob> jobs = new LinkedHashMap<>();
+
+	public NDExJobManager() {
+		this(DEFAULT_MAX_JOBS, DEFAULT_RESULT_TTL_MILLIS);
+	}
+
+	public NDExJobManager(final int maxJobs, final long resultTtlMillis) {
+		this.maxJobs = maxJobs;
+		this.resultTtlMillis = resultTtlMillis;
+	}
+
+	/**
+	 * Adds a job, evicting finished jobs if the registry is full. Returns false if
+	 * every slot is taken by a job that is still running.
+	 */
+	public synchronized boolean add(final NDExJob job) {
+		expire();
+		if (jobs.size() >= maxJobs) {
+			final Iterator<NDExJob> it = jobs.values().iterator();
+			while (it.hasNext() && jobs.size() >= maxJobs) {
+				if (it.next().isDone()) {
+					it.remove();
+				}
+			}
+			if (jobs.size() >= maxJobs) {
+				return false;
+			}
+		}
+		jobs.put(job.getId(), job);
+		return true;
+	}
+
+	/**
+	 * Returns the job with the given id, or null if it is unknown or has expired.
+	 */
+	public synchronized NDExJob get(final String id) {
+		expire();
+		return jobs.get(id);
+	}
+
+	public synchronized NDExJob remove(final String id) {
+		return jobs.remove(id);
+	}
+
+	public synchronized int size() {
+		return jobs.size();
+	}
+
+	private void expire() {
+		final long now = System.currentTimeMillis();
+		jobs.values().removeIf(job -> job.isDone() && now - job.getFinishedAt() >= resultTtlMillis);
+	}
+}
@@ -0,0 +1,653 @@
+package org.cytoscape.cyndex2.internal.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import org.cytoscape.ci.model.CIError;
+import org.cytoscape.ci.model.CIResponse;
+import org.cytoscape.cyndex2.internal.CxTaskFactoryManager;
+import org.cytoscape.cyndex2.internal.CyServiceModule;
+import org.cytoscape.cyndex2.internal.rest.NdexClient;
+import org.cytoscape.cyndex2.internal.rest.SimpleNetworkSummary;
+import org.cytoscape.cyndex2.internal.rest.errors.ErrorBuilder;
+import org.cytoscape.cyndex2.internal.rest.errors.ErrorType;
+import org.cytoscape.cyndex2.internal.rest.parameter.NDExBasicSaveParameters;
+import org.cytoscape.cyndex2.internal.rest.parameter.NDExImportParameters;
+import org.cytoscape.cyndex2.internal.rest.parameter.NDExSaveParameters;
+import org.cytoscape.cyndex2.internal.rest.response.BatchImportResponse;
+import org.cytoscape.cyndex2.internal.rest.response.BatchSaveResponse;
+import org.cytoscape.cyndex2.internal.rest.response.SummaryResponse;
+import org.cytoscape.cyndex2.internal.util.AccessLayerCache;
+import org.cytoscape.cyndex2.internal.util.CxPreferences;
+import org.cytoscape.cyndex2.internal.util.HeadlessTaskExecutor;
+import org.cytoscape.cyndex2.internal.util.HeadlessTaskMonitor;
+import org.cytoscape.cyndex2.internal.util.MappedFileInputStream;
+import org.cytoscape.cyndex2.internal.util.NDExNetworkManager;
+import org.cytoscape.cyndex2.internal.util.UpdateUtil;
+import org.cytoscape.io.read.AbstractCyNetworkReader;
+import org.cytoscape.io.read.InputStreamTaskFactory;
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNetworkManager;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.subnetwork.CyRootNetwork;
+import org.cytoscape.model.subnetwork.CySubNetwork;
+import org.cytoscape.work.AbstractTask;
+import org.cytoscape.work.FinishStatus;
+import org.cytoscape.work.ObservableTask;
+import org.cytoscape.work.TaskIterator;
+import org.cytoscape.work.TaskMonitor;
+import org.cytoscape.work.TaskObserver;
+import org.cytoscape.work.swing.DialogTaskManager;
+import org.cytoscape.work.util.ListSingleSelection;
+import org.ndexbio.rest.client.NdexRestClient;
+import org.ndexbio.rest.client.NdexRestClientModelAccessLayer;
+
+/**
+ * In-process API for importing, saving and summarizing networks.
+ *
+ * The CyREST endpoints are thin adapters around this service, and the Swing
+ * dialogs call it directly instead of going through the local REST port.
+ * Methods block until the underlying tasks finish, so they must not be called
+ * on the event dispatch thread.
+ */
+public class NDExNetworkService {
+
+	private static final int UPDATE_ATTEMPTS = 4;
+	private static final long UPDATE_RETRY_MILLIS = 3000;
+
+	public static final int DEFAULT_BATCH_PARALLELISM = 4;
+	public static final int MAX_BATCH_PARALLELISM = 16;
+
+	private final CyNetworkManager networkManager;
+	private final NDExJobManager jobManager = new NDExJobManager();
+
+	public NDExNetworkService(final CyNetworkManager networkManager) {
+		this.networkManager = networkManager;
+	}
+
+	public NDExJobManager getJobManager() {
+		return jobManager;
+	}
+
+	private ErrorBuilder getErrorBuilder() {
+		return CyServiceModule.INSTANCE.getErrorBuilder();
+	}
+
+	/**
+	 * Imports a network from NDEx and returns the SUID of the new network.
+	 */
+	public Long importNetwork(final NDExImportParameters params) {
+		return importNetwork(new NDExImportTaskFactory(params), isHeadless(params.headless));
+	}
+
+	public Long importNetwork(final NDExImportTaskFactory importFactory, final boolean headless) {
+		execute(importFactory.createTaskIterator(), headless);
+		return importFactory.getSUID();
+	}
+
+	/**
+	 * Imports several networks, downloading and parsing up to {@code parallelism}
+	 * of them at a time. Registration with Cytoscape still happens one network at
+	 * a time on the event dispatch thread. Returns one result per network, in
+	 * order; a failed import does not stop the others.
+	 */
+	public List<BatchImportResponse.Result> importNetworks(final List<NDExImportParameters> paramsList,
+			final int parallelism) {
+		final HeadlessTaskExecutor executor = new HeadlessTaskExecutor(
+				Math.max(1, Math.min(parallelism, MAX_BATCH_PARALLELISM)));
+		try {
+			final List<NDExImportTaskFactory> factories = new ArrayList<>();
+			final List<Future<FinishStatus>> futures = new ArrayList<>();
+			for (final NDExImportParameters params : paramsList) {
+				final NDExImportTaskFactory importFactory = new NDExImportTaskFactory(params);
+				// Building the import task fetches the network summary, so it runs on the worker too
+				final TaskIterator iter = new TaskIterator(new AbstractTask() {
+					@Override
+					public void run(TaskMonitor taskMonitor) throws Exception {
+						importFactory.createTaskIterator();
+						getTaskIterator().append(importFactory.getImportTask());
+					}
+				});
+				factories.add(importFactory);
+				futures.add(executor.submit(iter, new HeadlessTaskMonitor(), null));
+			}
+
+			final List<BatchImportResponse.Result> results = new ArrayList<>();
+			for (int i = 0; i < futures.size(); i++) {
+				final String uuid = paramsList.get(i) == null ? null : paramsList.get(i).uuid;
+				results.add(getBatchResult(uuid, factories.get(i), futures.get(i)));
+			}
+			return results;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static BatchImportResponse.Result getBatchResult(final String uuid,
+			final NDExImportTaskFactory importFactory, final Future<FinishStatus> future) {
+		final String error = getBatchError(future);
+		return new BatchImportResponse.Result(uuid, error == null ? importFactory.getSUID() : null, error);
+	}
+
+	/**
+	 * Starts an import on a background worker and returns its job right away.
+	 * Parameter errors are still reported immediately.
+	 */
+	public NDExJob importNetworkAsync(final NDExImportTaskFactory importFactory) {
+		final TaskIterator iter = importFactory.createTaskIterator();
+		final NDExJob job = new NDExJob(NDExJob.TYPE_IMPORT);
+		job.setImportTask(importFactory.getImportTask());
+		return submitJob(job, iter, () -> job.setSuid(importFactory.getSUID()));
+	}
+
+	/**
+	 * Saves a network or collection to NDEx as a new entry and returns its UUID.
+	 */
+	public UUID saveNetwork(final NDExBasicSaveParameters params, final CyNetwork network) {
+		return saveNetwork(new NDExExportTaskFactory(params, false), network, isHeadless(params.headless));
+	}
+
+	public UUID saveNetwork(final NDExExportTaskFactory exportFactory, final CyNetwork network,
+			final boolean headless) {
+		execute(exportFactory.createTaskIterator(network), headless);
+
+		final UUID newUUID = exportFactory.getUUID();
+		if (newUUID == null) {
+			throw getErrorBuilder().buildException(Status.INTERNAL_SERVER_ERROR, "No UUID returned from NDEx API.",
+					ErrorType.INTERNAL);
+		}
+		return newUUID;
+	}
+
+	/**
+	 * Starts saving a network or collection on a background worker and returns its
+	 * job right away.
+	 */
+	public NDExJob saveNetworkAsync(final NDExExportTaskFactory exportFactory, final CyNetwork network) {
+		final TaskIterator iter = exportFactory.createTaskIterator(network);
+		final NDExJob job = new NDExJob(NDExJob.TYPE_EXPORT);
+		job.setSuid(network.getSUID());
+		return submitJob(job, iter, () -> {
+			final UUID uuid = exportFactory.getUUID();
+			if (uuid == null) {
+				throw new IllegalStateException("No UUID returned from NDEx API.");
+			}
+			job.setUuid(uuid.toString());
+		});
+	}
+
+	private NDExJob submitJob(final NDExJob job, final TaskIterator iter, final Runnable onSuccess) {
+		if (!jobManager.add(job)) {
+			throw getErrorBuilder().buildException(Status.SERVICE_UNAVAILABLE,
+					"Too many jobs are running. Try again later.", ErrorType.INTERNAL);
+		}
+		job.setFuture(CyServiceModule.getJobExecutor().submit(iter, job, new TaskObserver() {
+
+			@Override
+			public void taskFinished(ObservableTask task) {
+
+			}
+
+			@Override
+			public void allFinished(FinishStatus finishStatus) {
+				if (finishStatus.getType() == FinishStatus.Type.SUCCEEDED) {
+					try {
+						onSuccess.run();
+					} catch (RuntimeException e) {
+						job.fail(e);
+						return;
+					}
+				}
+				job.finish(finishStatus);
+			}
+		}));
+		return job;
+	}
+
+	/**
+	 * Overwrites the NDEx network this network was imported from or saved to, and
+	 * returns its UUID.
+	 */
+	public UUID updateNetwork(final NDExBasicSaveParameters params, final CyNetwork network) {
+		final UUID uuid = checkUpdatePossible(params, network);
+
+		if (!updateLoop(network, params)) {
+			final String message = "Could not update existing NDEx entry.  NDEx server did not accept your request.";
+			throw getErrorBuilder().buildException(Status.INTERNAL_SERVER_ERROR, message, ErrorType.INTERNAL);
+		}
+		return uuid;
+	}
+
+	private UUID checkUpdatePossible(final NDExBasicSaveParameters params, final CyNetwork network) {
+		try {
+			final NdexRestClient nc = AccessLayerCache.INSTANCE.getClient(params.username, params.password,
+					params.serverUrl);
+			final NdexRestClientModelAccessLayer mal = AccessLayerCache.INSTANCE.getAccessLayer(params.username,
+					params.password, params.serverUrl);
+			return UpdateUtil.updateIsPossibleHelper(network.getSUID(), network instanceof CyRootNetwork, nc, mal);
+		} catch (Exception e) {
+			final String message = "Unable to update network in NDEx. " + e.getMessage()
+					+ " Try saving as a new network.";
+			Logger.getLogger(NDExNetworkService.class.getName()).warning(message);
+			throw getErrorBuilder().buildException(Status.BAD_REQUEST, message, ErrorType.INVALID_PARAMETERS);
+		}
+	}
+
+	/**
+	 * Saves several networks or collections, writing and uploading up to
+	 * {@code parallelism} of them at a time. Each upload streams through a bounded
+	 * pipe, so memory in flight is limited to that many pipe buffers. NDEx
+	 * modification times are fetched in one batch call once all uploads are done.
+	 * Returns one result per SUID, in order; a failed save does not stop the
+	 * others.
+	 */
+	public List<BatchSaveResponse.Result> saveNetworks(final List<Long> suids, final NDExSaveParameters params,
+			final boolean update, final int parallelism) {
+		if (params.serverUrl == null) {
+			params.serverUrl = "http://ndexbio.org/v2";
+		}
+		final HeadlessTaskExecutor executor = new HeadlessTaskExecutor(
+				Math.max(1, Math.min(parallelism, MAX_BATCH_PARALLELISM)));
+		try {
+			final List<NDExExportTaskFactory> factories = new ArrayList<>();
+			final List<Future<FinishStatus>> futures = new ArrayList<>();
+			for (final Long suid : suids) {
+				final CyNetwork network = getNetwork(suid);
+				final NDExExportTaskFactory exportFactory = new NDExExportTaskFactory(copyOf(params), update);
+				exportFactory.setRecordSummary(false);
+				final TaskIterator iter = new TaskIterator(new AbstractTask() {
+					@Override
+					public void run(TaskMonitor taskMonitor) throws Exception {
+						if (network == null) {
+							throw new IllegalArgumentException(
+									"Network/Collection with SUID " + suid + " does not exist.");
+						}
+						if (update) {
+							checkUpdatePossible(params, network);
+						}
+						getTaskIterator().append(exportFactory.createTaskIterator(network));
+					}
+				});
+				factories.add(exportFactory);
+				futures.add(executor.submit(iter, new HeadlessTaskMonitor(), null));
+			}
+
+			final List<BatchSaveResponse.Result> results = new ArrayList<>();
+			final Map<UUID, CyNetwork> saved = new HashMap<>();
+			for (int i = 0; i < futures.size(); i++) {
+				final Long suid = suids.get(i);
+				final String error = getBatchError(futures.get(i));
+				final UUID uuid = error == null ? factories.get(i).getUUID() : null;
+				if (uuid != null) {
+					saved.put(uuid, getNetwork(suid));
+				}
+				results.add(new BatchSaveResponse.Result(suid, uuid == null ? null : uuid.toString(),
+						error != null ? error : uuid == null ? "No UUID returned from NDEx API." : null));
+			}
+
+			final Map<UUID, Timestamp> modificationTimes = getModificationTimes(params, saved.keySet());
+			for (final BatchSaveResponse.Result result : results) {
+				if (result.uuid == null) {
+					continue;
+				}
+				final UUID uuid = UUID.fromString(result.uuid);
+				final Timestamp modificationTime = modificationTimes.get(uuid);
+				if (modificationTime == null) {
+					result.error = "Saved, but the NDEx modification time could not be recorded.";
+				} else if (update) {
+					NDExNetworkManager.updateModificationTimeStamp(saved.get(uuid), modificationTime);
+				} else {
+					NDExNetworkManager.saveUUID(saved.get(uuid), uuid, modificationTime);
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static NDExSaveParameters copyOf(final NDExSaveParameters params) {
+		// Export tasks fill in defaults on their parameters, so each gets its own copy
+		final NDExSaveParameters copy = new NDExSaveParameters(params.username, params.password, params.serverUrl,
+				params.metadata == null ? null : new HashMap<>(params.metadata), false);
+		copy.isPublic = params.isPublic;
+		return copy;
+	}
+
+	private static String getBatchError(final Future<FinishStatus> future) {
+		try {
+			final FinishStatus status = future.get();
+			if (status.getType() == FinishStatus.Type.SUCCEEDED) {
+				return null;
+			}
+			if (status.getType() == FinishStatus.Type.CANCELLED) {
+				return "Task was cancelled.";
+			}
+			final Exception e = status.getException();
+			return e == null ? "Task failed." : getErrorMessage(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.cancel(true);
+			return "Interrupted while waiting for task.";
+		} catch (ExecutionException e) {
+			return getErrorMessage(e.getCause());
+		}
+	}
+
+	private static Map<UUID, Timestamp> getModificationTimes(final NDExBasicSaveParameters params,
+			final Collection<UUID> uuids) {
+		final Map<UUID, Timestamp> times = new HashMap<>();
+		if (uuids.isEmpty()) {
+			return times;
+		}
+		final NdexClient client = CyServiceModule.getNdexClient();
+		if (client != null) {
+			try {
+				final List<String> ids = new ArrayList<>();
+				uuids.forEach(uuid -> ids.add(uuid.toString()));
+				for (Map<String, ?> summary : client.getSummaries(params.serverUrl, ids, params.username,
+						params.password)) {
+					final Object id = summary.get("externalId");
+					final Object time = summary.get("modificationTime");
+					if (id != null && time instanceof Number) {
+						times.put(UUID.fromString(id.toString()), new Timestamp(((Number) time).longValue()));
+					}
+				}
+			} catch (RuntimeException e) {
+				Logger.getLogger(NDExNetworkService.class.getName()).log(Level.WARNING,
+						"Batch summary request failed, fetching summaries one at a time", e);
+			}
+		}
+		for (UUID uuid : uuids) {
+			if (times.containsKey(uuid)) {
+				continue;
+			}
+			try {
+				final NdexRestClientModelAccessLayer mal = AccessLayerCache.INSTANCE.getAccessLayer(params.username,
+						params.password, params.serverUrl);
+				times.put(uuid, mal.getNetworkSummaryById(uuid).getModificationTime());
+			} catch (Exception e) {
+				Logger.getLogger(NDExNetworkService.class.getName()).log(Level.WARNING,
+						"Failed to get summary of " + uuid, e);
+			}
+		}
+		return times;
+	}
+
+	private boolean updateLoop(final CyNetwork network, final NDExBasicSaveParameters params) {
+		for (int attempt = 1; attempt <= UPDATE_ATTEMPTS; attempt++) {
+			final NDExExportTaskFactory exportFactory = new NDExExportTaskFactory(params, true);
+			try {
+				// takes a subnetwork
+				execute(exportFactory.createTaskIterator(network), isHeadless(params.headless));
+				return true;
+			} catch (Exception e) {
+				Logger.getLogger(NDExNetworkService.class.getName()).log(Level.WARNING,
+						"Network update attempt " + attempt + " failed", e);
+				// A buffered upload is already retried by the export task itself
+				if (attempt == UPDATE_ATTEMPTS || exportFactory.isUploadRetried()) {
+					break;
+				}
+				try {
+					Thread.sleep(UPDATE_RETRY_MILLIS);
+				} catch (InterruptedException e1) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean isHeadless(final Boolean headless) {
+		return Boolean.TRUE.equals(headless);
+	}
+
+	/**
+	 * Reads a CX stream into new networks and returns the SUID of the first one.
+	 */
+	public Long importNetworkFromCx(final InputStream in) {
+		final File spoolDirectory = CxPreferences.getImportSpoolDirectory();
+		if (spoolDirectory == null) {
+			return readNetworkFromCx(in);
+		}
+		try (InputStream mapped = new MappedFileInputStream(MappedFileInputStream.spool(in, spoolDirectory), true)) {
+			return readNetworkFromCx(mapped);
+		} catch (IOException e) {
+			final String message = "Failed to buffer CX on disk: " + e.getMessage();
+			Logger.getLogger(NDExNetworkService.class.getName()).log(Level.SEVERE, message, e);
+			throw getErrorBuilder().buildException(Status.INTERNAL_SERVER_ERROR, message, ErrorType.INTERNAL);
+		}
+	}
+
+	private Long readNetworkFromCx(final InputStream in) {
+		final InputStreamTaskFactory taskFactory = CxTaskFactoryManager.INSTANCE.getCxReaderFactory();
+		final TaskIterator iter = taskFactory.createTaskIterator(in, null);
+
+		// Get task to get SUID
+		final AbstractCyNetworkReader reader = (AbstractCyNetworkReader) iter.next();
+		reader.setRootNetworkList(new ListSingleSelection<String>());
+		iter.append(reader);
+
+		execute(iter);
+
+		for (CyNetwork net : reader.getNetworks()) {
+			networkManager.addNetwork(net);
+		}
+		reader.buildCyNetworkView(reader.getNetworks()[0]);
+
+		return reader.getNetworks()[0].getSUID();
+	}
+
+	/**
+	 * Tasks that read a CX stream into new networks and build the view of the
+	 * first one, for running in a task manager. The caller closes the stream
+	 * once they finish.
+	 */
+	public TaskIterator createImportFromCxTasks(final InputStream in) {
+		final InputStreamTaskFactory taskFactory = CxTaskFactoryManager.INSTANCE.getCxReaderFactory();
+		final AbstractCyNetworkReader reader = (AbstractCyNetworkReader) taskFactory.createTaskIterator(in, null)
+				.next();
+		reader.setRootNetworkList(new ListSingleSelection<String>());
+		return new TaskIterator(reader, new AbstractTask() {
+			@Override
+			public void run(TaskMonitor taskMonitor) {
+				for (CyNetwork net : reader.getNetworks()) {
+					networkManager.addNetwork(net);
+				}
+				reader.buildCyNetworkView(reader.getNetworks()[0]);
+			}
+		});
+	}
+
+	/**
+	 * Finds a network or collection by SUID, or returns null if there is none.
+	 */
+	public CyNetwork getNetwork(final Long suid) {
+		if (suid == null) {
+			return null;
+		}
+		final CyNetwork network = networkManager.getNetwork(suid.longValue());
+		if (network != null) {
+			return network;
+		}
+		return getRootNetwork(suid);
+	}
+
+	private CyRootNetwork getRootNetwork(final Long suid) {
+		for (CyNetwork net : networkManager.getNetworkSet()) {
+			if (net instanceof CySubNetwork) {
+				final CyRootNetwork root = ((CySubNetwork) net).getRootNetwork();
+				if (root.getSUID().compareTo(suid) == 0) {
+					return root;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Summarizes the collection containing the given network or collection SUID, or
+	 * returns null if there is no such network.
+	 */
+	public SummaryResponse getSummary(final Long suid) {
+		final CyNetwork network = networkManager.getNetwork(suid.longValue());
+		if (network != null) {
+			return getSummary((CySubNetwork) network);
+		}
+		final CyRootNetwork root = getRootNetwork(suid);
+		return root == null ? null : buildSummary(root, null);
+	}
+
+	public SummaryResponse getSummary(final CySubNetwork network) {
+		return buildSummary(network.getRootNetwork(), network);
+	}
+
+	private static SummaryResponse buildSummary(final CyRootNetwork root, final CySubNetwork network) {
+		final SummaryResponse summary = new SummaryResponse();
+
+		// Network local table
+		final SimpleNetworkSummary rootSummary = buildNetworkSummary(root, root.getDefaultNetworkTable(),
+				root.getSUID());
+		if (network != null)
+			summary.currentNetworkSuid = network.getSUID();
+		summary.currentRootNetwork = rootSummary;
+		List<SimpleNetworkSummary> members = new ArrayList<>();
+		root.getSubNetworkList().stream().forEach(
+				subnet -> members.add(buildNetworkSummary(subnet, subnet.getDefaultNetworkTable(), subnet.getSUID())));
+		summary.members = members;
+
+		return summary;
+	}
+
+	private static SimpleNetworkSummary buildNetworkSummary(CyNetwork network, CyTable table, Long networkSuid) {
+
+		SimpleNetworkSummary summary = new SimpleNetworkSummary();
+		CyRow row = table.getRow(networkSuid);
+		summary.suid = network.getSUID();
+		// Get NAME from local table because this is always local.
+		summary.name = network.getTable(CyNetwork.class, CyNetwork.LOCAL_ATTRS).getRow(network.getSUID())
+				.get(CyNetwork.NAME, String.class);
+
+		UUID uuid = NDExNetworkManager.getUUID(network);
+		if (uuid != null)
+			summary.uuid = uuid.toString();
+
+		final Collection<CyColumn> columns = table.getColumns();
+		final Map<String, Object> props = new HashMap<>();
+
+		columns.stream().forEach(col -> props.put(col.getName(), row.get(col.getName(), col.getType())));
+		summary.props = props;
+
+		return summary;
+	}
+
+	/**
+	 * Runs the tasks behind a progress dialog and blocks until they have finished.
+	 */
+	public void execute(final TaskIterator iter) {
+		execute(iter, false);
+	}
+
+	/**
+	 * Runs the tasks and blocks until they have finished. Headless execution skips
+	 * the progress dialog and the event dispatch thread, for scripted callers.
+	 * Failed or cancelled tasks are reported as exceptions.
+	 */
+	public void execute(final TaskIterator iter, final boolean headless) {
+		final FinishStatus status;
+		try {
+			status = headless ? CyServiceModule.getTaskExecutor().execute(iter, null) : executeInDialog(iter);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw getErrorBuilder().buildException(Status.SERVICE_UNAVAILABLE, "Interrupted while waiting for task.",
+					ErrorType.INTERNAL);
+		}
+		checkFinishStatus(status);
+	}
+
+	private FinishStatus executeInDialog(final TaskIterator iter) throws InterruptedException {
+		final DialogTaskManager tm = CyServiceModule.getService(DialogTaskManager.class);
+
+		// A latch cannot miss the signal if the tasks finish before we start waiting
+		final CountDownLatch finished = new CountDownLatch(1);
+		final AtomicReference<FinishStatus> result = new AtomicReference<>();
+		final TaskObserver observer = new TaskObserver() {
+
+			@Override
+			public void taskFinished(ObservableTask task) {
+
+			}
+
+			@Override
+			public void allFinished(FinishStatus finishStatus) {
+				result.set(finishStatus);
+				finished.countDown();
+			}
+		};
+
+		try {
+			SwingUtilities.invokeAndWait(() -> tm.execute(iter, observer));
+		} catch (InvocationTargetException e) {
+			Logger.getLogger(NDExNetworkService.class.getName()).log(Level.WARNING, "invokeAndWait failed", e);
+			throw getErrorBuilder().buildException(Status.INTERNAL_SERVER_ERROR,
+					"Failed to start task: " + e.getCause().getMessage(), ErrorType.INTERNAL);
+		}
+		finished.await();
+		return result.get();
+	}
+
+	private void checkFinishStatus(final FinishStatus status) {
+		if (status == null || status.getType() == FinishStatus.Type.SUCCEEDED) {
+			return;
+		}
+		if (status.getType() == FinishStatus.Type.CANCELLED) {
+			throw getErrorBuilder().buildException(Status.INTERNAL_SERVER_ERROR, "Task was cancelled.",
+					ErrorType.INTERNAL);
+		}
+		final Exception e = status.getException();
+		Logger.getLogger(NDExNetworkService.class.getName()).log(Level.WARNING, "Task failed", e);
+		if (e instanceof WebApplicationException) {
+			throw (WebApplicationException) e;
+		}
+		throw getErrorBuilder().buildException(Status.INTERNAL_SERVER_ERROR,
+				"Task failed: " + (e == null ? "unknown error" : e.getMessage()), ErrorType.INTERNAL);
+	}
+
+	/**
+	 * Extracts a user-readable message from an exception thrown by this service.
+	 */
+	public static String getErrorMessage(final Throwable e) {
+		if (e instanceof WebApplicationException && ((WebApplicationException) e).getResponse() != null) {
+			final Object entity = ((WebApplicationException) e).getResponse().getEntity();
+			if (entity instanceof CIResponse) {
+				final List<CIError> errors = ((CIResponse<?>) entity).errors;
+				if (errors != null && !errors.isEmpty() && errors.get(0).message != null) {
+					return errors.get(0).message;
+				}
+			}
+		}
+		return e.getMessage();
+	}
+}
@@ -26,14 +26,21 @@
 
 package org.cytoscape.cyndex2.internal.task;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
 import java.util.UUID;
 
 import org.cytoscape.cyndex2.internal.CyServiceModule;
+import org.cytoscape.cyndex2.internal.rest.UploadUtil;
 import org.cytoscape.cyndex2.internal.rest.parameter.NDExBasicSaveParameters;
 import org.cytoscape.cyndex2.internal.util.NDExNetworkManager;
+import org.cytoscape.cyndex2.internal.util.NetworkSummaryCache;
+import org.cytoscape.cyndex2.internal.util.UrlUtils;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNetworkManager;
 import org.cytoscape.model.subnetwork.CyRootNetwork;
@@ -51,31 +58,73 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 public class NetworkExportTask extends AbstractTask implements ObservableTask{
 
-	private final InputStream cxStream;
+	private final CxSource cxSource;
+	private volatile InputStream cxStream;
+	private volatile UploadUtil upload;
 	private final NDExBasicSaveParameters params;
 	private final Long suid;
 	private final boolean isUpdate;
 	private final NdexRestClientModelAccessLayer mal;
 	private final boolean writeCollection;
 	
+	private static final int UPDATE_ATTEMPTS = 3;
+	private static final int HTTP_UNSUPPORTED_MEDIA_TYPE = 415;
+	private static final String CX_PART_NAME = "CXNetworkStream";
+
 	private UUID networkUUID = null;
+	private boolean recordSummary = true;
+	private boolean gzipUpload = false;
+	private volatile boolean uploadRetried = false;
 	
 	
 	public NetworkExportTask(NdexRestClientModelAccessLayer mal, Long suid, InputStream cxStream, NDExBasicSaveParameters params, boolean writeCollection, boolean isUpdate) throws JsonProcessingException, IOException, NdexException 
 			 {
+		this(mal, suid, () -> cxStream, params, writeCollection, isUpdate);
+	}
+
+	/**
+	 * Creates an export task whose CX is produced on demand, after the network
+	 * names have been updated, so that a streaming writer sees the final names.
+	 */
+	public NetworkExportTask(NdexRestClientModelAccessLayer mal, Long suid, CxSource cxSource, NDExBasicSaveParameters params, boolean writeCollection, boolean isUpdate) {
 		super();
 		this.params = params;
 		this.writeCollection = writeCollection;
 		this.isUpdate = isUpdate;
-		this.cxStream = cxStream;
+		this.cxSource = cxSource;
 		this.suid = suid;
 		this.mal = mal;
 	
 	}
 
+	/**
+	 * When false, the task does not fetch the NDEx summary after uploading, and
+	 * the caller is responsible for recording the UUID and modification time.
+	 */
+	public void setRecordSummary(final boolean recordSummary) {
+		this.recordSummary = recordSummary;
+	}
+
+	/**
+	 * When true, the CX is uploaded as a gzip-compressed multipart body in chunks.
+	 * If the server rejects the encoding, a repeatable source is sent again
+	 * uncompressed.
+	 */
+	public void setGzipUpload(final boolean gzipUpload) {
+		this.gzipUpload = gzipUpload;
+	}
+
 	@Override
 	public void cancel() {
 		super.cancel();
+		final UploadUtil upload = this.upload;
+		if (upload != null) {
+			upload.abort();
+		}
+		final InputStream cxStream = this.cxStream;
+		if (cxStream == null) {
+			return;
+		}
 		try {
 			cxStream.close();
 		} catch (IOException e) {
@@ -117,18 +166,24 @@ public class NetworkExportTask extends AbstractTask implements ObservableTask{
 			
 			final CyNetwork referenceNetwork = writeCollection ? rootNetwork : network;
 			if (!isUpdate) {
-				networkUUID = mal.createCXNetwork(cxStream);
-				NetworkSummary networkSummary = mal.getNetworkSummaryById(networkUUID);
-				
-				NDExNetworkManager.saveUUID(referenceNetwork, networkUUID, networkSummary.getModificationTime());
+				networkUUID = isStreamingUpload() ? createStreaming(taskMonitor)
+						: mal.createCXNetwork(openCxStream(taskMonitor));
+				if (recordSummary) {
+					NetworkSummary networkSummary = mal.getNetworkSummaryById(networkUUID);
+					NDExNetworkManager.saveUUID(referenceNetwork, networkUUID, networkSummary.getModificationTime());
+				}
 			} else {
 				networkUUID = NDExNetworkManager.getUUID(referenceNetwork);
 				if (networkUUID == null) {
 					throw new NetworkUpdateException("No UUID found for " + network);
 				}
-				mal.updateCXNetwork(networkUUID, cxStream);
-				NetworkSummary networkSummary = mal.getNetworkSummaryById(networkUUID);
-				NDExNetworkManager.updateModificationTimeStamp(referenceNetwork, networkSummary.getModificationTime());
+				updateCXNetwork(taskMonitor);
+				// Summaries and metadata cached before the update are now stale
+				NetworkSummaryCache.INSTANCE.invalidate(networkUUID);
+				if (recordSummary) {
+					NetworkSummary networkSummary = mal.getNetworkSummaryById(networkUUID);
+					NDExNetworkManager.updateModificationTimeStamp(referenceNetwork, networkSummary.getModificationTime());
+				}
 			}
 		} catch (NetworkUpdateException e) {
 			throw new NetworkExportException("Only networks imported from CyNDEx2 can be updated. Error: " + e.getMessage());
@@ -137,6 +192,8 @@ public class NetworkExportTask extends AbstractTask implements ObservableTask{
 		} catch (Exception e) {
 			throw new NetworkExportException("An error occurred loading the network to NDEx. Error: " + e.getMessage());
 		} finally {
+			closeCxStream();
+			cxSource.dispose();
 
 			if (cancelled) {
 				return;
@@ -155,6 +212,182 @@ public class NetworkExportTask extends AbstractTask implements ObservableTask{
 		
 	}
 
+	private InputStream openCxStream(final TaskMonitor taskMonitor) throws IOException {
+		closeCxStream();
+		// A buffered source knows its length only once it has been written
+		final InputStream in = cxSource.open();
+		final long length = cxSource.length();
+		cxStream = length > 0 ? new UploadProgressStream(in, length, taskMonitor) : in;
+		return cxStream;
+	}
+
+	private void updateCXNetwork(final TaskMonitor taskMonitor) throws Exception {
+		// Updates are idempotent, so a buffered source can be sent again after an I/O failure
+		final int attempts = cxSource.isRepeatable() ? UPDATE_ATTEMPTS : 1;
+		for (int attempt = 1;; attempt++) {
+			try {
+				if (isStreamingUpload()) {
+					updateStreaming(taskMonitor);
+				} else {
+					mal.updateCXNetwork(networkUUID, openCxStream(taskMonitor));
+				}
+				return;
+			} catch (IOException e) {
+				if (attempt >= attempts || cancelled) {
+					throw e;
+				}
+				Logger.getLogger(NetworkExportTask.class.getName()).log(Level.WARNING,
+						"Upload of " + networkUUID + " failed, retrying (" + attempt + "/" + attempts + ")", e);
+				uploadRetried = true;
+			}
+		}
+	}
+
+	/**
+	 * True if the CX is sent with {@link UploadUtil}, which streams the body with
+	 * a Content-Length when the source length is known, and in chunks otherwise.
+	 * Without a server URL the access layer uploads it instead.
+	 */
+	private boolean isStreamingUpload() {
+		return params.serverUrl != null;
+	}
+
+	private List<String> upload(final String method, final String path, final boolean gzip,
+			final TaskMonitor taskMonitor) throws IOException {
+		String baseRoute = UrlUtils.getBaseRoute(params.serverUrl);
+		if (baseRoute.endsWith("/")) {
+			baseRoute = baseRoute.substring(0, baseRoute.length() - 1);
+		}
+		final String authentication = params.username == null || params.password == null ? null
+				: "Basic " + Base64.getEncoder().encodeToString(
+						(params.username + ":" + params.password).getBytes(StandardCharsets.UTF_8));
+		upload = new UploadUtil(baseRoute + path, method, "UTF-8", authentication, gzip);
+		final InputStream in = openCxStream(taskMonitor);
+		upload.addFilePart(CX_PART_NAME, in, cxSource.length());
+		return upload.finish();
+	}
+
+	private List<String> uploadStreaming(final String method, final String path, final TaskMonitor taskMonitor)
+			throws IOException {
+		try {
+			return upload(method, path, gzipUpload, taskMonitor);
+		} catch (UploadUtil.HttpStatusException e) {
+			if (!gzipUpload || !canRetryUncompressed(e)) {
+				throw e;
+			}
+			gzipUpload = false;
+			return upload(method, path, false, taskMonitor);
+		}
+	}
+
+	private UUID createStreaming(final TaskMonitor taskMonitor) throws IOException {
+		final List<String> response = uploadStreaming("POST", "/network", taskMonitor);
+		// NDEx answers with the URL of the new network
+		final String location = response == null ? "" : String.join("", response).trim().replace("\"", "");
+		return UUID.fromString(location.substring(location.lastIndexOf('/') + 1));
+	}
+
+	private void updateStreaming(final TaskMonitor taskMonitor) throws IOException {
+		uploadStreaming("PUT", "/network/" + networkUUID, taskMonitor);
+	}
+
+	/**
+	 * True if the server refused the compressed body and the CX can be sent again.
+	 */
+	private boolean canRetryUncompressed(final UploadUtil.HttpStatusException e) {
+		if (e.getStatus() != HTTP_UNSUPPORTED_MEDIA_TYPE || !cxSource.isRepeatable()) {
+			return false;
+		}
+		Logger.getLogger(NetworkExportTask.class.getName()).warning(
+				"Server rejected gzip-compressed upload, sending " + suid + " uncompressed");
+		return true;
+	}
+
+	private void closeCxStream() {
+		final InputStream cxStream = this.cxStream;
+		if (cxStream == null) {
+			return;
+		}
+		try {
+			// Releases a streaming writer that is still waiting on an aborted upload
+			cxStream.close();
+		} catch (IOException e) {
+			Logger.getLogger(NetworkExportTask.class.getName()).log(Level.FINE, "Failed to close CX stream", e);
+		}
+	}
+
+	/**
+	 * Supplies the CX stream to upload.
+	 */
+	public interface CxSource {
+		InputStream open() throws IOException;
+
+		/**
+		 * Exact size of the stream in bytes, or -1 if unknown. Only valid after
+		 * {@link #open()}.
+		 */
+		default long length() {
+			return -1;
+		}
+
+		/**
+		 * True if {@link #open()} may be called again to resend the same bytes.
+		 */
+		default boolean isRepeatable() {
+			return false;
+		}
+
+		/**
+		 * Called once the upload has finished or failed.
+		 */
+		default void dispose() {
+		}
+	}
+
+	/**
+	 * Maps bytes read by the uploader onto the task progress between 0.5 and 0.9.
+	 */
+	private static class UploadProgressStream extends FilterInputStream {
+
+		private final long length;
+		private final TaskMonitor taskMonitor;
+		private long read;
+		private int lastPercent = -1;
+
+		UploadProgressStream(final InputStream in, final long length, final TaskMonitor taskMonitor) {
+			super(in);
+			this.length = length;
+			this.taskMonitor = taskMonitor;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int b = super.read();
+			if (b != -1) {
+				advance(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int n = super.read(b, off, len);
+			if (n > 0) {
+				advance(n);
+			}
+			return n;
+		}
+
+		private void advance(final int n) {
+			read += n;
+			final int percent = (int) (read * 100 / length);
+			if (percent != lastPercent) {
+				lastPercent = percent;
+				taskMonitor.setProgress(.5 + .4 * Math.min(1.0, (double) read / length));
+			}
+		}
+	}
+
 	public class NetworkExportException extends RuntimeException {
 		/**
 		 * 
@@ -193,4 +426,12 @@ public class NetworkExportTask extends AbstractTask implements ObservableTask{
 		return networkUUID;
 	}
 
+	/**
+	 * True if the upload failed and was sent again from the same buffered CX, in
+	 * which case callers should not retry the whole export on top of it.
+	 */
+	public boolean isUploadRetried() {
+		return uploadRetried;
+	}
+
 }
@@ -26,23 +26,51 @@
 
 package org.cytoscape.cyndex2.internal.task;
 
+import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.SwingUtilities;
 
+import org.cytoscape.application.CyApplicationManager;
 import org.cytoscape.cyndex2.internal.CxTaskFactoryManager;
 import org.cytoscape.cyndex2.internal.CyServiceModule;
+import org.cytoscape.cyndex2.internal.rest.NdexClient;
+import org.cytoscape.cyndex2.internal.util.BoundedPipe;
+import org.cytoscape.cyndex2.internal.util.CartesianLayoutStore;
+import org.cytoscape.cyndex2.internal.util.CartesianLayoutTap;
+import org.cytoscape.cyndex2.internal.util.CxCache;
+import org.cytoscape.cyndex2.internal.util.CxPreferences;
 import org.cytoscape.cyndex2.internal.util.HeadlessTaskMonitor;
+import org.cytoscape.cyndex2.internal.util.MappedFileInputStream;
 import org.cytoscape.cyndex2.internal.util.NDExNetworkManager;
+import org.cytoscape.cyndex2.internal.util.NetworkQuery;
+import org.cytoscape.cyndex2.internal.util.ResumableDownload;
+import org.cytoscape.cyndex2.internal.util.SegmentedDownload;
 import org.cytoscape.io.read.AbstractCyNetworkReader;
 import org.cytoscape.io.read.InputStreamTaskFactory;
-import org.cytoscape.io.write.CyWriter;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNetworkManager;
+import org.cytoscape.model.CyNode;
 import org.cytoscape.model.subnetwork.CySubNetwork;
+import org.cytoscape.view.layout.CyLayoutAlgorithm;
+import org.cytoscape.view.layout.CyLayoutAlgorithmManager;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.CyNetworkViewManager;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.cytoscape.work.AbstractTask;
@@ -55,23 +83,63 @@ import org.ndexbio.rest.client.NdexRestClientModelAccessLayer;
 
 public class NetworkImportTask extends AbstractTask implements ObservableTask {
 
+	// Networks at least this large are downloaded on a separate thread while being parsed
+	private static final long READ_AHEAD_MIN_BYTES = 16L * 1024 * 1024;
+	private static final int READ_AHEAD_MIN_EDGES = 100000;
+	// Typical CX sizes including attributes, for networks whose file size is unknown
+	private static final long ESTIMATED_BYTES_PER_NODE = 80;
+	private static final long ESTIMATED_BYTES_PER_EDGE = 100;
+	private static final List<String> REQUIRED_ASPECTS = Arrays.asList("nodes", "edges");
+
 	final NdexRestClientModelAccessLayer mal;
 	final NetworkSummary networkSummary;
 	private UUID uuid = null;
 	private Long suid = null;
 	private String accessKey = null;
-	protected InputStream cxStream;
+	protected volatile InputStream cxStream;
 	private Boolean createView = null;
+	private CxCache cxCache = null;
+	// Download files of running imports
+	private static final Set<Path> ACTIVE_PARTS = ConcurrentHashMap.newKeySet();
+	private Path activePart;
+	private NdexClient ndexClient = null;
+	private String serverUrl = null;
+	private String username = null;
+	private String password = null;
+	private File spoolDirectory = null;
+	private int downloadSegments = 1;
+	private Set<String> aspects = null;
+	private NetworkQuery query = null;
+	private volatile Runnable downloadCanceller = null;
+	private int collectionParallelism = 1;
+	private boolean deferView = false;
+	private boolean viewDeferred = false;
+	private CartesianLayoutStore layout = null;
+
+	/**
+	 * Stage of the import, for callers that poll its progress.
+	 */
+	public enum Phase {
+		DOWNLOAD, PARSE, REGISTER, VIEW, DONE
+	}
+
+	private volatile Phase phase = null;
+	private final AtomicLong bytesRead = new AtomicLong();
 
 	public NetworkImportTask(final NdexRestClientModelAccessLayer mal, UUID uuid, String accessKey, final Boolean createView)
 			throws IOException, NdexException {
+		this(mal, uuid, accessKey, createView, mal.getNetworkSummaryById(uuid, accessKey));
+	}
+
+	/**
+	 * Imports a network whose summary the caller has already fetched.
+	 */
+	public NetworkImportTask(final NdexRestClientModelAccessLayer mal, UUID uuid, String accessKey, final Boolean createView,
+			final NetworkSummary networkSummary) {
 		super();
 		this.uuid = uuid;
-		/*
-		
-		*/
 		this.mal = mal;
-		networkSummary = mal.getNetworkSummaryById(uuid, accessKey);
+		this.networkSummary = networkSummary;
 		this.accessKey = accessKey;
 		cxStream = null;
 		this.createView = createView;
@@ -85,44 +153,63 @@ public class NetworkImportTask extends AbstractTask implements ObservableTask {
 		// boolean success = true; // selectedServer.check(mal);
 		// if (success) {
 		try {
+			phase = Phase.DOWNLOAD;
 			taskMonitor.setStatusMessage("Fetching network from NDEx");
-			if (cxStream == null) {
-				UUID id = networkSummary.getExternalId();
-				if (accessKey == null)
-					cxStream = mal.getNetworkAsCXStream(id);
-				else
-					cxStream = mal.getNetworkAsCXStream(id, accessKey);
-			}
-			if (cxStream == null) {
-				throw new NdexException("Unable to get network as CX stream");
+			if (cxStream == null && spoolDirectory != null) {
+				cxStream = openMappedStream(taskMonitor);
+			} else {
+				if (cxStream == null) {
+					cxStream = openCachedStream();
+					if (cxStream != null) {
+						taskMonitor.setStatusMessage("Reading network from local cache");
+					}
+				}
+				if (cxStream == null) {
+					cxStream = download();
+					if (getCacheKey() != null) {
+						cxStream = cxCache.cacheWhileReading(getCacheKey(), cxStream,
+								networkSummary.getCxFileSize() > 0 ? networkSummary.getCxFileSize() : -1);
+					}
+				}
+				cxStream = new ByteCountingStream(cxStream, bytesRead);
+				if (isLargeNetwork()) {
+					// Let the download run ahead of the parser, bounded by the pipe capacity
+					cxStream = BoundedPipe.readAhead(cxStream, "CyNDEx-2 CX download " + uuid);
+				}
 			}
 			taskMonitor.setProgress(.4);
 			
 			final InputStreamTaskFactory cxReaderFactory = 
 					CxTaskFactoryManager.INSTANCE.getCxReaderFactory();
 			
+			phase = Phase.PARSE;
 			taskMonitor.setStatusMessage("Importing network with CX Reader");
-			TaskIterator ti = cxReaderFactory.createTaskIterator(cxStream, null);
+			viewDeferred = isLayoutKept() && isViewWanted();
+			InputStream readerStream = cxStream;
+			CartesianLayoutTap tap = null;
+			if (isLayoutKept()) {
+				// Keep the layout for the view that is created later
+				tap = new CartesianLayoutTap(readerStream, "CyNDEx-2 CX layout " + uuid,
+						(int) Math.min(Integer.MAX_VALUE, networkSummary.getNodeCount()));
+				readerStream = tap;
+			}
+			TaskIterator ti = cxReaderFactory.createTaskIterator(readerStream, null);
 			AbstractCyNetworkReader task = (AbstractCyNetworkReader) ti.next();
-			SwingUtilities.invokeAndWait(new Runnable() {
-				
-				@Override
-				public void run() {
-					try {
-						final Class<? extends AbstractCyNetworkReader> cxReader = task.getClass();
-						
-						try {
-							Method setCreateViewMethod = cxReader.getMethod("setCreateView", Boolean.class);
-							setCreateViewMethod.invoke(task, createView);
-						} catch(java.lang.NoSuchMethodException e) {
-							Logger.getLogger(NetworkImportTask.class.getName()).warning("Unable to explicitly set view creation. Make sure a current version of the CX Support app is installed.");
-						}
-						task.run(new HeadlessTaskMonitor());
-					} catch (Exception e) {
-						Logger.getLogger(NetworkImportTask.class.getName()).log(Level.WARNING, "Network import task failed", e);
-					}
+			setCreateView(task, getReaderCreateView());
+			
+			// Parse on the task thread; only registration below needs the EDT
+			try {
+				task.run(new HeadlessTaskMonitor());
+			} finally {
+				if (tap != null) {
+					// Also releases the collector if parsing failed
+					layout = tap.getStore();
 				}
-			});
+				if (cxStream instanceof MappedFileInputStream) {
+					// Releases the mapping and removes a spooled download
+					cxStream.close();
+				}
+			}
 			
 			if (cancelled) {
 				return;
@@ -130,25 +217,35 @@ public class NetworkImportTask extends AbstractTask implements ObservableTask {
 			
 			taskMonitor.setProgress(.7);
 			
-			CyNetworkManager network_manager = CyServiceModule.getService(CyNetworkManager.class);
-			int i = 1;
-			for (CyNetwork network : task.getNetworks()) {
-				if (cancelled) {
-					return;
+			if (layout != null && !resolveLayout(task)) {
+				Logger.getLogger(NetworkImportTask.class.getName()).info("Nodes of network " + uuid
+						+ " do not match its CX nodes; its layout is not kept");
+				layout = null;
+			}
+			if (layout != null && !viewDeferred) {
+				// Applied when a view is created later
+				for (CyNetwork network : task.getNetworks()) {
+					DeferredViewManager.INSTANCE.keep(network, layout);
 				}
-				taskMonitor.setStatusMessage(String.format("Registering network %s/%s...", i, task.getNetworks().length));
-				network_manager.addNetwork(network);
-				task.buildCyNetworkView(network);
-				i++;
 			}
+			
+			registerNetworks(task, taskMonitor);
+			
+			if (cancelled) {
+				return;
+			}
+			phase = Phase.DONE;
 			taskMonitor.setProgress(.9);
 			final CyNetwork network = task.getNetworks()[0];
 			suid = network.getSUID();
 			
-			if (networkSummary.getSubnetworkIds().size() > 0) {	
-				NDExNetworkManager.saveUUID(((CySubNetwork)network).getRootNetwork(), uuid, networkSummary.getModificationTime());
-			} else {
-				NDExNetworkManager.saveUUID(network, uuid, networkSummary.getModificationTime());
+			// A query result is a subgraph and must not be saved back over the network
+			if (query == null) {
+				if (networkSummary.getSubnetworkIds().size() > 0) {	
+					NDExNetworkManager.saveUUID(((CySubNetwork)network).getRootNetwork(), uuid, networkSummary.getModificationTime());
+				} else {
+					NDExNetworkManager.saveUUID(network, uuid, networkSummary.getModificationTime());
+				}
 			}
 			
 		} catch (IOException ex) {
@@ -159,14 +256,452 @@ public class NetworkImportTask extends AbstractTask implements ObservableTask {
 			throw new NetworkImportException("Unable to read network from NDEx: " + e.getMessage());
 		} catch(Exception e) {
 			throw new RuntimeException("Failed to import: " + e.getMessage());
+		} finally {
+			releasePart();
+		}
+	}
+	
+	/**
+	 * Server and credentials the access layer was created with, for downloads
+	 * through the shared NdexClient and for cache keys.
+	 */
+	public void setServer(final String serverUrl, final String username, final String password) {
+		this.serverUrl = serverUrl;
+		this.username = username;
+		this.password = password;
+	}
+
+	/**
+	 * Serves unchanged networks from the given on-disk cache instead of
+	 * downloading them again.
+	 */
+	public void setCxCache(final CxCache cxCache) {
+		this.cxCache = cxCache;
+	}
+
+	/**
+	 * Downloads the CX through the given client, which negotiates gzip
+	 * compression, instead of through the access layer.
+	 */
+	public void setNdexClient(final NdexClient ndexClient) {
+		this.ndexClient = ndexClient;
+	}
+	
+	/**
+	 * Downloads the whole network to the given directory before parsing it from a
+	 * memory mapping, instead of parsing while the download is in progress. With
+	 * an NdexClient the download is resumable.
+	 */
+	public void setSpoolDirectory(final File spoolDirectory) {
+		this.spoolDirectory = spoolDirectory;
+	}
+	
+	/**
+	 * Downloads spooled networks over the given number of connections at once;
+	 * 1, the default, uses a single connection.
+	 */
+	public void setDownloadSegments(final int downloadSegments) {
+		this.downloadSegments = downloadSegments;
+	}
+	
+	/**
+	 * Above 1, registers all subnetworks of a collection before any of their
+	 * views is built, each view in its own turn on the EDT. 1, the default,
+	 * registers each subnetwork together with its view.
+	 */
+	public void setCollectionParallelism(final int collectionParallelism) {
+		this.collectionParallelism = collectionParallelism;
+	}
+	
+	/**
+	 * Registers a large network without a view and creates the view in the
+	 * background once the network is focused. The CX layout is kept by SUID
+	 * until then, or until a view is created later for a network imported
+	 * without one.
+	 */
+	public void setDeferView(final boolean deferView) {
+		this.deferView = deferView;
+	}
+	
+	/**
+	 * Downloads only the given CX aspects instead of the whole network. Nodes and
+	 * edges are always included. Needs an NdexClient; without one, or when null,
+	 * all aspects are downloaded.
+	 */
+	public void setAspects(final Collection<String> aspects) {
+		if (aspects == null) {
+			this.aspects = null;
+			return;
+		}
+		this.aspects = new LinkedHashSet<>(REQUIRED_ASPECTS);
+		this.aspects.addAll(aspects);
+	}
+	
+	/**
+	 * Imports the result of a neighborhood or interconnect query on the network
+	 * instead of the network itself. The result is not linked to the NDEx
+	 * network, so it can never be saved over it.
+	 */
+	public void setQuery(final NetworkQuery query) {
+		this.query = query;
+	}
+	
+	private boolean isAspectSelective() {
+		return aspects != null && ndexClient != null && serverUrl != null;
+	}
+	
+	private InputStream download() throws IOException, NdexException {
+		final UUID id = networkSummary.getExternalId();
+		if (query != null) {
+			if (ndexClient == null || serverUrl == null) {
+				throw new NdexException("Network queries are not supported for this session");
+			}
+			return ndexClient.queryNetwork(serverUrl, id.toString(), accessKey, username, password, query);
+		}
+		if (isAspectSelective()) {
+			return ndexClient.getNetworkAspectsAsCXStream(serverUrl, id.toString(), accessKey, username, password,
+					aspects);
+		}
+		if (ndexClient != null && serverUrl != null) {
+			return ndexClient.getNetworkAsCXStream(serverUrl, id.toString(), accessKey, username, password);
+		}
+		if (aspects != null) {
+			Logger.getLogger(NetworkImportTask.class.getName())
+					.info("Aspects can only be selected with an NdexClient; downloading the whole network");
+		}
+		final InputStream in = accessKey == null ? mal.getNetworkAsCXStream(id)
+				: mal.getNetworkAsCXStream(id, accessKey);
+		if (in == null) {
+			throw new NdexException("Unable to get network as CX stream");
+		}
+		return in;
+	}
+	
+	private InputStream openMappedStream(final TaskMonitor taskMonitor) throws IOException, NdexException {
+		final String key = getCacheKey();
+		final File cached = key == null ? null : cxCache.openFile(key);
+		if (cached != null) {
+			taskMonitor.setStatusMessage("Reading network from local cache");
+			bytesRead.set(cached.length());
+			return new MappedFileInputStream(cached.toPath(), false);
+		}
+		final Path spooled;
+		if (ndexClient != null && serverUrl != null && !isAspectSelective() && query == null) {
+			spooled = downloadResumable(taskMonitor);
+		} else {
+			// Assigned first so that cancel() can abort the download
+			cxStream = new ByteCountingStream(download(), bytesRead);
+			spooled = MappedFileInputStream.spool(cxStream, spoolDirectory);
+		}
+		final File stored = key == null ? null : cxCache.store(key, spooled);
+		if (stored != null) {
+			return new MappedFileInputStream(stored.toPath(), false);
 		}
+		return new MappedFileInputStream(spooled, true);
 	}
 	
+	/**
+	 * Downloads to a file named after the network version, so that a download
+	 * that failed or was cancelled is resumed when the network is imported again.
+	 * Large networks are fetched over several connections unless there is such a
+	 * download to resume.
+	 */
+	private Path downloadResumable(final TaskMonitor taskMonitor) throws IOException {
+		final String version = networkSummary.getModificationTime() == null ? "0"
+				: Long.toString(networkSummary.getModificationTime().getTime());
+		final Path part = claimPart(uuid + "-" + version);
+		final long expected = networkSummary.getCxFileSize() > 0 ? networkSummary.getCxFileSize() : -1;
+		final ResumableDownload download = ndexClient.newDownload(serverUrl, uuid.toString(), accessKey, username,
+				password, part, expected);
+		download.setProgressListener((bytes, total) -> bytesRead.set(bytes));
 
+		if (downloadSegments > 1 && !download.hasCheckpoint()) {
+			final SegmentedDownload segmented = ndexClient.newSegmentedDownload(serverUrl, uuid.toString(), accessKey,
+					username, password, part, expected, downloadSegments);
+			segmented.setProgressListener((bytes, total) -> bytesRead.set(bytes));
+			downloadCanceller = segmented::cancel;
+			try {
+				if (cancelled) {
+					segmented.cancel();
+				}
+				taskMonitor.setStatusMessage("Downloading network over " + downloadSegments + " connections");
+				final Path file = segmented.run();
+				taskMonitor.setStatusMessage("Download complete, reading network");
+				return file;
+			} catch (InterruptedIOException e) {
+				throw e;
+			} catch (IOException e) {
+				Logger.getLogger(NetworkImportTask.class.getName()).log(Level.INFO,
+						"Segmented download failed, continuing over a single connection", e);
+			} finally {
+				downloadCanceller = null;
+			}
+		}
+
+		downloadCanceller = download::cancel;
+		try {
+			if (cancelled) {
+				download.cancel();
+			}
+			final Path file = download.run();
+			taskMonitor.setStatusMessage("Download complete, reading network");
+			return file;
+		} finally {
+			downloadCanceller = null;
+		}
+	}
+	
+	/**
+	 * Reserves a download file for this import. An import of the same network
+	 * that is still running keeps its file, and this one gets a numbered file of
+	 * its own, which is resumed in turn if it is left behind.
+	 */
+	private Path claimPart(final String name) {
+		for (int i = 0;; i++) {
+			final Path part = new File(spoolDirectory, (i == 0 ? name : name + "-" + i) + ResumableDownload.PART_SUFFIX).toPath()
+					.toAbsolutePath();
+			if (ACTIVE_PARTS.add(part)) {
+				activePart = part;
+				return part;
+			}
+		}
+	}
+	
+	private void releasePart() {
+		if (activePart != null) {
+			ACTIVE_PARTS.remove(activePart);
+			activePart = null;
+		}
+	}
+	
+	private String getCacheKey() {
+		if (cxCache == null || !cxCache.isEnabled() || serverUrl == null || isAspectSelective() || query != null
+				|| networkSummary.getModificationTime() == null) {
+			return null;
+		}
+		return CxCache.getKey(serverUrl, uuid.toString(), networkSummary.getModificationTime().getTime());
+	}
+	
+	private InputStream openCachedStream() {
+		final String key = getCacheKey();
+		return key == null ? null : cxCache.open(key);
+	}
+	
+	private boolean isLargeNetwork() {
+		return networkSummary.getCxFileSize() >= READ_AHEAD_MIN_BYTES
+				|| networkSummary.getEdgeCount() >= READ_AHEAD_MIN_EDGES;
+	}
+	
+	/**
+	 * True when the CX layout of a large network is kept for a view created
+	 * after the import. Smaller networks keep the view built by the CX reader,
+	 * with its visual properties.
+	 */
+	private boolean isLayoutKept() {
+		return deferView && CxPreferences.isLargeNetwork(networkSummary.getNodeCount(), networkSummary.getEdgeCount(),
+				networkSummary.getCxFileSize());
+	}
+	
+	private boolean isViewWanted() {
+		return createView != null ? createView : CxPreferences.getCreateView() == CxPreferences.CreateViewEnum.ALWAYS;
+	}
+	
+	/**
+	 * Whether the CX reader should build views, or null to let it follow
+	 * cx.createView. The reader does not know the adaptive mode, so it is
+	 * resolved here from the predicted cost of this network.
+	 */
+	private Boolean getReaderCreateView() {
+		if (viewDeferred) {
+			return Boolean.FALSE;
+		}
+		if (createView == null && CxPreferences.getCreateView() == CxPreferences.CreateViewEnum.ADAPTIVE) {
+			return !CxPreferences.isLargeNetwork(networkSummary.getNodeCount(), networkSummary.getEdgeCount(),
+					networkSummary.getCxFileSize());
+		}
+		return createView;
+	}
+	
+	/**
+	 * In adaptive layout mode, lays out the views the CX reader left without a
+	 * layout because they are above cx.largeLayoutThreshold, if they are
+	 * predicted to be laid out quickly.
+	 */
+	private void applyAdaptiveLayout(final List<CyNetworkView> views) {
+		if (CxPreferences.getApplyLayout() != CxPreferences.ApplyLayoutEnum.ADAPTIVE || networkSummary.getHasLayout()) {
+			return;
+		}
+		final CyLayoutAlgorithm algorithm = CyServiceModule.getService(CyLayoutAlgorithmManager.class)
+				.getDefaultLayout();
+		for (CyNetworkView view : views) {
+			final CyNetwork network = view.getModel();
+			if (network.getNodeCount() >= CxPreferences.getLargeLayoutThreshold()
+					&& CxPreferences.isLayoutApplied(network.getNodeCount(), network.getEdgeCount())) {
+				insertTasksAfterCurrentTask(algorithm.createTaskIterator(view, algorithm.createLayoutContext(),
+						CyLayoutAlgorithm.ALL_NODE_VIEWS, null));
+			}
+		}
+	}
+	
+	/**
+	 * Rekeys the kept layout by the SUIDs of all nodes the reader created,
+	 * checking them against the CX node names. Subnetworks of a collection share
+	 * the nodes of their root network.
+	 */
+	private boolean resolveLayout(final AbstractCyNetworkReader task) {
+		final CyNetwork first = task.getNetworks()[0];
+		final List<CyNode> nodes = first instanceof CySubNetwork
+				? ((CySubNetwork) first).getRootNetwork().getNodeList()
+				: first.getNodeList();
+		final long[] suids = new long[nodes.size()];
+		for (int i = 0; i < suids.length; i++) {
+			suids[i] = nodes.get(i).getSUID();
+		}
+		Arrays.sort(suids);
+		final String[] names = new String[suids.length];
+		for (CyNetwork network : task.getNetworks()) {
+			for (CyNode node : network.getNodeList()) {
+				final int index = Arrays.binarySearch(suids, node.getSUID());
+				if (index >= 0 && names[index] == null) {
+					names[index] = network.getRow(node).get(CyNetwork.NAME, String.class);
+				}
+			}
+		}
+		return layout.resolve(suids, names);
+	}
+	
+	private void setCreateView(final AbstractCyNetworkReader task, final Boolean createView) throws ReflectiveOperationException {
+		final Class<? extends AbstractCyNetworkReader> cxReader = task.getClass();
+		
+		try {
+			Method setCreateViewMethod = cxReader.getMethod("setCreateView", Boolean.class);
+			setCreateViewMethod.invoke(task, createView);
+		} catch(java.lang.NoSuchMethodException e) {
+			Logger.getLogger(NetworkImportTask.class.getName()).warning("Unable to explicitly set view creation. Make sure a current version of the CX Support app is installed.");
+		}
+	}
+	
+	private void registerNetworks(final AbstractCyNetworkReader task, final TaskMonitor taskMonitor) throws InvocationTargetException, InterruptedException {
+		if (viewDeferred) {
+			registerDeferred(task, taskMonitor);
+			return;
+		}
+		if (collectionParallelism > 1 && task.getNetworks().length > 1) {
+			registerCollection(task, taskMonitor);
+			return;
+		}
+		final List<CyNetworkView> views = new ArrayList<>();
+		final Runnable registration = new Runnable() {
+			
+			@Override
+			public void run() {
+				CyNetworkManager network_manager = CyServiceModule.getService(CyNetworkManager.class);
+				int i = 1;
+				for (CyNetwork network : task.getNetworks()) {
+					if (cancelled) {
+						return;
+					}
+					taskMonitor.setStatusMessage(String.format("Registering network %s/%s...", i, task.getNetworks().length));
+					phase = Phase.REGISTER;
+					network_manager.addNetwork(network);
+					phase = Phase.VIEW;
+					final CyNetworkView view = task.buildCyNetworkView(network);
+					if (view != null) {
+						views.add(view);
+					}
+					i++;
+				}
+			}
+		};
+		
+		runOnEdt(registration);
+		applyAdaptiveLayout(views);
+	}
+	
+	/**
+	 * Registers the networks without views. Each view is created in the
+	 * background when its network becomes the current one, starting with the
+	 * first network right away.
+	 */
+	private void registerDeferred(final AbstractCyNetworkReader task, final TaskMonitor taskMonitor) throws InvocationTargetException, InterruptedException {
+		final CyNetwork[] networks = task.getNetworks();
+		phase = Phase.REGISTER;
+		taskMonitor.setStatusMessage(String.format("Registering %s networks...", networks.length));
+		runOnEdt(() -> {
+			final CyNetworkManager network_manager = CyServiceModule.getService(CyNetworkManager.class);
+			for (CyNetwork network : networks) {
+				if (cancelled) {
+					return;
+				}
+				// Deferred first, as adding the network may already make it current
+				DeferredViewManager.INSTANCE.defer(network, layout);
+				network_manager.addNetwork(network);
+			}
+			final CyApplicationManager appManager = CyServiceModule.getService(CyApplicationManager.class);
+			if (appManager != null && !cancelled) {
+				appManager.setCurrentNetwork(networks[0]);
+			}
+		});
+	}
+	
+	/**
+	 * Registers all subnetworks of a collection at once, then lets the reader
+	 * build their views one at a time, each in its own turn on the EDT so the UI
+	 * stays responsive in between. The reader is not safe to share between
+	 * threads and gives each view its own CX layout and style, so views are not
+	 * built in parallel.
+	 */
+	private void registerCollection(final AbstractCyNetworkReader task, final TaskMonitor taskMonitor) throws InvocationTargetException, InterruptedException {
+		final CyNetwork[] networks = task.getNetworks();
+		phase = Phase.REGISTER;
+		taskMonitor.setStatusMessage(String.format("Registering %s networks...", networks.length));
+		runOnEdt(() -> {
+			final CyNetworkManager network_manager = CyServiceModule.getService(CyNetworkManager.class);
+			for (CyNetwork network : networks) {
+				if (cancelled) {
+					return;
+				}
+				network_manager.addNetwork(network);
+			}
+		});
+		if (cancelled || Boolean.FALSE.equals(getReaderCreateView())) {
+			return;
+		}
+		
+		phase = Phase.VIEW;
+		final List<CyNetworkView> views = new ArrayList<>();
+		for (int i = 0; i < networks.length && !cancelled; i++) {
+			final CyNetwork network = networks[i];
+			taskMonitor.setStatusMessage(String.format("Building view %s/%s...", i + 1, networks.length));
+			runOnEdt(() -> {
+				final CyNetworkView view = task.buildCyNetworkView(network);
+				if (view != null) {
+					views.add(view);
+				}
+			});
+			taskMonitor.setProgress(.7 + .2 * (i + 1) / networks.length);
+		}
+		applyAdaptiveLayout(views);
+	}
+	
+	private static void runOnEdt(final Runnable runnable) throws InvocationTargetException, InterruptedException {
+		if (SwingUtilities.isEventDispatchThread()) {
+			runnable.run();
+		} else {
+			SwingUtilities.invokeAndWait(runnable);
+		}
+	}
 	
 	@Override
 	public void cancel() {
 		super.cancel();
+		final Runnable downloadCanceller = this.downloadCanceller;
+		if (downloadCanceller != null) {
+			downloadCanceller.run();
+		}
+		if (cxStream == null) {
+			return;
+		}
 		try {
 			cxStream.close();
 		} catch (IOException e) {
@@ -201,4 +736,72 @@ public class NetworkImportTask extends AbstractTask implements ObservableTask {
 		return suid;
 	}
 
+	/**
+	 * Current stage, or null if the task has not started.
+	 */
+	public Phase getPhase() {
+		return phase;
+	}
+
+	/**
+	 * Number of CX bytes received from NDEx so far.
+	 */
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+	/**
+	 * Size of the CX as reported by NDEx, or 0 if unknown.
+	 */
+	public long getExpectedBytes() {
+		return networkSummary.getCxFileSize();
+	}
+
+	/**
+	 * Size of the CX as reported by NDEx or, if that is unknown, a rough guess
+	 * from the node and edge counts.
+	 */
+	public long getEstimatedBytes() {
+		if (networkSummary.getCxFileSize() > 0) {
+			return networkSummary.getCxFileSize();
+		}
+		return networkSummary.getNodeCount() * ESTIMATED_BYTES_PER_NODE
+				+ networkSummary.getEdgeCount() * ESTIMATED_BYTES_PER_EDGE;
+	}
+
+	private static class ByteCountingStream extends FilterInputStream {
+
+		private final AtomicLong count;
+
+		ByteCountingStream(final InputStream in, final AtomicLong count) {
+			super(in);
+			this.count = count;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int b = super.read();
+			if (b != -1) {
+				count.incrementAndGet();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int n = super.read(b, off, len);
+			if (n > 0) {
+				count.addAndGet(n);
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			final long skipped = super.skip(n);
+			count.addAndGet(skipped);
+			return skipped;
+		}
+	}
+
 }
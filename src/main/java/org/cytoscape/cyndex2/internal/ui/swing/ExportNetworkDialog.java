@@ -35,33 +35,21 @@ import java.beans.PropertyChangeListener;
 import java.io.IOException;
 import java.io.PipedOutputStream;
 import java.io.UnsupportedEncodingException;
-import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
 import javax.swing.JButton;
 import javax.swing.JOptionPane;
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
 
 import static org.cytoscape.util.swing.IconManager.ICON_COG;
 
 import org.cytoscape.cyndex2.external.SaveParameters;
-import org.cytoscape.cyndex2.internal.CyActivator;
 import org.cytoscape.cyndex2.internal.CyServiceModule;
 import org.cytoscape.cyndex2.internal.rest.SimpleNetworkSummary;
 import org.cytoscape.cyndex2.internal.rest.parameter.NDExSaveParameters;
 import org.cytoscape.cyndex2.internal.rest.response.SummaryResponse;
+import org.cytoscape.cyndex2.internal.task.NDExNetworkService;
 import org.cytoscape.cyndex2.internal.util.Server;
 import org.cytoscape.cyndex2.internal.util.ServerManager;
 import org.cytoscape.cyndex2.internal.util.UpdateUtil;
@@ -72,8 +60,6 @@ import org.ndexbio.rest.client.NdexRestClient;
 import org.ndexbio.rest.client.NdexRestClientModelAccessLayer;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  *
@@ -134,24 +120,11 @@ public class ExportNetworkDialog extends javax.swing.JDialog implements Property
 
 		rootPane.setDefaultButton(exportButton);
 
-		String REST_URI = "http://localhost:" + CyActivator.getCyRESTPort() + "/cyndex2/v1/networks/"
-				+ saveParameters.suid;
-		HttpClient httpClient = HttpClients.createDefault();
-		final URI uri = URI.create(REST_URI);
-		final HttpGet get = new HttpGet(uri.toString());
-		get.setHeader("Content-type", "application/json");
-		HttpResponse response;
 		try {
-			response = httpClient.execute(get);
-
-			final HttpEntity entity = response.getEntity();
-			final String result = EntityUtils.toString(entity);
-
-			ObjectMapper objectMapper = new ObjectMapper();
-			JsonNode jsonNode = objectMapper.readValue(result, JsonNode.class);
-			// System.out.println(jsonNode);
-
-			SummaryResponse summaryResponse = objectMapper.treeToValue(jsonNode.get("data"), SummaryResponse.class);
+			final SummaryResponse summaryResponse = CyServiceModule.getNetworkService().getSummary(saveParameters.suid);
+			if (summaryResponse == null) {
+				throw new IllegalArgumentException("Network with SUID " + saveParameters.suid + " does not exist.");
+			}
 
 			// CyNetwork cyNetwork = CyObjectManager.INSTANCE.getCurrentNetwork();
 			updateUpdateButton();
@@ -193,7 +166,7 @@ public class ExportNetworkDialog extends javax.swing.JDialog implements Property
 			descriptionTextArea.setText(
 					isCollection ? "" : descriptionKey != null ? summary.props.get(descriptionKey).toString() : "");
 
-		} catch (IOException e) {
+		} catch (RuntimeException e) {
 			Logger.getLogger(ExportNetworkDialog.class.getName()).log(Level.WARNING, "Failed to populate export dialog", e);
 		}
 		// Server selectedServer = ServerManager.INSTANCE.getSelectedServer();
@@ -551,15 +524,6 @@ public class ExportNetworkDialog extends javax.swing.JDialog implements Property
 
 			final Server selectedServer = ServerManager.INSTANCE.getSelectedServer();
 			final boolean update = updateCheckbox.isEnabled() && updateCheckbox.isSelected();
-			final String REST_URI = "http://localhost:" + CyActivator.getCyRESTPort() + "/cyndex2/v1/networks/"
-					+ saveParameters.suid;
-
-			HttpClient httpClient = HttpClients.createDefault();
-			final URI uri = URI.create(REST_URI);
-			final HttpEntityEnclosingRequestBase request = update ? new HttpPut(uri.toString())
-					: new HttpPost(uri.toString());
-			request.setHeader("Content-type", "application/json");
-
 			final Map<String, String> metadata = new HashMap<>();
 			metadata.put("name", nameField.getText());
 			metadata.put("author", authorField.getText());
@@ -573,36 +537,23 @@ public class ExportNetworkDialog extends javax.swing.JDialog implements Property
 
 			NDExSaveParameters saveParams = new NDExSaveParameters(selectedServer.getUsername(),
 					selectedServer.getPassword(), selectedServer.getUrl(), metadata, false);
-			final ObjectMapper objectMapper = new ObjectMapper();
+			final NDExNetworkService networkService = CyServiceModule.getNetworkService();
 
 			try {
-
-				request.setEntity(new StringEntity(objectMapper.writeValueAsString(saveParams)));
-				final HttpResponse response = httpClient.execute(request);
-				final int statusCode = response.getStatusLine().getStatusCode();
-
-				if (statusCode == 200) {
-
-					final String result = EntityUtils.toString(response.getEntity());
-
-					JsonNode jsonNode = objectMapper.readValue(result, JsonNode.class);
-					final String uuid = jsonNode.get("data").get("uuid").asText();
-
-					JOptionPane.showMessageDialog(container, "Export to NDEx successful.\n\nUUID: " + uuid,
-							"Export Complete", JOptionPane.PLAIN_MESSAGE);
-				} else {
-					final String result = EntityUtils.toString(response.getEntity());
-
-					JsonNode jsonNode = objectMapper.readValue(result, JsonNode.class);
-					final String errorMessage = jsonNode.get("errors").get(0).get("message").asText();
-
-					JOptionPane.showMessageDialog(container,
-							"Export to NDEx failed with the following message:\n\n" + errorMessage, "Export Error",
-							JOptionPane.ERROR_MESSAGE);
+				final CyNetwork network = networkService.getNetwork(saveParameters.suid);
+				if (network == null) {
+					throw new IllegalArgumentException("Network with SUID " + saveParameters.suid + " does not exist.");
 				}
-
-			} catch (IOException e) {
-				// upload failed — dialog already shown for non-200 status; other errors fall through silently
+				final UUID uuid = update ? networkService.updateNetwork(saveParams, network)
+						: networkService.saveNetwork(saveParams, network);
+
+				JOptionPane.showMessageDialog(container, "Export to NDEx successful.\n\nUUID: " + uuid,
+						"Export Complete", JOptionPane.PLAIN_MESSAGE);
+			} catch (RuntimeException e) {
+				Logger.getLogger(ExportNetworkDialog.class.getName()).log(Level.WARNING, "Export to NDEx failed", e);
+				JOptionPane.showMessageDialog(container,
+						"Export to NDEx failed with the following message:\n\n" + NDExNetworkService.getErrorMessage(e),
+						"Export Error", JOptionPane.ERROR_MESSAGE);
 			}
 			return 1;
 		});
@@ -35,8 +35,11 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.File;
 import java.io.IOException;
-import java.net.URI;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
@@ -44,37 +47,48 @@ import java.util.UUID;
 
 import javax.swing.Icon;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JComponent;
 import javax.swing.JFrame;
+import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
+import javax.swing.JPopupMenu;
 import javax.swing.JTable;
+import javax.swing.JTextField;
 import javax.swing.SwingConstants;
 import javax.swing.table.TableCellRenderer;
 
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.HttpClients;
-import org.cytoscape.cyndex2.internal.CyActivator;
 import org.cytoscape.cyndex2.internal.CyServiceModule;
+import org.cytoscape.cyndex2.internal.rest.NdexClient;
 import org.cytoscape.cyndex2.internal.rest.parameter.LoadParameters;
 import org.cytoscape.cyndex2.internal.rest.parameter.NDExImportParameters;
+import org.cytoscape.cyndex2.internal.task.NDExImportTaskFactory;
+import org.cytoscape.cyndex2.internal.task.NDExNetworkService;
+import org.cytoscape.cyndex2.internal.util.CxElementCounter;
 import org.cytoscape.cyndex2.internal.util.CxPreferences;
 import org.cytoscape.cyndex2.internal.util.ErrorMessage;
 import org.cytoscape.cyndex2.internal.util.IconUtil;
+import org.cytoscape.cyndex2.internal.util.ImportCostEstimate;
+import org.cytoscape.cyndex2.internal.util.MachineCapacity;
+import org.cytoscape.cyndex2.internal.util.MappedFileInputStream;
+import org.cytoscape.cyndex2.internal.util.NetworkQuery;
+import org.cytoscape.cyndex2.internal.util.NetworkSummaryCache;
 import org.cytoscape.cyndex2.internal.util.Server;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.cytoscape.cyndex2.internal.util.ServerManager;
 import org.cytoscape.util.swing.IconManager;
+import org.cytoscape.work.FinishStatus;
+import org.cytoscape.work.ObservableTask;
+import org.cytoscape.work.TaskIterator;
+import org.cytoscape.work.TaskObserver;
+import org.cytoscape.work.swing.DialogTaskManager;
 import org.cytoscape.util.swing.TextIcon;
 import org.ndexbio.model.exceptions.NdexException;
 import org.ndexbio.model.object.network.NetworkSummary;
 import org.ndexbio.model.object.network.VisibilityType;
 import org.ndexbio.rest.client.NdexRestClientModelAccessLayer;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  *
@@ -136,13 +150,40 @@ public class FindNetworksDialog extends javax.swing.JDialog implements PropertyC
 		search.setToolTipText(tooltip);
 	}
 	
+	/**
+	 * Warns before importing a network that is predicted not to fit in the free
+	 * heap, which would otherwise fail halfway through with an out of memory
+	 * error.
+	 *
+	 * @return true if the import should go ahead
+	 */
+	private boolean confirmMemory(final NetworkSummary networkSummary) {
+		final Server selectedServer = ServerManager.INSTANCE.getServer();
+		final ImportCostEstimate estimate = ImportCostEstimate.of(networkSummary, NetworkSummaryCache.INSTANCE
+				.getMetadata(selectedServer.getUrl(), selectedServer.getUsername(), networkSummary.getExternalId()));
+		final long freeHeap = MachineCapacity.getFreeHeap();
+		if (!estimate.exceedsHeap(freeHeap)) {
+			return true;
+		}
+		final String message = "<html><p width=\"360px\">" + networkSummary.getName() + " is predicted to need "
+				+ ImportCostEstimate.formatBytes(estimate.getModelHeap()) + " of memory, but Cytoscape has only "
+				+ ImportCostEstimate.formatBytes(freeHeap)
+				+ " free. The import will likely fail. Close other networks or give Cytoscape more memory first."
+				+ "</p><p>Import anyway?</p></html>";
+		return JOptionPane.showConfirmDialog(this, message, "Not Enough Memory", JOptionPane.YES_NO_OPTION,
+				JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION;
+	}
+	
 	private void load(final NetworkSummary networkSummary) {
-		final long networkSize = networkSummary.getNodeCount() + networkSummary.getEdgeCount();
-		final long viewThreshold = CxPreferences.getViewThreshold();
 		final boolean importNetwork;
 		final boolean createView;
+		final List<String> aspects;
 
-		if (networkSize > viewThreshold) {
+		if (!confirmMemory(networkSummary)) {
+			return;
+		}
+		if (CxPreferences.isLargeNetwork(networkSummary.getNodeCount(), networkSummary.getEdgeCount(),
+				networkSummary.getCxFileSize())) {
 			LargeNetworkDialog viewCreationDialog = new LargeNetworkDialog(this, true, networkSummary);
 
 			viewCreationDialog.setLocationRelativeTo(this);
@@ -150,9 +191,11 @@ public class FindNetworksDialog extends javax.swing.JDialog implements PropertyC
 
 			importNetwork = viewCreationDialog.getImportNetwork();
 			createView = viewCreationDialog.getCreateView();
+			aspects = viewCreationDialog.getAspects();
 		} else {
 			importNetwork = true;
 			createView = true;
+			aspects = null;
 		}
 
 		if (importNetwork) {
@@ -174,38 +217,20 @@ public class FindNetworksDialog extends javax.swing.JDialog implements PropertyC
 					// System.out.println("NetworkSummary external ID: " + (uuid == null ? null :
 					// uuid.toString()));
 					try {
-						// ProvenanceEntity provenance = mal.getNetworkProvenance(id.toString());
-
-						String REST_URI = "http://localhost:" + CyActivator.getCyRESTPort() + "/cyndex2/v1/networks";
-						HttpClient httpClient = HttpClients.createDefault();
-						final URI uri = URI.create(REST_URI);
-						final HttpPost post = new HttpPost(uri.toString());
-						post.setHeader("Content-type", "application/json");
-
 						NDExImportParameters importParameters = new NDExImportParameters(uuid.toString(),
 								selectedServer.getUsername(), selectedServer.getPassword(), selectedServer.getUrl(),
 								null, null, createView);
-						ObjectMapper objectMapper = new ObjectMapper();
-
-						post.setEntity(new StringEntity(objectMapper.writeValueAsString(importParameters)));
-
-						httpClient.execute(post);
-
-					}
-
-					/*
-					 * catch (IOException ex) { JOptionPane.showMessageDialog(me,
-					 * ErrorMessage.failedToParseJson, "Error", JOptionPane.ERROR_MESSAGE); return
-					 * -1; }
-					 */
-					catch (RuntimeException ex2) {
+						importParameters.aspects = aspects;
+						final NDExImportTaskFactory importFactory = new NDExImportTaskFactory(importParameters);
+						importFactory.setDeferView(CxPreferences.isDeferViews());
+						CyServiceModule.getNetworkService().importNetwork(importFactory, false);
+					} catch (RuntimeException ex2) {
 						Logger.getLogger(FindNetworksDialog.class.getName()).log(Level.WARNING, "Network import failed", ex2);
-					JOptionPane.showMessageDialog(null,
-								"This network can't be imported to cytoscape. Cause: " + ex2.getMessage(), "Error",
-								JOptionPane.ERROR_MESSAGE);
+						JOptionPane.showMessageDialog(null,
+								"This network can't be imported to cytoscape. Cause: "
+										+ NDExNetworkService.getErrorMessage(ex2),
+								"Error", JOptionPane.ERROR_MESSAGE);
 						return -1;
-					} catch (IOException e) {
-						Logger.getLogger(FindNetworksDialog.class.getName()).log(Level.WARNING, "Network import HTTP request failed", e);
 					}
 				} else {
 					JOptionPane.showMessageDialog(null, ErrorMessage.failedServerCommunication, "Error",
@@ -285,6 +310,7 @@ public class FindNetworksDialog extends javax.swing.JDialog implements PropertyC
 		}
 
 		showSearchResults();
+		installQueryMenu();
 
 		if (pendingError != null) {
 			final String msg = pendingError;
@@ -296,6 +322,154 @@ public class FindNetworksDialog extends javax.swing.JDialog implements PropertyC
 		}
 	}
 
+	private void installQueryMenu() {
+		final JPopupMenu popup = new JPopupMenu();
+		final JMenuItem queryItem = new JMenuItem("Import Neighborhood Query Result...");
+		queryItem.addActionListener(e -> {
+			final int row = resultsTable.getSelectedRow();
+			if (row >= 0) {
+				queryAndLoad(networkSummaries.get(resultsTable.convertRowIndexToModel(row)));
+			}
+		});
+		popup.add(queryItem);
+
+		resultsTable.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mousePressed(MouseEvent e) {
+				showPopup(e);
+			}
+
+			@Override
+			public void mouseReleased(MouseEvent e) {
+				showPopup(e);
+			}
+
+			private void showPopup(MouseEvent e) {
+				final int row = resultsTable.rowAtPoint(e.getPoint());
+				if (e.isPopupTrigger() && row >= 0) {
+					resultsTable.getSelectionModel().setSelectionInterval(row, row);
+					popup.show(resultsTable, e.getX(), e.getY());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Runs a neighborhood or interconnect query on the network, tells the user
+	 * how large the result is and imports it if they confirm. The result is
+	 * downloaded once, to a temporary file.
+	 */
+	private void queryAndLoad(final NetworkSummary networkSummary) {
+		final JTextField searchStringField = new JTextField(30);
+		final JComboBox<Integer> depthComboBox = new JComboBox<>(new Integer[] { 1, 2 });
+		final JCheckBox interconnectCheckBox = new JCheckBox("Only edges between these nodes (interconnect)");
+		final Object[] message = { "Node names, separated by spaces:", searchStringField, "Search depth:",
+				depthComboBox, interconnectCheckBox };
+		if (JOptionPane.showConfirmDialog(this, message, "Query " + networkSummary.getName(),
+				JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION
+				|| searchStringField.getText().trim().isEmpty()) {
+			return;
+		}
+		final NetworkQuery query = new NetworkQuery(searchStringField.getText().trim(),
+				(Integer) depthComboBox.getSelectedItem(), NetworkQuery.DEFAULT_EDGE_LIMIT,
+				interconnectCheckBox.isSelected());
+
+		final NdexClient client = CyServiceModule.getNdexClient();
+		if (client == null) {
+			JOptionPane.showMessageDialog(this, ErrorMessage.failedServerCommunication, "Error",
+					JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+
+		final Path[] result = new Path[1];
+		final CxElementCounter[] counter = new CxElementCounter[1];
+		final Exception[] error = new Exception[1];
+		// Only the download runs on the worker, dialogs and the import start from the EDT
+		ModalProgressHelper.runWorker(this, "Querying Network", () -> {
+			final Server selectedServer = ServerManager.INSTANCE.getServer();
+			final File spoolDirectory = CxPreferences.getImportSpoolDirectory() != null
+					? CxPreferences.getImportSpoolDirectory()
+					: new File(System.getProperty("java.io.tmpdir"));
+			try {
+				result[0] = MappedFileInputStream.spool(client.queryNetwork(selectedServer.getUrl(),
+						networkSummary.getExternalId().toString(), null, selectedServer.getUsername(),
+						selectedServer.getPassword(), query), spoolDirectory);
+				try (InputStream in = Files.newInputStream(result[0])) {
+					counter[0] = CxElementCounter.count(in);
+				}
+				return 1;
+			} catch (IOException | RuntimeException e) {
+				error[0] = e;
+				return -1;
+			}
+		});
+
+		if (error[0] != null || counter[0] == null) {
+			if (result[0] != null) {
+				result[0].toFile().delete();
+			}
+			if (error[0] != null) {
+				Logger.getLogger(FindNetworksDialog.class.getName()).log(Level.WARNING, "Network query failed",
+						error[0]);
+				JOptionPane.showMessageDialog(this,
+						"The query result can't be imported. Cause: " + NDExNetworkService.getErrorMessage(error[0]),
+						"Error", JOptionPane.ERROR_MESSAGE);
+			}
+			return;
+		}
+
+		final String estimate = String.format("%s has %,d nodes and %,d edges (%,.1f MB). Import it?", query,
+				counter[0].getNodeCount(), counter[0].getEdgeCount(), result[0].toFile().length() / (1024.0 * 1024.0));
+		if (JOptionPane.showConfirmDialog(this, estimate, "Query Result",
+				JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+			result[0].toFile().delete();
+			return;
+		}
+		importQueryResult(result[0]);
+	}
+
+	/**
+	 * Imports the query result as a task. The file is deleted when the stream
+	 * over it is closed, after the tasks finish or fail.
+	 */
+	private void importQueryResult(final Path file) {
+		final InputStream in;
+		final TaskIterator tasks;
+		try {
+			in = new MappedFileInputStream(file, true);
+		} catch (IOException e) {
+			file.toFile().delete();
+			JOptionPane.showMessageDialog(this,
+					"The query result can't be imported. Cause: " + NDExNetworkService.getErrorMessage(e), "Error",
+					JOptionPane.ERROR_MESSAGE);
+			return;
+		}
+		try {
+			tasks = CyServiceModule.getNetworkService().createImportFromCxTasks(in);
+		} catch (RuntimeException e) {
+			closeQuietly(in);
+			throw e;
+		}
+		CyServiceModule.getService(DialogTaskManager.class).execute(tasks, new TaskObserver() {
+			@Override
+			public void taskFinished(ObservableTask task) {
+			}
+
+			@Override
+			public void allFinished(FinishStatus finishStatus) {
+				closeQuietly(in);
+			}
+		});
+	}
+
+	private static void closeQuietly(final InputStream in) {
+		try {
+			in.close();
+		} catch (IOException e) {
+			Logger.getLogger(FindNetworksDialog.class.getName()).log(Level.FINE, "Failed to close query result", e);
+		}
+	}
+
 	private JTable getResultsTable() {
 		return new JTable() {
 
@@ -599,6 +773,10 @@ public class FindNetworksDialog extends javax.swing.JDialog implements PropertyC
 	private List<NetworkSummary> displayedNetworkSummaries = new ArrayList<>();
 
 	private void showSearchResults() {
+		// Importing one of the results can then skip fetching its summary again
+		final Server selectedServer = ServerManager.INSTANCE.getServer();
+		NetworkSummaryCache.INSTANCE.putSummaries(selectedServer.getUrl(), selectedServer.getUsername(), networkSummaries);
+
 		NetworkSummaryTableModel model = new NetworkSummaryTableModel(networkSummaries, this::load);
 		displayedNetworkSummaries.clear();
 		for (NetworkSummary networkSummary : networkSummaries) {
@@ -611,6 +789,18 @@ public class FindNetworksDialog extends javax.swing.JDialog implements PropertyC
 		resultsTable.getColumnModel().getColumn(NetworkSummaryTableModel.OWNER_COL).setPreferredWidth(40);
 		resultsTable.getColumnModel().getColumn(NetworkSummaryTableModel.NODES_COL).setPreferredWidth(20);
 		resultsTable.getColumnModel().getColumn(NetworkSummaryTableModel.EDGES_COL).setPreferredWidth(20);
+		resultsTable.getColumnModel().getColumn(NetworkSummaryTableModel.DOWNLOAD_COL).setPreferredWidth(30);
+		resultsTable.getColumnModel().getColumn(NetworkSummaryTableModel.DOWNLOAD_COL)
+				.setCellRenderer(new NetworkSummaryTableModel.BytesRenderer());
+		resultsTable.getColumnModel().getColumn(NetworkSummaryTableModel.IMPORT_TIME_COL).setPreferredWidth(30);
+		resultsTable.getColumnModel().getColumn(NetworkSummaryTableModel.IMPORT_TIME_COL)
+				.setCellRenderer(new NetworkSummaryTableModel.MillisRenderer());
+		resultsTable.getColumnModel().getColumn(NetworkSummaryTableModel.MEMORY_COL).setPreferredWidth(30);
+		resultsTable.getColumnModel().getColumn(NetworkSummaryTableModel.MEMORY_COL)
+				.setCellRenderer(new NetworkSummaryTableModel.MemoryRenderer());
+		resultsTable.getColumnModel().getColumn(NetworkSummaryTableModel.VIEW_TIME_COL).setPreferredWidth(30);
+		resultsTable.getColumnModel().getColumn(NetworkSummaryTableModel.VIEW_TIME_COL)
+				.setCellRenderer(new NetworkSummaryTableModel.MillisRenderer());
 		resultsTable.setDefaultRenderer(NetworkSummary.class, new NetworkSummaryTableModel.ImportButtonRenderer());
 		resultsTable.setDefaultRenderer(VisibilityType.class, new NetworkSummaryTableModel.VisibilityTypeRenderer());
 		resultsTable.setDefaultRenderer(Timestamp.class, new NetworkSummaryTableModel.TimestampRenderer());
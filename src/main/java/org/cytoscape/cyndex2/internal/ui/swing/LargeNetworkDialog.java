@@ -7,11 +7,15 @@ package org.cytoscape.cyndex2.internal.ui.swing;
 
 import org.cytoscape.cyndex2.internal.CyServiceModule;
 import org.cytoscape.cyndex2.internal.util.CxPreferences;
+import org.cytoscape.cyndex2.internal.util.ImportCostEstimate;
+import org.cytoscape.cyndex2.internal.util.MachineCapacity;
+import org.cytoscape.cyndex2.internal.util.NetworkSummaryCache;
 import org.cytoscape.cyndex2.internal.util.Server;
 import org.cytoscape.cyndex2.internal.util.ServerManager;
 import org.cytoscape.util.swing.IconManager;
 
 import org.ndexbio.cxio.metadata.MetaDataCollection;
+import org.ndexbio.cxio.metadata.MetaDataElement;
 import org.ndexbio.model.exceptions.NdexException;
 import org.ndexbio.model.object.network.NetworkSummary;
 import org.ndexbio.rest.client.NdexRestClientModelAccessLayer;
@@ -22,6 +26,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.awt.Dialog;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.swing.JOptionPane;
 import java.awt.FlowLayout;
@@ -33,6 +40,12 @@ public class LargeNetworkDialog extends javax.swing.JDialog {
 
 	private final NetworkSummary networkSummary;
 	private boolean hasView;
+	private MetaDataCollection metaDataCollection;
+	private ImportCostEstimate estimate;
+
+	// Aspects only needed to display the network
+	private static final List<String> VIEW_ASPECTS = Arrays.asList("cartesianLayout", "cyVisualProperties",
+			"visualProperties", "cyHiddenAttributes");
 
 	final int ICON_FONT_SIZE = 22;
 	
@@ -43,11 +56,22 @@ public class LargeNetworkDialog extends javax.swing.JDialog {
 	private final String DONT_CREATE_VIEW_LABEL = "<html><p width=\"200px\"><b>Don’t Create View</b> (Faster, discard layout and visual properties)</p></html>";
 	private final String DONT_CREATE_VIEW_TIP = "<html><p width=\"200px\">Choose this option to import the network without generating a graphic rendering. The <u>original layout and visual styling info will be lost</u>. You can decide to generate a graphic rendering later if desired.</p></html>";
 	
+	//Text when the layout is kept for a view created later
+	private final String CREATE_VIEW_LABEL_DEFERRED = "<html><p width=\"200px\"><b>Create View</b> (Resource Intensive, preserve layout, discard visual properties)</p></html>";
+	private final String CREATE_VIEW_TIP_DEFERRED = "<html><p width=\"200px\">Choose this option to import the network and display it <u>preserving existing layout</u>. The view is built in the background once the network is imported, and can be cancelled. Visual styling info will be lost. Your computer might crash if it's older or not powerful enough.</p></html>";
+	private final String DONT_CREATE_VIEW_LABEL_KEEP_LAYOUT = "<html><p width=\"200px\"><b>Don’t Create View</b> (Faster, discard visual properties)</p></html>";
+	private final String DONT_CREATE_VIEW_TIP_KEEP_LAYOUT = "<html><p width=\"200px\">Choose this option to import the network without generating a graphic rendering. The <u>original layout is kept</u> and applied if you create a view later, without downloading the network again. Visual styling info will be lost.</p></html>";
+	
 	//Text when no view or label exists
 	private final String CREATE_VIEW_LABEL_NO_EXISTING = "<html><p width=\"180px\"><b>Create View</b> (Resource Intensive)</p></html>";
 	private final String CREATE_VIEW_TIP_NO_EXISTING = "<html><p width=\"200px\">Choose this option to import the network and display it with Cytoscape’s default layout and visual styling info. Your computer might crash if it's older or not powerful enough.</p></html>";
 	
 	private final String DONT_CREATE_VIEW_LABEL_NO_EXISTING = "<html><p width=\"180px\"><b>Don’t Create View</b> (Faster)</p></html>";
+	private final String SKIP_VIEW_ASPECTS_LABEL = "<html><p width=\"200px\">Skip layout and visual properties when downloading (smaller download)</p></html>";
+	private final String SKIP_VIEW_ASPECTS_TIP = "<html><p width=\"200px\">Download only the nodes, edges and their attributes. The layout and visual styling info are not transferred at all.</p></html>";
+	
+	private final String CREATE_VIEW_TIP_NO_MEMORY = "<html><p width=\"200px\">A view of this network is predicted to need more memory than Cytoscape has free. Free memory is measured before unused objects are collected, so the view may still fit. If the import fails, import it without a view or give Cytoscape more memory.</p></html>";
+	
 	private final String DONT_CREATE_VIEW_TIP_NO_EXISTING = "<html><p width=\"200px\">Choose this option to import the network without generating a graphic view. You can decide to generate a graphic view later if desired.</p></html>";
 	
 	
@@ -62,35 +86,87 @@ public class LargeNetworkDialog extends javax.swing.JDialog {
 	
 			NdexRestClientModelAccessLayer mal;
 			try {
-				mal = selectedServer.getModelAccessLayer();
-				MetaDataCollection metaDataCollection = mal.getNetworkMetadata(networkSummary.getExternalId());
+				MetaDataCollection metaDataCollection = NetworkSummaryCache.INSTANCE.getMetadata(selectedServer.getUrl(),
+						selectedServer.getUsername(), networkSummary.getExternalId());
+				if (metaDataCollection == null) {
+					mal = selectedServer.getModelAccessLayer();
+					metaDataCollection = mal.getNetworkMetadata(networkSummary.getExternalId());
+					NetworkSummaryCache.INSTANCE.putMetadata(selectedServer.getUrl(), selectedServer.getUsername(),
+							networkSummary.getExternalId(), metaDataCollection);
+				}
 				hasView = metaDataCollection.getMetaDataElement("cyVisualProperties") != null;
+				this.metaDataCollection = metaDataCollection;
 				
 			} catch (IOException | NdexException e) {
 				Logger.getLogger(LargeNetworkDialog.class.getName()).log(Level.WARNING, "Failed to fetch network metadata; assuming view exists", e);
 				hasView = true;
 			}
 		initComponents();
+		showEstimate();
+	}
+
+	/**
+	 * Shows the predicted cost of the import, and warns when a view is predicted
+	 * not to fit in the free heap.
+	 */
+	private void showEstimate() {
+		estimate = ImportCostEstimate.of(networkSummary, metaDataCollection);
+		final boolean viewFits = !estimate.viewExceedsHeap(MachineCapacity.getFreeHeap());
+		estimateLabel.setText("<html><p width=\"300px\">Estimated: " + estimate + "."
+				+ (viewFits ? "" : " A view may not fit in the free memory.") + "</p></html>");
+		if (!viewFits) {
+			createViewRadioButton.setToolTipText(CREATE_VIEW_TIP_NO_MEMORY);
+			createViewInfo.setToolTipText(CREATE_VIEW_TIP_NO_MEMORY);
+		}
+	}
+
+	/**
+	 * Asks before creating a view that is predicted not to fit in the free heap.
+	 */
+	private boolean confirmViewMemory() {
+		if (!createViewRadioButton.isSelected() || estimate == null
+				|| !estimate.viewExceedsHeap(MachineCapacity.getFreeHeap())) {
+			return true;
+		}
+		final String message = "<html><p width=\"300px\">A view of this network is predicted to need "
+				+ ImportCostEstimate.formatBytes(estimate.getModelHeap() + estimate.getViewHeap())
+				+ " of memory, and Cytoscape has " + ImportCostEstimate.formatBytes(MachineCapacity.getFreeHeap())
+				+ " free. The import may fail.</p><p>Create the view anyway?</p></html>";
+		return JOptionPane.showConfirmDialog(this, message, "Not Enough Memory", JOptionPane.YES_NO_OPTION,
+				JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION;
 	}
 
 	private String getCreateViewLabel() {
+		if (networkSummary.getHasLayout() && CxPreferences.isDeferViews()) {
+			return CREATE_VIEW_LABEL_DEFERRED;
+		}
 		return hasView || networkSummary.getHasLayout() ? CREATE_VIEW_LABEL : CREATE_VIEW_LABEL_NO_EXISTING;
 	}
 	
 	private String getCreateViewTooltip() {
+		if (networkSummary.getHasLayout() && CxPreferences.isDeferViews()) {
+			return CREATE_VIEW_TIP_DEFERRED;
+		}
 		return hasView || networkSummary.getHasLayout() ? CREATE_VIEW_TIP : CREATE_VIEW_TIP_NO_EXISTING;
 	}
 	
 	private String getDontCreateViewLabel() {
+		if (networkSummary.getHasLayout() && CxPreferences.isDeferViews()) {
+			return DONT_CREATE_VIEW_LABEL_KEEP_LAYOUT;
+		}
 		return hasView || networkSummary.getHasLayout() ? DONT_CREATE_VIEW_LABEL : DONT_CREATE_VIEW_LABEL_NO_EXISTING;
 	}
 	
 	private String getDontCreateViewTooltip() {
+		if (networkSummary.getHasLayout() && CxPreferences.isDeferViews()) {
+			return DONT_CREATE_VIEW_TIP_KEEP_LAYOUT;
+		}
 		return hasView || networkSummary.getHasLayout() ? DONT_CREATE_VIEW_TIP : DONT_CREATE_VIEW_TIP_NO_EXISTING;
 	}
 	
 	private void validateOK() {
 		okButton.setEnabled(createViewRadioButton.isSelected() || dontCreateViewRadioButton.isSelected());
+		skipViewAspectsCheckBox.setEnabled(dontCreateViewRadioButton.isSelected() && metaDataCollection != null);
 	}
 	
 	private void updateHeadingAndMessage() {
@@ -124,6 +200,10 @@ public class LargeNetworkDialog extends javax.swing.JDialog {
         jPanel3.setLayout(new FlowLayout(FlowLayout.LEFT));
         dontCreateViewRadioButton = new javax.swing.JRadioButton();
         dontCreateViewInfo = new javax.swing.JLabel();
+        jPanel4 = new javax.swing.JPanel();
+        jPanel4.setLayout(new FlowLayout(FlowLayout.LEFT));
+        skipViewAspectsCheckBox = new javax.swing.JCheckBox();
+        estimateLabel = new javax.swing.JLabel();
 
         setDefaultCloseOperation(javax.swing.WindowConstants.DISPOSE_ON_CLOSE);
         setTitle("Network Import Confirmation");
@@ -212,6 +292,15 @@ public class LargeNetworkDialog extends javax.swing.JDialog {
         });
         jPanel3.add(dontCreateViewInfo);
 
+        skipViewAspectsCheckBox.setText(SKIP_VIEW_ASPECTS_LABEL);
+        skipViewAspectsCheckBox.setToolTipText(SKIP_VIEW_ASPECTS_TIP);
+        skipViewAspectsCheckBox.setEnabled(false);
+        skipViewAspectsCheckBox.setVisible(hasView || networkSummary.getHasLayout());
+        jPanel4.setBorder(javax.swing.BorderFactory.createEmptyBorder(0, 24, 0, 0));
+        jPanel4.add(skipViewAspectsCheckBox);
+
+        estimateLabel.setHorizontalAlignment(javax.swing.SwingConstants.LEFT);
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(getContentPane());
         getContentPane().setLayout(layout);
         layout.setHorizontalGroup(
@@ -222,6 +311,9 @@ public class LargeNetworkDialog extends javax.swing.JDialog {
                     .addGroup(layout.createSequentialGroup()
                         .addComponent(jLabel1, javax.swing.GroupLayout.PREFERRED_SIZE, 390, javax.swing.GroupLayout.PREFERRED_SIZE)
                         .addGap(12, 12, 12))
+                    .addGroup(layout.createSequentialGroup()
+                        .addComponent(estimateLabel, javax.swing.GroupLayout.PREFERRED_SIZE, 390, javax.swing.GroupLayout.PREFERRED_SIZE)
+                        .addGap(12, 12, 12))
                     .addGroup(layout.createSequentialGroup()
                         .addComponent(okButton)
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
@@ -231,6 +323,7 @@ public class LargeNetworkDialog extends javax.swing.JDialog {
                 .addGap(32, 32, 32)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING, false)
                     .addComponent(jPanel3, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                    .addComponent(jPanel4, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                     .addComponent(jPanel2, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
                 .addGap(0, 0, Short.MAX_VALUE))
         );
@@ -243,6 +336,9 @@ public class LargeNetworkDialog extends javax.swing.JDialog {
                 .addComponent(jPanel2, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(jPanel3, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addComponent(jPanel4, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(estimateLabel, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, 24, Short.MAX_VALUE)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(okButton)
@@ -280,7 +376,9 @@ public class LargeNetworkDialog extends javax.swing.JDialog {
     }//GEN-LAST:event_createViewRadioButtonActionPerformed
 
 	private void okButtonActionPerformed(java.awt.event.ActionEvent evt) {// GEN-FIRST:event_okButtonActionPerformed
-		// TODO add your handling code here:
+		if (!confirmViewMemory()) {
+			return;
+		}
 		setImportNetwork(true);
 		setVisible(false);
 	}// GEN-LAST:event_okButtonActionPerformed
@@ -362,17 +460,18 @@ public class LargeNetworkDialog extends javax.swing.JDialog {
     private javax.swing.JLabel jLabel1;
     private javax.swing.JPanel jPanel2;
     private javax.swing.JPanel jPanel3;
+    private javax.swing.JPanel jPanel4;
+    private javax.swing.JCheckBox skipViewAspectsCheckBox;
+    private javax.swing.JLabel estimateLabel;
     private javax.swing.JButton okButton;
     private javax.swing.ButtonGroup viewButtonGroup;
     // End of variables declaration//GEN-END:variables
 
 	private boolean willCreateView() {
-		final long networkSize = networkSummary.getNodeCount() + networkSummary.getEdgeCount();
-
-		final long viewThreshold = CxPreferences.getViewThreshold();
 		final CxPreferences.CreateViewEnum createViewPreference = CxPreferences.getCreateView();
 
-		return createViewPreference.equals(CxPreferences.CreateViewEnum.ALWAYS) || networkSize < viewThreshold;
+		return createViewPreference.equals(CxPreferences.CreateViewEnum.ALWAYS) || !CxPreferences
+				.isLargeNetwork(networkSummary.getNodeCount(), networkSummary.getEdgeCount(), networkSummary.getCxFileSize());
 	}
 
 	private boolean importNetwork = false;
@@ -388,4 +487,20 @@ public class LargeNetworkDialog extends javax.swing.JDialog {
 	public boolean getCreateView() {
 		return createViewRadioButton.isSelected();
 	}
+
+	/**
+	 * Aspects to download, or null for all of them.
+	 */
+	public List<String> getAspects() {
+		if (getCreateView() || !skipViewAspectsCheckBox.isSelected() || metaDataCollection == null) {
+			return null;
+		}
+		final List<String> aspects = new ArrayList<>();
+		for (MetaDataElement element : metaDataCollection) {
+			if (!VIEW_ASPECTS.contains(element.getName())) {
+				aspects.add(element.getName());
+			}
+		}
+		return aspects;
+	}
 }
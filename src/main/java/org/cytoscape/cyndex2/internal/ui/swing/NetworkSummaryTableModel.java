@@ -21,6 +21,8 @@ import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableCellRenderer;
 
 import org.cytoscape.cyndex2.internal.CyServiceModule;
+import org.cytoscape.cyndex2.internal.util.ImportCostEstimate;
+import org.cytoscape.cyndex2.internal.util.MachineCapacity;
 import org.cytoscape.util.swing.IconManager;
 import org.cytoscape.util.swing.TextIcon;
 import org.ndexbio.model.object.network.NetworkSummary;
@@ -34,14 +36,23 @@ public class NetworkSummaryTableModel extends AbstractTableModel {
 	public static final int VISIBILITY_COL = 3;
 	public static final int NODES_COL = 4;
 	public static final int EDGES_COL = 5;
-	public static final int MODIFIED_COL = 6;
+	public static final int DOWNLOAD_COL = 6;
+	public static final int IMPORT_TIME_COL = 7;
+	public static final int MEMORY_COL = 8;
+	public static final int VIEW_TIME_COL = 9;
+	public static final int MODIFIED_COL = 10;
 
 	private final List<NetworkSummary> networkSummaries;
+	private final List<ImportCostEstimate> estimates;
 
 	private Consumer<NetworkSummary> networkSummaryConsumer;
 	
 	public NetworkSummaryTableModel(List<NetworkSummary> networkSummaries, Consumer<NetworkSummary> networkSummaryConsumer) {
 		this.networkSummaries = new ArrayList<NetworkSummary>(networkSummaries);
+		this.estimates = new ArrayList<ImportCostEstimate>(networkSummaries.size());
+		for (NetworkSummary networkSummary : networkSummaries) {
+			estimates.add(ImportCostEstimate.of(networkSummary, null));
+		}
 		this.networkSummaryConsumer = networkSummaryConsumer;
 	}
 
@@ -70,6 +81,47 @@ public class NetworkSummaryTableModel extends AbstractTableModel {
 		}
 	}
 
+	public static class BytesRenderer extends DefaultTableCellRenderer {
+		public BytesRenderer() {
+			super();
+			setHorizontalAlignment(RIGHT);
+		}
+
+		public void setValue(Object value) {
+			setText(value == null ? "" : ImportCostEstimate.formatBytes((Long) value));
+		}
+	}
+
+	/**
+	 * Shows predicted heap in red when it does not fit in the free heap.
+	 */
+	public static class MemoryRenderer extends BytesRenderer {
+		public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+				boolean hasFocus, int row, int column) {
+			super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+			final boolean exceeds = value != null
+					&& (Long) value > MachineCapacity.getUsableHeap(MachineCapacity.getFreeHeap());
+			if (exceeds) {
+				setForeground(Color.RED);
+				setToolTipText("Predicted to exceed the free memory of Cytoscape");
+			} else {
+				setForeground(isSelected ? table.getSelectionForeground() : table.getForeground());
+			}
+			return this;
+		}
+	}
+
+	public static class MillisRenderer extends DefaultTableCellRenderer {
+		public MillisRenderer() {
+			super();
+			setHorizontalAlignment(RIGHT);
+		}
+
+		public void setValue(Object value) {
+			setText(value == null ? "" : ImportCostEstimate.formatMillis((Long) value));
+		}
+	}
+
 	private static TextIcon getImportIcon() {
 		final IconManager iconManager = CyServiceModule.INSTANCE.getService(IconManager.class);
 		final TextIcon importIcon = new TextIcon(iconManager.ICON_ARROW_CIRCLE_O_DOWN, iconManager.getIconFont(24), new Color(28,140,46), 24, 24);
@@ -147,7 +199,7 @@ public class NetworkSummaryTableModel extends AbstractTableModel {
 
 	@Override
 	public int getColumnCount() {
-		return 7;
+		return 11;
 	}
 
 	@Override
@@ -170,6 +222,11 @@ public class NetworkSummaryTableModel extends AbstractTableModel {
 			return Integer.class;
 		case EDGES_COL:
 			return Integer.class;
+		case DOWNLOAD_COL:
+		case IMPORT_TIME_COL:
+		case MEMORY_COL:
+		case VIEW_TIME_COL:
+			return Long.class;
 		case MODIFIED_COL:
 			return Timestamp.class;
 		default:
@@ -193,6 +250,14 @@ public class NetworkSummaryTableModel extends AbstractTableModel {
 			return networkSummary.getNodeCount();
 		case EDGES_COL:
 			return networkSummary.getEdgeCount();
+		case DOWNLOAD_COL:
+			return estimates.get(arg0).getDownloadBytes();
+		case IMPORT_TIME_COL:
+			return estimates.get(arg0).getImportMillis();
+		case MEMORY_COL:
+			return estimates.get(arg0).getModelHeap();
+		case VIEW_TIME_COL:
+			return estimates.get(arg0).getViewMillis();
 		case MODIFIED_COL:
 			return networkSummary.getModificationTime();
 		default:
@@ -215,6 +280,14 @@ public class NetworkSummaryTableModel extends AbstractTableModel {
 			return "nodes";
 		case EDGES_COL:
 			return "edges";
+		case DOWNLOAD_COL:
+			return "download";
+		case IMPORT_TIME_COL:
+			return "est. import";
+		case MEMORY_COL:
+			return "est. memory";
+		case VIEW_TIME_COL:
+			return "est. view";
 		case MODIFIED_COL:
 			return "modified";
 		default:
@@ -0,0 +1,168 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.ndexbio.model.exceptions.NdexException;
+import org.ndexbio.rest.client.NdexRestClient;
+import org.ndexbio.rest.client.NdexRestClientModelAccessLayer;
+
+/**
+ * Keeps authenticated NDEx clients alive between operations, so back-to-back
+ * imports and exports against the same profile do not sign in again.
+ *
+ * Entries are keyed by server, user name and a digest of the credentials, and
+ * are dropped after sitting unused for a while or when the server profiles change.
+ */
+public class AccessLayerCache {
+
+	public static final long DEFAULT_MAX_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	public static final AccessLayerCache INSTANCE = new AccessLayerCache(DEFAULT_MAX_IDLE_MILLIS,
+			(username, password, url, idToken) -> {
+				final NdexRestClient client = new NdexRestClient(username, password, url, UserAgentUtil.getUserAgent());
+				if (idToken != null) {
+					client.signIn(idToken);
+				}
+				return client;
+			});
+
+	@FunctionalInterface
+	public interface ClientFactory {
+		NdexRestClient create(String username, String password, String url, String idToken)
+				throws IOException, NdexException;
+	}
+
+	private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+	private final long maxIdleMillis;
+	private final ClientFactory factory;
+
+	public AccessLayerCache(final long maxIdleMillis, final ClientFactory factory) {
+		this.maxIdleMillis = maxIdleMillis;
+		this.factory = factory;
+	}
+
+	public NdexRestClientModelAccessLayer getAccessLayer(final Server server) throws IOException, NdexException {
+		return getAccessLayer(server.getUsername(), server.getPassword(), UrlUtils.getBaseRoute(server.getUrl()));
+	}
+
+	public NdexRestClientModelAccessLayer getAccessLayer(final String username, final String password,
+			final String url) throws IOException, NdexException {
+		return getEntry(username, password, url, null).accessLayer;
+	}
+
+	public NdexRestClientModelAccessLayer getAccessLayer(final String username, final String password,
+			final String url, final String idToken) throws IOException, NdexException {
+		return getEntry(username, password, url, idToken).accessLayer;
+	}
+
+	public NdexRestClient getClient(final String username, final String password, final String url)
+			throws IOException, NdexException {
+		return getEntry(username, password, url, null).client;
+	}
+
+	/**
+	 * Drops all sessions for the given profile, whatever credentials they used.
+	 */
+	public void invalidate(final ServerKey serverKey) {
+		final ServerKey baseKey = new ServerKey(serverKey.username, String.valueOf(UrlUtils.getBaseRoute(serverKey.url)));
+		entries.keySet().removeIf(key -> key.server.equals(serverKey) || key.server.equals(baseKey));
+	}
+
+	public void invalidateAll() {
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private Entry getEntry(final String username, final String password, final String url, final String idToken)
+			throws IOException, NdexException {
+		evictIdle();
+		final Key key = new Key(username, url, fingerprint(password, idToken));
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			// Signing in happens outside the map lock; a concurrent miss just builds a spare client
+			final NdexRestClient client = factory.create(username, password, url, idToken);
+			entry = new Entry(client);
+			final Entry existing = entries.putIfAbsent(key, entry);
+			if (existing != null) {
+				entry = existing;
+			}
+		}
+		entry.lastUsed = System.currentTimeMillis();
+		return entry;
+	}
+
+	private void evictIdle() {
+		final long now = System.currentTimeMillis();
+		final Iterator<Entry> it = entries.values().iterator();
+		while (it.hasNext()) {
+			if (now - it.next().lastUsed > maxIdleMillis) {
+				it.remove();
+			}
+		}
+	}
+
+	private static String fingerprint(final String password, final String idToken) {
+		if (password == null && idToken == null) {
+			return "";
+		}
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(String.valueOf(password).getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(String.valueOf(idToken).getBytes(StandardCharsets.UTF_8));
+			final StringBuilder sb = new StringBuilder();
+			for (byte b : digest.digest()) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	private static class Key {
+		private final ServerKey server;
+		private final String fingerprint;
+
+		Key(final String username, final String url, final String fingerprint) {
+			this.server = new ServerKey(username, String.valueOf(url));
+			this.fingerprint = fingerprint;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(server, fingerprint);
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			if (!(object instanceof Key)) {
+				return false;
+			}
+			final Key key = (Key) object;
+			return server.equals(key.server) && fingerprint.equals(key.fingerprint);
+		}
+	}
+
+	private static class Entry {
+		private final NdexRestClient client;
+		private final NdexRestClientModelAccessLayer accessLayer;
+		private volatile long lastUsed = System.currentTimeMillis();
+
+		Entry(final NdexRestClient client) {
+			this.client = client;
+			this.accessLayer = new NdexRestClientModelAccessLayer(client);
+		}
+	}
+}
@@ -0,0 +1,312 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fixed-capacity byte pipe between one producer thread and one consumer thread.
+ *
+ * Bytes are handed over in chunks through a bounded queue, so a producer that
+ * runs ahead of its consumer blocks once {@code chunkCount * chunkSize} bytes
+ * are in flight. Unlike {@link java.io.PipedInputStream}, either side may be
+ * served by any thread, and a failure on the producer side is rethrown to the
+ * consumer instead of surfacing as a generic "write end dead" error.
+ */
+public class BoundedPipe {
+
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+	public static final int DEFAULT_CHUNK_COUNT = 16;
+
+	private static final byte[] EOF = new byte[0];
+	private static final long POLL_MILLIS = 100;
+
+	private final BlockingQueue<byte[]> queue;
+	private final int chunkSize;
+	private final int chunkCount;
+
+	private final PipeInputStream in = new PipeInputStream();
+	private final PipeOutputStream out = new PipeOutputStream();
+
+	private volatile Throwable failure;
+	private volatile boolean readerClosed;
+	private volatile Closeable onReaderClose;
+
+	public BoundedPipe() {
+		this(DEFAULT_CHUNK_SIZE, DEFAULT_CHUNK_COUNT);
+	}
+
+	public BoundedPipe(final int chunkSize, final int chunkCount) {
+		if (chunkSize <= 0 || chunkCount <= 0) {
+			throw new IllegalArgumentException("Chunk size and count must be positive");
+		}
+		this.chunkSize = chunkSize;
+		this.chunkCount = chunkCount;
+		// One extra slot so the end-of-stream marker never blocks a full pipe
+		this.queue = new ArrayBlockingQueue<>(chunkCount + 1);
+	}
+
+	public InputStream getInputStream() {
+		return in;
+	}
+
+	public OutputStream getOutputStream() {
+		return out;
+	}
+
+	/**
+	 * Maximum number of bytes that can be buffered between producer and consumer.
+	 */
+	public long getCapacity() {
+		return (long) chunkSize * chunkCount;
+	}
+
+	/**
+	 * Ends the stream with an error. The consumer will receive an IOException
+	 * wrapping the given cause once it has drained the bytes written so far.
+	 */
+	public void fail(final Throwable cause) {
+		failure = cause;
+		out.closeQuietly();
+	}
+
+	/**
+	 * Registers a resource that is closed when the consumer closes its end, e.g.
+	 * the network stream feeding the producer, so a blocked read is released.
+	 */
+	public void setOnReaderClose(final Closeable closeable) {
+		this.onReaderClose = closeable;
+	}
+
+	/**
+	 * Starts a daemon thread that copies {@code source} into a new pipe and returns
+	 * the consumer end. I/O on the source overlaps with whatever the caller does with
+	 * the returned stream, while at most the pipe capacity is held in memory.
+	 */
+	public static InputStream readAhead(final InputStream source, final String threadName) {
+		return readAhead(source, threadName, DEFAULT_CHUNK_SIZE, DEFAULT_CHUNK_COUNT);
+	}
+
+	public static InputStream readAhead(final InputStream source, final String threadName, final int chunkSize,
+			final int chunkCount) {
+		final BoundedPipe pipe = new BoundedPipe(chunkSize, chunkCount);
+		pipe.setOnReaderClose(source);
+
+		final Thread copier = new Thread(() -> {
+			final OutputStream sink = pipe.getOutputStream();
+			final byte[] buffer = new byte[chunkSize];
+			try {
+				int read;
+				while ((read = source.read(buffer)) != -1) {
+					sink.write(buffer, 0, read);
+				}
+				sink.close();
+			} catch (Throwable e) {
+				if (!pipe.readerClosed) {
+					pipe.fail(e);
+				}
+			} finally {
+				try {
+					source.close();
+				} catch (IOException e) {
+					Logger.getLogger(BoundedPipe.class.getName()).log(Level.FINE, "Failed to close source stream", e);
+				}
+			}
+		}, threadName);
+		copier.setDaemon(true);
+		copier.start();
+
+		return pipe.getInputStream();
+	}
+
+	private class PipeOutputStream extends OutputStream {
+
+		private byte[] chunk;
+		private int count;
+		private boolean closed;
+
+		@Override
+		public synchronized void write(final int b) throws IOException {
+			ensureOpen();
+			if (chunk == null) {
+				chunk = new byte[chunkSize];
+			}
+			chunk[count++] = (byte) b;
+			if (count == chunk.length) {
+				flushChunk();
+			}
+		}
+
+		@Override
+		public synchronized void write(final byte[] b, int off, int len) throws IOException {
+			ensureOpen();
+			while (len > 0) {
+				if (chunk == null) {
+					chunk = new byte[chunkSize];
+				}
+				final int n = Math.min(len, chunk.length - count);
+				System.arraycopy(b, off, chunk, count, n);
+				count += n;
+				off += n;
+				len -= n;
+				if (count == chunk.length) {
+					flushChunk();
+				}
+			}
+		}
+
+		@Override
+		public synchronized void flush() throws IOException {
+			ensureOpen();
+			if (count > 0) {
+				flushChunk();
+			}
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			if (count > 0 && !readerClosed) {
+				flushChunk();
+			}
+			closed = true;
+			enqueue(EOF);
+		}
+
+		private synchronized void closeQuietly() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			chunk = null;
+			count = 0;
+			try {
+				enqueue(EOF);
+			} catch (IOException e) {
+				// Reader is gone, nobody is left to notify
+			}
+		}
+
+		private void ensureOpen() throws IOException {
+			if (closed) {
+				throw new IOException("Pipe closed");
+			}
+			if (readerClosed) {
+				throw new IOException("Pipe reader closed");
+			}
+		}
+
+		private void flushChunk() throws IOException {
+			final byte[] full = count == chunk.length ? chunk : Arrays.copyOf(chunk, count);
+			chunk = null;
+			count = 0;
+			enqueue(full);
+		}
+
+		private void enqueue(final byte[] data) throws IOException {
+			try {
+				while (!queue.offer(data, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+					if (readerClosed) {
+						throw new IOException("Pipe reader closed");
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while writing to pipe");
+			}
+		}
+	}
+
+	private class PipeInputStream extends InputStream {
+
+		private byte[] chunk;
+		private int pos;
+		private boolean eof;
+
+		@Override
+		public int read() throws IOException {
+			if (!fill()) {
+				return -1;
+			}
+			return chunk[pos++] & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!fill()) {
+				return -1;
+			}
+			final int n = Math.min(len, chunk.length - pos);
+			System.arraycopy(chunk, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return chunk == null ? 0 : chunk.length - pos;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (readerClosed) {
+				return;
+			}
+			readerClosed = true;
+			queue.clear();
+			chunk = null;
+			final Closeable closeable = onReaderClose;
+			if (closeable != null) {
+				closeable.close();
+			}
+		}
+
+		private boolean fill() throws IOException {
+			if (readerClosed) {
+				throw new IOException("Pipe closed");
+			}
+			while (chunk == null || pos == chunk.length) {
+				if (eof) {
+					return false;
+				}
+				byte[] next;
+				try {
+					// Polled, so that closing the reader from another thread releases this one
+					while ((next = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+						if (readerClosed) {
+							throw new IOException("Pipe closed");
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while reading from pipe");
+				}
+				if (next == EOF) {
+					eof = true;
+					chunk = null;
+					final Throwable cause = failure;
+					if (cause != null) {
+						throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+					}
+					return false;
+				}
+				chunk = next;
+				pos = 0;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,360 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.util.Arrays;
+
+/**
+ * Node positions from a CX cartesianLayout aspect, kept in primitive columns
+ * until a view is created for the network.
+ *
+ * Positions are added by CX node id while the network is read, along with a
+ * hash of each node's name. Once the CX reader has created the nodes,
+ * {@link #resolve(long[], String[])} checks the names, rekeys the positions by
+ * node SUID and drops the CX ids. The z column is only allocated when a node
+ * has a non-zero z, and the columns are sized from the expected node count up
+ * front, so tens of millions of nodes cost 40 bytes each until resolved.
+ */
+public class CartesianLayoutStore {
+
+	private static final int MIN_CAPACITY = 1024;
+
+	private long[] keys;
+	private double[] xs;
+	private double[] ys;
+	private double[] zs;
+	private int size;
+	private boolean sorted = true;
+	private boolean resolved;
+
+	private long[] nodeIds;
+	private long[] nameHashes;
+	private int nodeCount;
+	private boolean nodesSorted = true;
+
+	public CartesianLayoutStore() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param expectedNodes
+	 *            - number of nodes the network is expected to have, used to size
+	 *            the columns
+	 */
+	public CartesianLayoutStore(final int expectedNodes) {
+		final int capacity = Math.max(MIN_CAPACITY, expectedNodes);
+		keys = new long[capacity];
+		xs = new double[capacity];
+		ys = new double[capacity];
+		nodeIds = new long[capacity];
+		nameHashes = new long[capacity];
+	}
+
+	private static int grow(final int capacity) {
+		return (int) Math.min(Integer.MAX_VALUE - 8, capacity + (long) (capacity >> 1));
+	}
+
+	/**
+	 * Adds the position of a node by CX id.
+	 */
+	public synchronized void add(final long nodeId, final double x, final double y, final double z) {
+		if (resolved) {
+			throw new IllegalStateException("Positions are already keyed by SUID");
+		}
+		if (size == keys.length) {
+			final int capacity = grow(keys.length);
+			keys = Arrays.copyOf(keys, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			if (zs != null) {
+				zs = Arrays.copyOf(zs, capacity);
+			}
+		}
+		if (size > 0 && keys[size - 1] >= nodeId) {
+			sorted = false;
+		}
+		if (z != 0 && zs == null) {
+			zs = new double[keys.length];
+		}
+		keys[size] = nodeId;
+		xs[size] = x;
+		ys[size] = y;
+		if (zs != null) {
+			zs[size] = z;
+		}
+		size++;
+	}
+
+	/**
+	 * Records a node of the nodes aspect, whether or not it has a position.
+	 *
+	 * @param name
+	 *            - name of the node in the CX, or null if it has none
+	 */
+	public synchronized void addNode(final long nodeId, final String name) {
+		if (nodeCount == nodeIds.length) {
+			nodeIds = Arrays.copyOf(nodeIds, grow(nodeIds.length));
+			nameHashes = Arrays.copyOf(nameHashes, nodeIds.length);
+		}
+		if (nodeCount > 0 && nodeIds[nodeCount - 1] >= nodeId) {
+			nodesSorted = false;
+		}
+		nodeIds[nodeCount] = nodeId;
+		nameHashes[nodeCount] = hashName(name);
+		nodeCount++;
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of a name, never 0 so that 0 can stand for no name.
+	 */
+	static long hashName(final String name) {
+		if (name == null) {
+			return 0;
+		}
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < name.length(); i++) {
+			hash = (hash ^ name.charAt(i)) * 0x100000001b3L;
+		}
+		return hash == 0 ? 1 : hash;
+	}
+
+	/**
+	 * Number of nodes recorded from the nodes aspect.
+	 */
+	public synchronized int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Rekeys the positions by SUID. The CX reader usually creates nodes in
+	 * ascending CX id order, so the n-th smallest SUID belongs to the node with
+	 * the n-th smallest CX id; this is checked against the name of every node,
+	 * where nodes without a name in the CX match any name. If the order does not
+	 * hold, nodes are matched by name instead, which needs every node to have a
+	 * unique name.
+	 *
+	 * @param suids
+	 *            - SUIDs of all nodes the reader created, in ascending order
+	 * @param names
+	 *            - names of the same nodes, in the same order
+	 * @return false if they do not match the recorded nodes, in which case the
+	 *         store should be discarded
+	 */
+	public synchronized boolean resolve(final long[] suids, final String[] names) {
+		if (resolved) {
+			return true;
+		}
+		if (suids.length != nodeCount || names.length != nodeCount) {
+			return false;
+		}
+		sortNodes();
+		final long[] resolvedKeys = isInCreationOrder(names) ? mapInOrder(suids) : mapByName(suids, names);
+		if (resolvedKeys == null) {
+			return false;
+		}
+		keys = resolvedKeys;
+		sorted = false;
+		nodeIds = null;
+		nameHashes = null;
+		nodeCount = 0;
+		resolved = true;
+		trim();
+		return true;
+	}
+
+	private boolean isInCreationOrder(final String[] names) {
+		for (int i = 0; i < nodeCount; i++) {
+			if (nameHashes[i] != 0 && nameHashes[i] != hashName(names[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the SUID of each position, or null if a position has no node
+	 */
+	private long[] mapInOrder(final long[] suids) {
+		final long[] suidKeys = new long[keys.length];
+		for (int i = 0; i < size; i++) {
+			final int index = Arrays.binarySearch(nodeIds, 0, nodeCount, keys[i]);
+			if (index < 0) {
+				return null;
+			}
+			suidKeys[i] = suids[index];
+		}
+		return suidKeys;
+	}
+
+	/**
+	 * @return the SUID of each position, or null if a position has no node or
+	 *         the names do not pair up the nodes one to one
+	 */
+	private long[] mapByName(final long[] suids, final String[] names) {
+		final long[] createdHashes = new long[nodeCount];
+		final long[] createdSuids = suids.clone();
+		for (int i = 0; i < nodeCount; i++) {
+			createdHashes[i] = hashName(names[i]);
+		}
+		sort(createdHashes, createdSuids, 0, nodeCount - 1);
+		for (int i = 1; i < nodeCount; i++) {
+			if (createdHashes[i] == createdHashes[i - 1]) {
+				return null;
+			}
+		}
+		// Equal counts and unique created names: a one to one match needs every CX name found once
+		final boolean[] matched = new boolean[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			final int index = nameHashes[i] == 0 ? -1
+					: Arrays.binarySearch(createdHashes, 0, nodeCount, nameHashes[i]);
+			if (index < 0 || matched[index]) {
+				return null;
+			}
+			matched[index] = true;
+		}
+		final long[] suidKeys = new long[keys.length];
+		for (int i = 0; i < size; i++) {
+			final int node = Arrays.binarySearch(nodeIds, 0, nodeCount, keys[i]);
+			if (node < 0) {
+				return null;
+			}
+			suidKeys[i] = createdSuids[Arrays.binarySearch(createdHashes, 0, nodeCount, nameHashes[node])];
+		}
+		return suidKeys;
+	}
+
+	private void sortNodes() {
+		if (!nodesSorted) {
+			sort(nodeIds, nameHashes, 0, nodeCount - 1);
+			nodesSorted = true;
+		}
+	}
+
+	/**
+	 * Quicksort of two columns by the first, recursing into the smaller part
+	 * only.
+	 */
+	private static void sort(final long[] keys, final long[] values, int low, int high) {
+		while (low < high) {
+			final long pivot = keys[(low + high) >>> 1];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (keys[i] < pivot) {
+					i++;
+				}
+				while (keys[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(keys, i, j);
+					swap(values, i++, j--);
+				}
+			}
+			if (j - low < high - i) {
+				sort(keys, values, low, j);
+				low = i;
+			} else {
+				sort(keys, values, i, high);
+				high = j;
+			}
+		}
+	}
+
+	private static void swap(final long[] column, final int a, final int b) {
+		final long value = column[a];
+		column[a] = column[b];
+		column[b] = value;
+	}
+
+	public synchronized boolean isResolved() {
+		return resolved;
+	}
+
+	private void trim() {
+		if (keys.length - size > MIN_CAPACITY) {
+			keys = Arrays.copyOf(keys, size);
+			xs = Arrays.copyOf(xs, size);
+			ys = Arrays.copyOf(ys, size);
+			if (zs != null) {
+				zs = Arrays.copyOf(zs, size);
+			}
+		}
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Copies the position of a node into {@code position} as x, y, z.
+	 *
+	 * @param key
+	 *            - SUID once resolved, CX id before
+	 * @return false if the store has no position for the node
+	 */
+	public synchronized boolean get(final long key, final double[] position) {
+		sort();
+		final int index = Arrays.binarySearch(keys, 0, size, key);
+		if (index < 0) {
+			return false;
+		}
+		position[0] = xs[index];
+		position[1] = ys[index];
+		position[2] = zs == null ? 0 : zs[index];
+		return true;
+	}
+
+	private void sort() {
+		if (!sorted) {
+			sort(0, size - 1);
+			sorted = true;
+		}
+	}
+
+	private void sort(int low, int high) {
+		// Quicksort of all columns by key, recursing into the smaller part only
+		while (low < high) {
+			final long pivot = keys[(low + high) >>> 1];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (keys[i] < pivot) {
+					i++;
+				}
+				while (keys[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(i++, j--);
+				}
+			}
+			if (j - low < high - i) {
+				sort(low, j);
+				low = i;
+			} else {
+				sort(i, high);
+				high = j;
+			}
+		}
+	}
+
+	private void swap(final int a, final int b) {
+		final long key = keys[a];
+		keys[a] = keys[b];
+		keys[b] = key;
+		double value = xs[a];
+		xs[a] = xs[b];
+		xs[b] = value;
+		value = ys[a];
+		ys[a] = ys[b];
+		ys[b] = value;
+		if (zs != null) {
+			value = zs[a];
+			zs[a] = zs[b];
+			zs[b] = value;
+		}
+	}
+}
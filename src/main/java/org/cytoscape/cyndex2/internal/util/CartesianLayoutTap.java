@@ -0,0 +1,232 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Passes a CX stream through unchanged while a background thread collects its
+ * cartesianLayout aspect into a {@link CartesianLayoutStore}, so the layout of
+ * a network imported without a view is not lost.
+ *
+ * The bytes read by the consumer are handed to the collector through a
+ * {@link BoundedPipe}. If the collector fails, the stream carries on without
+ * it and the store is left incomplete.
+ */
+public class CartesianLayoutTap extends FilterInputStream {
+
+	private static final Logger logger = Logger.getLogger(CartesianLayoutTap.class.getName());
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	public static final String ASPECT = "cartesianLayout";
+	private static final String NODES = "nodes";
+
+	private final CartesianLayoutStore store;
+	private final BoundedPipe pipe = new BoundedPipe();
+	private final Thread collector;
+	private volatile boolean failed;
+	private volatile OutputStream sink;
+
+	/**
+	 * @param expectedNodes
+	 *            - node count from the network summary, to size the store
+	 */
+	public CartesianLayoutTap(final InputStream in, final String threadName, final int expectedNodes) {
+		super(in);
+		store = new CartesianLayoutStore(expectedNodes);
+		sink = pipe.getOutputStream();
+		collector = new Thread(() -> {
+			try (InputStream cx = pipe.getInputStream()) {
+				collect(cx, store);
+			} catch (IOException | RuntimeException e) {
+				failed = true;
+				logger.log(Level.FINE, "Stopped collecting the CX layout", e);
+			}
+		}, threadName);
+		collector.setDaemon(true);
+		collector.start();
+	}
+
+	/**
+	 * Reads the cartesianLayout elements and the node ids and names of a CX
+	 * document into a store.
+	 */
+	public static void collect(final InputStream in, final CartesianLayoutStore store) throws IOException {
+		try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("CX must be a JSON array");
+			}
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					final String aspect = parser.getCurrentName();
+					final JsonToken value = parser.nextToken();
+					final boolean layout = ASPECT.equals(aspect);
+					if (!(layout || NODES.equals(aspect)) || value != JsonToken.START_ARRAY) {
+						parser.skipChildren();
+						continue;
+					}
+					JsonToken token;
+					while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+						if (layout) {
+							readElement(parser, store);
+						} else {
+							readNode(parser, store);
+						}
+					}
+					if (token != JsonToken.END_ARRAY) {
+						throw new IOException("Unexpected end of CX in aspect " + aspect);
+					}
+				}
+			}
+		}
+	}
+
+	private static void readNode(final JsonParser parser, final CartesianLayoutStore store) throws IOException {
+		Long id = null;
+		String name = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = parser.getCurrentName();
+			final JsonToken token = parser.nextToken();
+			if (token == null) {
+				throw new IOException("Unexpected end of CX in aspect " + NODES);
+			}
+			if ("@id".equals(field) && token.isNumeric()) {
+				id = parser.getLongValue();
+			} else if ("n".equals(field) && token == JsonToken.VALUE_STRING) {
+				name = parser.getText();
+			} else {
+				parser.skipChildren();
+			}
+		}
+		if (id != null) {
+			store.addNode(id, name);
+		}
+	}
+
+	private static void readElement(final JsonParser parser, final CartesianLayoutStore store) throws IOException {
+		Long node = null;
+		double x = 0;
+		double y = 0;
+		double z = 0;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			final String field = parser.getCurrentName();
+			final JsonToken token = parser.nextToken();
+			if (token == null) {
+				throw new IOException("Unexpected end of CX in aspect " + ASPECT);
+			}
+			if (!token.isNumeric()) {
+				parser.skipChildren();
+				continue;
+			}
+			switch (field) {
+			case "node":
+				node = parser.getLongValue();
+				break;
+			case "x":
+				x = parser.getDoubleValue();
+				break;
+			case "y":
+				y = parser.getDoubleValue();
+				break;
+			case "z":
+				z = parser.getDoubleValue();
+				break;
+			default:
+				break;
+			}
+		}
+		if (node != null) {
+			store.add(node, x, y, z);
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		final int b = super.read();
+		if (b != -1) {
+			tee(new byte[] { (byte) b }, 0, 1);
+		} else {
+			endTee();
+		}
+		return b;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		final int n = super.read(b, off, len);
+		if (n > 0) {
+			tee(b, off, n);
+		} else if (n == -1) {
+			endTee();
+		}
+		return n;
+	}
+
+	private void tee(final byte[] b, final int off, final int len) {
+		final OutputStream sink = this.sink;
+		if (sink == null) {
+			return;
+		}
+		try {
+			sink.write(b, off, len);
+		} catch (IOException e) {
+			// The collector is done or gave up; the import goes on without it
+			this.sink = null;
+		}
+	}
+
+	private void endTee() {
+		final OutputStream sink = this.sink;
+		if (sink == null) {
+			return;
+		}
+		this.sink = null;
+		try {
+			sink.close();
+		} catch (IOException e) {
+			// Collector already stopped reading
+		}
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		// Skipped bytes must still reach the collector
+		if (n <= 0) {
+			return 0;
+		}
+		final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+		long skipped = 0;
+		while (skipped < n) {
+			final int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+			if (read == -1) {
+				break;
+			}
+			skipped += read;
+		}
+		return skipped;
+	}
+
+	@Override
+	public void close() throws IOException {
+		endTee();
+		super.close();
+	}
+
+	/**
+	 * Waits for the collector to finish reading what was passed through.
+	 *
+	 * @return the collected layout, or null if it is incomplete or empty
+	 */
+	public CartesianLayoutStore getStore() throws InterruptedException {
+		endTee();
+		collector.join();
+		return failed || store.isEmpty() ? null : store;
+	}
+}
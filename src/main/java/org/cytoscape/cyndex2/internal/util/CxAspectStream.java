@@ -0,0 +1,117 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Joins separately downloaded aspects into one CX document, so that the CX
+ * reader can import a network from a subset of its aspects.
+ *
+ * Each aspect is opened only when the reader gets to it, so at most one
+ * download is open at a time.
+ */
+public class CxAspectStream extends InputStream {
+
+	private static final String HEADER = "[{\"numberVerification\":[{\"longNumber\":281474976710655}]}";
+	private static final String FOOTER = ",{\"status\":[{\"error\":\"\",\"success\":true}]}]";
+
+	/**
+	 * Opens the elements of one aspect as a JSON array.
+	 */
+	@FunctionalInterface
+	public interface AspectSource {
+		InputStream open(String aspect) throws IOException;
+	}
+
+	@FunctionalInterface
+	private interface Part {
+		InputStream open() throws IOException;
+	}
+
+	private final List<Part> parts = new ArrayList<>();
+	private int next;
+	private InputStream current;
+	private boolean closed;
+
+	/**
+	 * @param metaData
+	 *            - JSON array with the metadata of the given aspects
+	 * @param aspects
+	 *            - names of the aspects, in the order they are written
+	 */
+	public CxAspectStream(final String metaData, final List<String> aspects, final AspectSource source) {
+		parts.add(() -> text(HEADER + ",{\"metaData\":" + metaData + "}"));
+		for (String aspect : aspects) {
+			parts.add(() -> text(",{\"" + aspect + "\":"));
+			parts.add(() -> source.open(aspect));
+			parts.add(() -> text("}"));
+		}
+		parts.add(() -> text(FOOTER));
+	}
+
+	private static InputStream text(final String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private boolean advance() throws IOException {
+		if (current != null) {
+			current.close();
+			current = null;
+		}
+		if (next >= parts.size()) {
+			return false;
+		}
+		current = parts.get(next++).open();
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		do {
+			if (current != null) {
+				final int b = current.read();
+				if (b != -1) {
+					return b;
+				}
+			}
+		} while (advance());
+		return -1;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		if (len == 0) {
+			return 0;
+		}
+		do {
+			if (current != null) {
+				final int n = current.read(b, off, len);
+				if (n > 0) {
+					return n;
+				}
+			}
+		} while (advance());
+		return -1;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		next = parts.size();
+		if (current != null) {
+			// Aborts the aspect download in progress; later aspects are never opened
+			current.close();
+			current = null;
+		}
+	}
+}
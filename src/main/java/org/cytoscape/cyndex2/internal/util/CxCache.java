@@ -0,0 +1,359 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * On-disk cache of downloaded CX, so networks that have not changed on NDEx
+ * are not downloaded again.
+ *
+ * Entries are keyed by server, network UUID and NDEx modification time, so an
+ * edited network simply misses the cache. The total size is bounded; the
+ * least recently used entries are removed first. File modification times serve
+ * as the access stamps, so the order survives restarts.
+ */
+public class CxCache {
+
+	private static final String SUFFIX = ".cx";
+	private static final int FILE_BUFFER_SIZE = 256 * 1024;
+	// Bytes a closed download is read on to find its end, e.g. whitespace after the closing bracket
+	private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+	private final File directory;
+	private final long maxBytes;
+
+	/**
+	 * @param directory directory holding the cached files
+	 * @param maxBytes  total size above which old entries are evicted; 0 or less disables the cache
+	 */
+	public CxCache(final File directory, final long maxBytes) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	public boolean isEnabled() {
+		return maxBytes > 0;
+	}
+
+	public static String getKey(final String serverUrl, final String uuid, final long modificationTime) {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			final String key = String.valueOf(UrlUtils.getBaseRoute(serverUrl)) + "\n" + uuid + "\n" + modificationTime;
+			final StringBuilder sb = new StringBuilder();
+			for (byte b : digest.digest(key.getBytes(StandardCharsets.UTF_8))) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+
+	/**
+	 * Opens the cached CX for the key, or returns null on a miss.
+	 */
+	public InputStream open(final String key) {
+		if (!isEnabled()) {
+			return null;
+		}
+		final Path file = getPath(key);
+		try {
+			final InputStream in = Files.newInputStream(file);
+			touch(file);
+			return in;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the cached file for the key, or null on a miss.
+	 */
+	public File openFile(final String key) {
+		if (!isEnabled()) {
+			return null;
+		}
+		final Path file = getPath(key);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		touch(file);
+		return file.toFile();
+	}
+
+	/**
+	 * Moves a completely downloaded file into the cache. Returns the cached
+	 * file, or null if the file was left where it is because it does not fit.
+	 */
+	public File store(final String key, final Path file) throws IOException {
+		if (!isEnabled() || Files.size(file) > maxBytes) {
+			return null;
+		}
+		directory.mkdirs();
+		final Path target = getPath(key);
+		try {
+			Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+		touch(target);
+		evict();
+		return target.toFile();
+	}
+
+	/**
+	 * Wraps a download so that everything read from it is also written to the
+	 * cache. The entry only becomes visible once the stream has been read to the
+	 * end; a download that is closed early or fails leaves nothing behind.
+	 */
+	public InputStream cacheWhileReading(final String key, final InputStream source) {
+		return cacheWhileReading(key, source, -1);
+	}
+
+	/**
+	 * Like {@link #cacheWhileReading(String, InputStream)}. A stream closed within
+	 * a few kilobytes of its end is read to the end on close, so that the entry is
+	 * stored even if the reader stopped at the closing bracket.
+	 *
+	 * @param expectedLength size of the download, or -1 if unknown, in which case
+	 *            every closed stream is read on a few kilobytes
+	 */
+	public InputStream cacheWhileReading(final String key, final InputStream source, final long expectedLength) {
+		if (!isEnabled()) {
+			return source;
+		}
+		try {
+			directory.mkdirs();
+			final Path temp = Files.createTempFile(directory.toPath(), key, ".part");
+			return new TeeInputStream(source, temp, getPath(key), expectedLength);
+		} catch (IOException e) {
+			Logger.getLogger(CxCache.class.getName()).log(Level.WARNING, "Unable to write to CX cache", e);
+			return source;
+		}
+	}
+
+	/**
+	 * Total size of all entries in bytes.
+	 */
+	public long size() {
+		long size = 0;
+		for (File file : listEntries()) {
+			size += file.length();
+		}
+		return size;
+	}
+
+	public void clear() {
+		for (File file : listEntries()) {
+			file.delete();
+		}
+	}
+
+	private synchronized void evict() {
+		final List<File> entries = listEntries();
+		long size = 0;
+		for (File file : entries) {
+			size += file.length();
+		}
+		if (size <= maxBytes) {
+			return;
+		}
+		entries.sort(Comparator.comparingLong(File::lastModified));
+		for (File file : entries) {
+			if (size <= maxBytes) {
+				break;
+			}
+			final long length = file.length();
+			if (file.delete()) {
+				size -= length;
+			}
+		}
+	}
+
+	private List<File> listEntries() {
+		final List<File> entries = new ArrayList<>();
+		final File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+		if (files != null) {
+			for (File file : files) {
+				entries.add(file);
+			}
+		}
+		return entries;
+	}
+
+	private Path getPath(final String key) {
+		return new File(directory, key + SUFFIX).toPath();
+	}
+
+	private static void touch(final Path file) {
+		try {
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			Logger.getLogger(CxCache.class.getName()).log(Level.FINE, "Failed to update access time of " + file, e);
+		}
+	}
+
+	private class TeeInputStream extends FilterInputStream {
+
+		private final Path temp;
+		private final Path target;
+		private final long expectedLength;
+		private OutputStream out;
+		private long written;
+
+		TeeInputStream(final InputStream in, final Path temp, final Path target, final long expectedLength)
+				throws IOException {
+			super(in);
+			this.temp = temp;
+			this.target = target;
+			this.expectedLength = expectedLength;
+			this.out = new BufferedOutputStream(Files.newOutputStream(temp), FILE_BUFFER_SIZE);
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int b = readThrough(() -> super.read());
+			if (b != -1) {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			final int n = readThrough(() -> super.read(b, off, len));
+			if (n > 0) {
+				write(b, off, n);
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			// Skipped bytes would leave a hole in the cached copy
+			final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+			final int read = read(buffer, 0, buffer.length);
+			return Math.max(read, 0);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				// A reader may stop at the closing bracket without reading to the end
+				if (out != null && (expectedLength < 0 || expectedLength - written <= MAX_DRAIN_BYTES)) {
+					drain();
+				}
+			} finally {
+				try {
+					super.close();
+				} finally {
+					discard();
+				}
+			}
+		}
+
+		/**
+		 * Reads on a little, which stores the entry if the end is reached.
+		 */
+		private void drain() {
+			final byte[] buffer = new byte[8192];
+			try {
+				for (int drained = 0; drained <= MAX_DRAIN_BYTES;) {
+					final int n = read(buffer, 0, buffer.length);
+					if (n == -1) {
+						return;
+					}
+					drained += n;
+				}
+			} catch (IOException | RuntimeException e) {
+				Logger.getLogger(CxCache.class.getName()).log(Level.FINE, "Failed to read to the end of " + target, e);
+			}
+		}
+
+		private int readThrough(final Read read) throws IOException {
+			final int n;
+			try {
+				n = read.read();
+			} catch (IOException | RuntimeException e) {
+				discard();
+				throw e;
+			}
+			if (n == -1) {
+				commit();
+			}
+			return n;
+		}
+
+		private void write(final byte[] b, final int off, final int len) {
+			if (out == null) {
+				return;
+			}
+			try {
+				out.write(b, off, len);
+				written += len;
+			} catch (IOException e) {
+				// Caching is best effort; the import itself carries on
+				Logger.getLogger(CxCache.class.getName()).log(Level.WARNING, "Failed to write to CX cache", e);
+				discard();
+			}
+		}
+
+		private void commit() {
+			if (out == null) {
+				return;
+			}
+			try {
+				out.close();
+				out = null;
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				evict();
+			} catch (IOException e) {
+				Logger.getLogger(CxCache.class.getName()).log(Level.WARNING, "Failed to store " + target, e);
+				discard();
+			}
+		}
+
+		private void discard() {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					Logger.getLogger(CxCache.class.getName()).log(Level.FINE, "Failed to close " + temp, e);
+				}
+				out = null;
+			}
+			try {
+				Files.deleteIfExists(temp);
+			} catch (IOException e) {
+				temp.toFile().deleteOnExit();
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface Read {
+		int read() throws IOException;
+	}
+}
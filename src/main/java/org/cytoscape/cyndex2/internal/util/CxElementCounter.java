@@ -0,0 +1,66 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Counts the nodes and edges of a CX document without building it in memory,
+ * e.g. to tell the user how large a query result is before importing it.
+ */
+public class CxElementCounter {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private long nodes;
+	private long edges;
+
+	public long getNodeCount() {
+		return nodes;
+	}
+
+	public long getEdgeCount() {
+		return edges;
+	}
+
+	/**
+	 * Reads the whole stream, adding up the elements of every nodes and edges
+	 * fragment, and closes it.
+	 */
+	public static CxElementCounter count(final InputStream in) throws IOException {
+		final CxElementCounter counter = new CxElementCounter();
+		try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("CX must be a JSON array");
+			}
+			// Each fragment is an object with a single aspect name -> array of elements
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					final String aspect = parser.getCurrentName();
+					if (parser.nextToken() != JsonToken.START_ARRAY) {
+						parser.skipChildren();
+						continue;
+					}
+					long elements = 0;
+					JsonToken token;
+					while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+						if (token == null) {
+							throw new IOException("Unexpected end of CX in aspect " + aspect);
+						}
+						parser.skipChildren();
+						elements++;
+					}
+					if ("nodes".equals(aspect)) {
+						counter.nodes += elements;
+					} else if ("edges".equals(aspect)) {
+						counter.edges += elements;
+					}
+				}
+			}
+		}
+		return counter;
+	}
+}
@@ -1,5 +1,6 @@
 package org.cytoscape.cyndex2.internal.util;
 
+import java.io.File;
 import java.util.Properties;
 
 import org.cytoscape.cyndex2.internal.CyServiceModule;
@@ -22,6 +23,7 @@ public class CxPreferences {
 	public enum CreateViewEnum {
 		ALWAYS("Always", "Always create a view, regardless of network size"),
 		AUTO("Auto", "Create views for smaller networks only"),
+		ADAPTIVE("Adaptive", "Create views when this computer is predicted to handle them"),
 		NEVER("Never", "Never create views, regardless of network size");
 
 		private final String displayName;
@@ -41,21 +43,28 @@ public class CxPreferences {
 		}
 	}
 
+	// The CX reader also reads cx.createView, so adaptive is stored as auto plus this flag
+	public static final String ADAPTIVE_VIEW_PROPERTY = "cyndex2.adaptiveView";
+
 	public static CreateViewEnum getCreateView() {
 		final String property = getProperty(CREATE_VIEW_PROPERTY);
 		return CreateViewEnum.ALWAYS.toString().toLowerCase().equals(property) ? CreateViewEnum.ALWAYS
 				: CreateViewEnum.NEVER.toString().toLowerCase().equals(property) ? CreateViewEnum.NEVER
-						: CreateViewEnum.AUTO;
+						: Boolean.TRUE.toString().equals(getProperty(ADAPTIVE_VIEW_PROPERTY)) ? CreateViewEnum.ADAPTIVE
+								: CreateViewEnum.AUTO;
 	}
 
 	public static void setCreateView(CreateViewEnum createView) {
-		setProperty(CREATE_VIEW_PROPERTY, createView.toString().toLowerCase());
+		final boolean adaptive = createView == CreateViewEnum.ADAPTIVE;
+		setProperty(CREATE_VIEW_PROPERTY, (adaptive ? CreateViewEnum.AUTO : createView).toString().toLowerCase());
+		setProperty(ADAPTIVE_VIEW_PROPERTY, Boolean.toString(adaptive));
 	}
 	
 	public static final String APPLY_LAYOUT_PROPERTY = "cx.applyLayout";
 
 	public enum ApplyLayoutEnum {
 		AUTO("Auto", "Apply a layout for smaller networks only"),
+		ADAPTIVE("Adaptive", "Apply a layout when it is predicted to finish quickly on this computer"),
 		NEVER("Never", "Never apply a layout, regardless of network size");
 
 		private final String displayName;
@@ -75,14 +84,60 @@ public class CxPreferences {
 		}
 	}
 
+	// Like cx.createView, cx.applyLayout keeps auto for the CX reader in adaptive mode
+	public static final String ADAPTIVE_LAYOUT_PROPERTY = "cyndex2.adaptiveLayout";
+
 	public static ApplyLayoutEnum getApplyLayout() {
 		final String property = getProperty(APPLY_LAYOUT_PROPERTY);
 		return ApplyLayoutEnum.NEVER.toString().toLowerCase().equals(property) ? ApplyLayoutEnum.NEVER
-				: ApplyLayoutEnum.AUTO;
+				: Boolean.TRUE.toString().equals(getProperty(ADAPTIVE_LAYOUT_PROPERTY)) ? ApplyLayoutEnum.ADAPTIVE
+						: ApplyLayoutEnum.AUTO;
 	}
 
 	public static void setApplyLayout(ApplyLayoutEnum applyLayout) {
-		setProperty(APPLY_LAYOUT_PROPERTY, applyLayout.toString().toLowerCase());
+		final boolean adaptive = applyLayout == ApplyLayoutEnum.ADAPTIVE;
+		setProperty(APPLY_LAYOUT_PROPERTY, (adaptive ? ApplyLayoutEnum.AUTO : applyLayout).toString().toLowerCase());
+		setProperty(ADAPTIVE_LAYOUT_PROPERTY, Boolean.toString(adaptive));
+	}
+	
+	public static final String DEFER_VIEWS_PROPERTY = "cx.deferViews";
+
+	/**
+	 * True when large networks imported from the Find Networks dialog are
+	 * registered without a view first, and the view is created in the
+	 * background once the network is focused. Deferred views get the default
+	 * style instead of the CX visual properties, so this is off by default.
+	 */
+	public static boolean isDeferViews() {
+		return Boolean.TRUE.toString().equals(getProperty(DEFER_VIEWS_PROPERTY));
+	}
+	
+	/**
+	 * True if a network is too large to create a view for without asking, by the
+	 * view threshold or, in adaptive mode, by the predicted heap and time.
+	 *
+	 * @param cxBytes
+	 *            - size of the CX, or 0 if unknown
+	 */
+	public static boolean isLargeNetwork(long nodes, long edges, long cxBytes) {
+		if (getCreateView() == CreateViewEnum.ADAPTIVE) {
+			return !MachineCapacity.get().canCreateView(nodes, edges, cxBytes);
+		}
+		return nodes + edges > getViewThreshold();
+	}
+
+	/**
+	 * True if a layout should be applied to a network without one.
+	 */
+	public static boolean isLayoutApplied(long nodes, long edges) {
+		switch (getApplyLayout()) {
+		case NEVER:
+			return false;
+		case ADAPTIVE:
+			return MachineCapacity.get().canApplyLayout(nodes, edges);
+		default:
+			return nodes < getLargeLayoutThreshold();
+		}
 	}
 	
 	public static final String LARGE_LAYOUT_THRESHOLD_PROPERTY = "cx.largeLayoutThreshold";
@@ -97,9 +152,165 @@ public class CxPreferences {
 		setProperty(LARGE_LAYOUT_THRESHOLD_PROPERTY,  Integer.toString(largeLayoutThreshold));
 	}
 	
+	public static final String EXPORT_BUFFER_PROPERTY = "cx.exportBuffer";
+	public static final String EXPORT_BUFFER_DISK = "disk";
+
+	/**
+	 * True when exports should be serialized to a buffer (spilling to disk) before
+	 * upload, instead of being streamed to NDEx while they are written.
+	 */
+	public static boolean isDiskExportBuffer() {
+		return EXPORT_BUFFER_DISK.equals(getProperty(EXPORT_BUFFER_PROPERTY));
+	}
+
+	public static final String EXPORT_SPILL_THRESHOLD_PROPERTY = "cx.exportSpillThreshold";
+
+	public static final int DEF_EXPORT_SPILL_THRESHOLD = 64;
+
+	/**
+	 * Size in megabytes above which a buffered export is moved to a temporary file.
+	 */
+	public static Integer getExportSpillThreshold() {
+		return getIntegerProperty(EXPORT_SPILL_THRESHOLD_PROPERTY, DEF_EXPORT_SPILL_THRESHOLD);
+	}
+	
+	public static final String UPLOAD_COMPRESSION_PROPERTY = "cx.uploadCompression";
+	public static final String UPLOAD_COMPRESSION_GZIP = "gzip";
+
+	/**
+	 * True when exports should be uploaded as gzip-compressed request bodies.
+	 * Only enable this for servers that accept Content-Encoding: gzip.
+	 */
+	public static boolean isGzipUpload() {
+		return UPLOAD_COMPRESSION_GZIP.equals(getProperty(UPLOAD_COMPRESSION_PROPERTY));
+	}
+
+	public static final String IMPORT_BUFFER_PROPERTY = "cx.importBuffer";
+	public static final String IMPORT_BUFFER_DISK = "disk";
+
+	/**
+	 * Directory that imports are spooled to before being parsed from a memory
+	 * mapping, or null when imports are parsed while they are downloaded.
+	 */
+	public static File getImportSpoolDirectory() {
+		if (!IMPORT_BUFFER_DISK.equals(getProperty(IMPORT_BUFFER_PROPERTY))) {
+			return null;
+		}
+		return getSpoolDirectory();
+	}
+
+	/**
+	 * Directory that spooled and resumable downloads are written to.
+	 */
+	public static File getSpoolDirectory() {
+		return new File(CyServiceModule.INSTANCE.getConfigDir(), "cx-spool");
+	}
+
+	public static final String RESUMABLE_DOWNLOAD_THRESHOLD_PROPERTY = "cx.resumableDownloadThreshold";
+
+	public static final int DEF_RESUMABLE_DOWNLOAD_THRESHOLD = 512;
+
+	/**
+	 * Size in megabytes from which networks are downloaded to the spool directory
+	 * with resumable range requests, even when imports are otherwise parsed while
+	 * they are downloaded; 0 disables this. Range requests are uncompressed, so
+	 * this trades gzip for being able to resume only for very large networks.
+	 */
+	public static Integer getResumableDownloadThreshold() {
+		return getIntegerProperty(RESUMABLE_DOWNLOAD_THRESHOLD_PROPERTY, DEF_RESUMABLE_DOWNLOAD_THRESHOLD);
+	}
+
+	public static final String DOWNLOAD_SEGMENTS_PROPERTY = "cx.downloadSegments";
+
+	public static final int DEF_DOWNLOAD_SEGMENTS = 1;
+
+	/**
+	 * Number of connections a large network is downloaded over; 1, the default,
+	 * disables segmented downloads. Byte ranges are requested uncompressed, so
+	 * segments only pay off where bandwidth per connection is the limit rather
+	 * than the size of the transfer, which gzip typically shrinks several times.
+	 */
+	public static Integer getDownloadSegments() {
+		return getIntegerProperty(DOWNLOAD_SEGMENTS_PROPERTY, DEF_DOWNLOAD_SEGMENTS);
+	}
+
+	public static final String SEGMENTED_DOWNLOAD_THRESHOLD_PROPERTY = "cx.segmentedDownloadThreshold";
+
+	public static final int DEF_SEGMENTED_DOWNLOAD_THRESHOLD = 64;
+
+	/**
+	 * Size in megabytes from which networks are downloaded over several
+	 * connections.
+	 */
+	public static Integer getSegmentedDownloadThreshold() {
+		return getIntegerProperty(SEGMENTED_DOWNLOAD_THRESHOLD_PROPERTY, DEF_SEGMENTED_DOWNLOAD_THRESHOLD);
+	}
+
+	public static boolean isSegmentedDownload(long cxFileSize) {
+		final long threshold = getSegmentedDownloadThreshold() * 1024L * 1024L;
+		return getDownloadSegments() > 1 && threshold > 0 && cxFileSize >= threshold;
+	}
+
+	/**
+	 * Spool directory for a network of the given CX size, or null if it should be
+	 * parsed while it is downloaded.
+	 */
+	public static File getImportSpoolDirectory(long cxFileSize) {
+		final File directory = getImportSpoolDirectory();
+		if (directory != null) {
+			return directory;
+		}
+		final long threshold = getResumableDownloadThreshold() * 1024L * 1024L;
+		if ((threshold <= 0 || cxFileSize < threshold) && !isSegmentedDownload(cxFileSize)) {
+			return null;
+		}
+		return getSpoolDirectory();
+	}
+
+	public static final String COLLECTION_PARALLELISM_PROPERTY = "cx.collectionParallelism";
+
+	public static final int DEF_COLLECTION_PARALLELISM = 1;
+
+	/**
+	 * Above 1, all subnetworks of a collection are registered before the CX
+	 * reader builds their views, one at a time. The reader is not thread-safe,
+	 * so views are never built in parallel.
+	 */
+	public static Integer getCollectionParallelism() {
+		return getIntegerProperty(COLLECTION_PARALLELISM_PROPERTY, DEF_COLLECTION_PARALLELISM);
+	}
+
+	public static final String CACHE_SIZE_PROPERTY = "cx.cacheSize";
+
+	public static final int DEF_CACHE_SIZE = 2048;
+
+	/**
+	 * Size in megabytes of the on-disk cache of downloaded networks; 0 disables it.
+	 */
+	public static Integer getCacheSize() {
+		return getIntegerProperty(CACHE_SIZE_PROPERTY, DEF_CACHE_SIZE);
+	}
+	
+	public static final String CALIBRATION_PROPERTY = "cx.calibration";
+
+	/**
+	 * Stored results of the {@link MachineCapacity} benchmark, or null.
+	 */
+	public static String getCalibration() {
+		return getProperty(CALIBRATION_PROPERTY);
+	}
+
+	public static void setCalibration(String calibration) {
+		setProperty(CALIBRATION_PROPERTY, calibration);
+	}
+	
 	private static String getProperty(String key) {
-		final Properties props = (Properties) CyServiceModule
-				.getService(CyProperty.class, "(cyPropertyName=cytoscape3.props)").getProperties();
+		final CyProperty<?> cyProperty = CyServiceModule.getService(CyProperty.class,
+				"(cyPropertyName=cytoscape3.props)");
+		if (cyProperty == null) {
+			return null;
+		}
+		final Properties props = (Properties) cyProperty.getProperties();
 		return props.getProperty(key);
 	}
 
@@ -0,0 +1,139 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cytoscape.work.FinishStatus;
+import org.cytoscape.work.ObservableTask;
+import org.cytoscape.work.Task;
+import org.cytoscape.work.TaskIterator;
+import org.cytoscape.work.TaskMonitor;
+import org.cytoscape.work.TaskObserver;
+
+/**
+ * Runs task iterators on a small pool of background threads, without progress
+ * dialogs and without going through the Swing event thread.
+ *
+ * Used for scripted REST callers, which only need to know when the tasks are
+ * done and whether they succeeded.
+ */
+public class HeadlessTaskExecutor {
+
+	public static final int DEFAULT_THREADS = 4;
+
+	private final ExecutorService executor;
+
+	public HeadlessTaskExecutor(final int threads) {
+		final AtomicInteger count = new AtomicInteger();
+		final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), r -> {
+					final Thread thread = new Thread(r, "CyNDEx-2 worker " + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		pool.allowCoreThreadTimeOut(true);
+		this.executor = pool;
+	}
+
+	/**
+	 * Runs the tasks and blocks until they have finished. If the calling thread is
+	 * interrupted, the running task is cancelled.
+	 */
+	public FinishStatus execute(final TaskIterator iter, final TaskObserver observer) throws InterruptedException {
+		final Future<FinishStatus> future = submit(iter, new HeadlessTaskMonitor(), observer);
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			throw e;
+		} catch (ExecutionException e) {
+			// run() reports task failures through the status, so this is unexpected
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Queues the tasks and returns immediately. Cancelling the returned future
+	 * cancels the task that is currently running.
+	 */
+	public Future<FinishStatus> submit(final TaskIterator iter, final TaskMonitor monitor,
+			final TaskObserver observer) {
+		final Run run = new Run(iter, monitor, observer);
+		final FutureTask<FinishStatus> future = new FutureTask<FinishStatus>(run::call) {
+			@Override
+			public boolean cancel(final boolean mayInterruptIfRunning) {
+				run.cancel();
+				return super.cancel(mayInterruptIfRunning);
+			}
+		};
+		executor.execute(future);
+		return future;
+	}
+
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private static class Run {
+		private final TaskIterator iter;
+		private final TaskMonitor monitor;
+		private final TaskObserver observer;
+
+		private volatile Task current;
+		private volatile boolean cancelled;
+
+		Run(final TaskIterator iter, final TaskMonitor monitor, final TaskObserver observer) {
+			this.iter = iter;
+			this.monitor = monitor;
+			this.observer = observer;
+		}
+
+		FinishStatus call() {
+			FinishStatus status = FinishStatus.getSucceeded();
+			try {
+				// Tasks may append to the iterator while they run, so hasNext() is checked each time
+				while (iter.hasNext()) {
+					final Task task = iter.next();
+					current = task;
+					if (cancelled) {
+						status = FinishStatus.newCancelled(task);
+						break;
+					}
+					task.run(monitor);
+					if (cancelled) {
+						status = FinishStatus.newCancelled(task);
+						break;
+					}
+					if (observer != null && task instanceof ObservableTask) {
+						observer.taskFinished((ObservableTask) task);
+					}
+				}
+			} catch (CancellationException e) {
+				status = FinishStatus.newCancelled(current);
+			} catch (Exception e) {
+				status = cancelled ? FinishStatus.newCancelled(current) : FinishStatus.newFailed(current, e);
+			} finally {
+				current = null;
+			}
+			if (observer != null) {
+				observer.allFinished(status);
+			}
+			return status;
+		}
+
+		void cancel() {
+			cancelled = true;
+			final Task task = current;
+			if (task != null) {
+				task.cancel();
+			}
+		}
+	}
+}
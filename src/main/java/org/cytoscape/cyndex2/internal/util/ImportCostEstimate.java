@@ -0,0 +1,151 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.util.Locale;
+
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+import org.ndexbio.cxio.metadata.MetaDataElement;
+import org.ndexbio.model.object.network.NetworkSummary;
+
+/**
+ * Predicted cost of importing a network, from its summary, its metadata if
+ * known, and the {@link MachineCapacity} of this computer.
+ */
+public class ImportCostEstimate {
+
+	// Average size of a CX aspect element, for summaries without a file size
+	static final long CX_BYTES_PER_ELEMENT = 90;
+
+	private final long downloadBytes;
+	private final long importMillis;
+	private final long modelHeap;
+	private final long viewHeap;
+	private final long viewMillis;
+
+	private ImportCostEstimate(final long downloadBytes, final long importMillis, final long modelHeap,
+			final long viewHeap, final long viewMillis) {
+		this.downloadBytes = downloadBytes;
+		this.importMillis = importMillis;
+		this.modelHeap = modelHeap;
+		this.viewHeap = viewHeap;
+		this.viewMillis = viewMillis;
+	}
+
+	/**
+	 * @param metadata
+	 *            - metadata of the network, or null if it has not been fetched
+	 */
+	public static ImportCostEstimate of(final NetworkSummary summary, final MetaDataCollection metadata) {
+		return of(summary.getNodeCount(), summary.getEdgeCount(), summary.getCxFileSize(), countElements(metadata),
+				MachineCapacity.get());
+	}
+
+	/**
+	 * @param cxBytes
+	 *            - size of the CX, or 0 if unknown
+	 * @param aspectElements
+	 *            - elements of all aspects, or 0 if unknown
+	 */
+	public static ImportCostEstimate of(final long nodes, final long edges, final long cxBytes,
+			final long aspectElements, final MachineCapacity capacity) {
+		final long elements = nodes + edges;
+		final long downloadBytes = cxBytes > 0 ? cxBytes
+				: Math.max(aspectElements, elements) * CX_BYTES_PER_ELEMENT;
+		return new ImportCostEstimate(downloadBytes,
+				capacity.predictParseMillis(downloadBytes) + capacity.predictBuildMillis(elements),
+				capacity.predictModelHeap(elements, downloadBytes), capacity.predictViewHeap(elements),
+				capacity.predictViewMillis(elements));
+	}
+
+	private static long countElements(final MetaDataCollection metadata) {
+		if (metadata == null) {
+			return 0;
+		}
+		long count = 0;
+		for (MetaDataElement element : metadata) {
+			if (element.getElementCount() != null) {
+				count += element.getElementCount();
+			}
+		}
+		return count;
+	}
+
+	public long getDownloadBytes() {
+		return downloadBytes;
+	}
+
+	/**
+	 * Time to parse the CX and build the network, without the download.
+	 */
+	public long getImportMillis() {
+		return importMillis;
+	}
+
+	/**
+	 * Heap taken by the network and its attributes.
+	 */
+	public long getModelHeap() {
+		return modelHeap;
+	}
+
+	/**
+	 * Heap taken by a view, on top of the model.
+	 */
+	public long getViewHeap() {
+		return viewHeap;
+	}
+
+	public long getViewMillis() {
+		return viewMillis;
+	}
+
+	/**
+	 * True if the network alone is predicted not to fit in the given free heap.
+	 */
+	public boolean exceedsHeap(final long freeHeap) {
+		return modelHeap > MachineCapacity.getUsableHeap(freeHeap);
+	}
+
+	/**
+	 * True if the network with a view is predicted not to fit in the given free
+	 * heap.
+	 */
+	public boolean viewExceedsHeap(final long freeHeap) {
+		return modelHeap + viewHeap > MachineCapacity.getUsableHeap(freeHeap);
+	}
+
+	public static String formatBytes(final long bytes) {
+		if (bytes < 1024) {
+			return bytes + " B";
+		}
+		final String[] units = { "KB", "MB", "GB", "TB" };
+		double value = bytes / 1024.0;
+		int unit = 0;
+		while (value >= 1024 && unit < units.length - 1) {
+			value /= 1024;
+			unit++;
+		}
+		return String.format(Locale.ROOT, value < 10 ? "%.1f %s" : "%.0f %s", value, units[unit]);
+	}
+
+	public static String formatMillis(final long millis) {
+		if (millis < 1000) {
+			return "< 1 s";
+		}
+		final long seconds = (millis + 500) / 1000;
+		if (seconds < 60) {
+			return seconds + " s";
+		}
+		final long minutes = (seconds + 30) / 60;
+		if (minutes < 60) {
+			return minutes + " min";
+		}
+		return String.format(Locale.ROOT, "%.1f h", minutes / 60.0);
+	}
+
+	@Override
+	public String toString() {
+		return "download " + formatBytes(downloadBytes) + ", import " + formatMillis(importMillis) + ", memory "
+				+ formatBytes(modelHeap) + ", view " + formatMillis(viewMillis) + " and "
+				+ formatBytes(viewHeap) + " more memory";
+	}
+}
@@ -0,0 +1,329 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.cytoscape.cyndex2.internal.CyServiceModule;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNetworkFactory;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.SavePolicy;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * What this computer can handle, measured once by a short benchmark, and the
+ * predictions made from it: how long a network takes to import and display,
+ * and how much heap it needs.
+ *
+ * The benchmark builds a small network with the Cytoscape model and tokenizes
+ * a generated CX document. Its results are stored in the Cytoscape properties
+ * and only measured again when the maximum heap size changes.
+ */
+public class MachineCapacity {
+
+	private static final Logger logger = Logger.getLogger(MachineCapacity.class.getName());
+
+	// Used until the benchmark has run, typical for a recent laptop
+	public static final double DEFAULT_BUILD_ELEMENTS_PER_SECOND = 250000;
+	public static final double DEFAULT_BYTES_PER_ELEMENT = 700;
+	public static final double DEFAULT_PARSE_BYTES_PER_SECOND = 40.0 * 1024 * 1024;
+
+	// The CX reader builds objects on top of tokenizing, which the benchmark measures
+	private static final double PARSE_OVERHEAD = 3;
+	// Attribute values take heap in proportion to their share of the CX
+	private static final double HEAP_PER_CX_BYTE = 2;
+	// View objects per element relative to the model
+	private static final double VIEW_HEAP_FACTOR = 1.5;
+	private static final double VIEW_TIME_FACTOR = 2;
+	// A force-directed layout visits every element many times
+	private static final double LAYOUT_TIME_FACTOR = 20;
+	// Share of the free heap a prediction may use, leaving room for garbage
+	private static final double HEAP_SAFETY = 0.7;
+
+	public static final long MAX_VIEW_MILLIS = 60000;
+	public static final long MAX_LAYOUT_MILLIS = 30000;
+
+	private static final int CALIBRATION_NODES = 20000;
+	private static final int CALIBRATION_EDGES = 40000;
+
+	private static volatile MachineCapacity current = new MachineCapacity(DEFAULT_BUILD_ELEMENTS_PER_SECOND,
+			DEFAULT_BYTES_PER_ELEMENT, DEFAULT_PARSE_BYTES_PER_SECOND, false);
+
+	private final double buildElementsPerSecond;
+	private final double bytesPerElement;
+	private final double parseBytesPerSecond;
+	private final boolean calibrated;
+
+	public MachineCapacity(final double buildElementsPerSecond, final double bytesPerElement,
+			final double parseBytesPerSecond, final boolean calibrated) {
+		this.buildElementsPerSecond = buildElementsPerSecond;
+		this.bytesPerElement = bytesPerElement;
+		this.parseBytesPerSecond = parseBytesPerSecond;
+		this.calibrated = calibrated;
+	}
+
+	/**
+	 * The calibrated capacity, or defaults while the benchmark has not run.
+	 */
+	public static MachineCapacity get() {
+		return current;
+	}
+
+	public boolean isCalibrated() {
+		return calibrated;
+	}
+
+	public double getBuildElementsPerSecond() {
+		return buildElementsPerSecond;
+	}
+
+	public double getBytesPerElement() {
+		return bytesPerElement;
+	}
+
+	public double getParseBytesPerSecond() {
+		return parseBytesPerSecond;
+	}
+
+	/**
+	 * Heap that can still be allocated, including what the JVM has not reserved
+	 * yet.
+	 */
+	public static long getFreeHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+		return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+	}
+
+	/**
+	 * Share of the free heap an import may use, leaving room for garbage.
+	 */
+	public static long getUsableHeap(final long freeHeap) {
+		return (long) (freeHeap * HEAP_SAFETY);
+	}
+
+	public long predictParseMillis(final long cxBytes) {
+		return (long) (Math.max(0, cxBytes) * PARSE_OVERHEAD * 1000 / parseBytesPerSecond);
+	}
+
+	public long predictBuildMillis(final long elements) {
+		return (long) (Math.max(0, elements) * 1000 / buildElementsPerSecond);
+	}
+
+	public long predictModelHeap(final long elements, final long cxBytes) {
+		return (long) (Math.max(0, elements) * bytesPerElement + Math.max(0, cxBytes) * HEAP_PER_CX_BYTE);
+	}
+
+	public long predictViewHeap(final long elements) {
+		return (long) (Math.max(0, elements) * bytesPerElement * VIEW_HEAP_FACTOR);
+	}
+
+	public long predictViewMillis(final long elements) {
+		return (long) (predictBuildMillis(elements) * VIEW_TIME_FACTOR);
+	}
+
+	public long predictLayoutMillis(final long nodes, final long edges) {
+		return (long) (predictBuildMillis(nodes + edges) * LAYOUT_TIME_FACTOR);
+	}
+
+	/**
+	 * True if importing the network and building its view is predicted to fit in
+	 * the given free heap and to take no longer than {@link #MAX_VIEW_MILLIS}.
+	 */
+	public boolean canCreateView(final long nodes, final long edges, final long cxBytes, final long freeHeap) {
+		final long elements = nodes + edges;
+		return predictModelHeap(elements, cxBytes) + predictViewHeap(elements) <= getUsableHeap(freeHeap)
+				&& predictViewMillis(elements) <= MAX_VIEW_MILLIS;
+	}
+
+	public boolean canCreateView(final long nodes, final long edges, final long cxBytes) {
+		return canCreateView(nodes, edges, cxBytes, getFreeHeap());
+	}
+
+	public boolean canApplyLayout(final long nodes, final long edges) {
+		return predictLayoutMillis(nodes, edges) <= MAX_LAYOUT_MILLIS;
+	}
+
+	/**
+	 * True if the predicted heap of the model alone exceeds the given free heap.
+	 */
+	public boolean exceedsHeap(final long elements, final long cxBytes, final long freeHeap) {
+		return predictModelHeap(elements, cxBytes) > getUsableHeap(freeHeap);
+	}
+
+	/**
+	 * Loads the stored benchmark results, or runs the benchmark on a background
+	 * thread if there are none for the current maximum heap size.
+	 */
+	public static void calibrateInBackground() {
+		final long maxHeap = Runtime.getRuntime().maxMemory();
+		final MachineCapacity stored = fromProperty(CxPreferences.getCalibration(), maxHeap);
+		if (stored != null) {
+			current = stored;
+			return;
+		}
+		final Thread thread = new Thread(() -> {
+			try {
+				current = calibrate();
+				CxPreferences.setCalibration(current.toProperty(maxHeap));
+			} catch (RuntimeException | IOException e) {
+				logger.log(Level.WARNING, "Failed to measure import capacity, using defaults", e);
+			}
+		}, "CyNDEx-2 calibration");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * Runs the benchmark. The second of two runs is measured, so class loading
+	 * and compilation do not count.
+	 */
+	static MachineCapacity calibrate() throws IOException {
+		final byte[] cx = generateCx(CALIBRATION_NODES, CALIBRATION_EDGES);
+		measureParse(cx);
+		final double parseBytesPerSecond = measureParse(cx);
+
+		double buildElementsPerSecond = DEFAULT_BUILD_ELEMENTS_PER_SECOND;
+		double bytesPerElement = DEFAULT_BYTES_PER_ELEMENT;
+		final CyNetworkFactory factory = CyServiceModule.getService(CyNetworkFactory.class);
+		if (factory != null) {
+			measureBuild(factory, new double[2]);
+			final double[] build = new double[2];
+			measureBuild(factory, build);
+			buildElementsPerSecond = build[0];
+			if (build[1] > 0) {
+				bytesPerElement = build[1];
+			}
+		}
+		logger.info(String.format(Locale.ROOT,
+				"Import capacity: %.0f elements/s, %.0f bytes/element, %.1f MB/s CX, %d MB max heap",
+				buildElementsPerSecond, bytesPerElement, parseBytesPerSecond / 1024 / 1024,
+				Runtime.getRuntime().maxMemory() / 1024 / 1024));
+		return new MachineCapacity(buildElementsPerSecond, bytesPerElement, parseBytesPerSecond, true);
+	}
+
+	private static double measureParse(final byte[] cx) throws IOException {
+		final long start = System.nanoTime();
+		CxElementCounter.count(new ByteArrayInputStream(cx));
+		final long nanos = Math.max(1, System.nanoTime() - start);
+		return cx.length * 1e9 / nanos;
+	}
+
+	/**
+	 * Builds a network with a name per node. Heap is measured as the bytes this
+	 * thread allocates, which other threads and collections do not disturb; it
+	 * includes short-lived garbage, so it errs on the high side.
+	 *
+	 * @param result
+	 *            - receives elements per second and heap bytes per element, or 0
+	 *            if the JVM cannot measure allocations
+	 */
+	private static void measureBuild(final CyNetworkFactory factory, final double[] result) {
+		final long allocatedBefore = getAllocatedBytes();
+		final long start = System.nanoTime();
+		final CyNetwork network = factory.createNetworkWithPrivateTables(SavePolicy.DO_NOT_SAVE);
+		try {
+			final CyNode[] nodes = new CyNode[CALIBRATION_NODES];
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i] = network.addNode();
+				network.getRow(nodes[i]).set(CyNetwork.NAME, "node" + i);
+			}
+			final Random random = new Random(1);
+			for (int i = 0; i < CALIBRATION_EDGES; i++) {
+				network.addEdge(nodes[random.nextInt(nodes.length)], nodes[random.nextInt(nodes.length)], true);
+			}
+			final long nanos = Math.max(1, System.nanoTime() - start);
+			final long allocatedAfter = getAllocatedBytes();
+			final int elements = CALIBRATION_NODES + CALIBRATION_EDGES;
+			result[0] = elements * 1e9 / nanos;
+			result[1] = allocatedBefore < 0 || allocatedAfter < 0 ? 0
+					: (double) (allocatedAfter - allocatedBefore) / elements;
+		} finally {
+			network.dispose();
+		}
+	}
+
+	/**
+	 * Bytes allocated by the current thread so far, or -1 if the JVM does not
+	 * track it or com.sun.management is not wired to this bundle.
+	 */
+	private static long getAllocatedBytes() {
+		try {
+			final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+			if (!(threads instanceof ThreadMXBean)) {
+				return -1;
+			}
+			final ThreadMXBean allocations = (ThreadMXBean) threads;
+			if (!allocations.isThreadAllocatedMemorySupported() || !allocations.isThreadAllocatedMemoryEnabled()) {
+				return -1;
+			}
+			return allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+		} catch (LinkageError e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * CX with numbered nodes and edges and one attribute per node, shaped like a
+	 * typical NDEx network.
+	 */
+	static byte[] generateCx(final int nodes, final int edges) {
+		final StringBuilder cx = new StringBuilder(nodes * 80 + edges * 60);
+		cx.append("[{\"numberVerification\":[{\"longNumber\":281474976710655}]},{\"nodes\":[");
+		for (int i = 0; i < nodes; i++) {
+			cx.append(i == 0 ? "" : ",").append("{\"@id\":").append(i).append(",\"n\":\"node").append(i)
+					.append("\"}");
+		}
+		cx.append("]},{\"edges\":[");
+		final Random random = new Random(1);
+		for (int i = 0; i < edges; i++) {
+			cx.append(i == 0 ? "" : ",").append("{\"@id\":").append(i).append(",\"s\":")
+					.append(random.nextInt(nodes)).append(",\"t\":").append(random.nextInt(nodes))
+					.append(",\"i\":\"interacts with\"}");
+		}
+		cx.append("]},{\"nodeAttributes\":[");
+		for (int i = 0; i < nodes; i++) {
+			cx.append(i == 0 ? "" : ",").append("{\"po\":").append(i).append(",\"n\":\"score\",\"v\":\"")
+					.append(random.nextDouble()).append("\",\"d\":\"double\"}");
+		}
+		cx.append("]},{\"status\":[{\"error\":\"\",\"success\":true}]}]");
+		return cx.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	String toProperty(final long maxHeap) {
+		return String.format(Locale.ROOT, "%d;%.0f;%.1f;%.0f", maxHeap, buildElementsPerSecond, bytesPerElement,
+				parseBytesPerSecond);
+	}
+
+	/**
+	 * @return the stored capacity, or null if there is none or it was measured
+	 *         with a different maximum heap size
+	 */
+	static MachineCapacity fromProperty(final String property, final long maxHeap) {
+		if (property == null) {
+			return null;
+		}
+		final String[] values = property.split(";");
+		try {
+			if (values.length != 4 || Long.parseLong(values[0]) != maxHeap) {
+				return null;
+			}
+			final double build = Double.parseDouble(values[1]);
+			final double bytes = Double.parseDouble(values[2]);
+			final double parse = Double.parseDouble(values[3]);
+			if (build <= 0 || bytes <= 0 || parse <= 0) {
+				return null;
+			}
+			return new MachineCapacity(build, bytes, parse, true);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
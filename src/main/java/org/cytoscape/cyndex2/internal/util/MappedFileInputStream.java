@@ -0,0 +1,153 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads a file through memory-mapped windows, so the bytes come straight from
+ * the OS page cache instead of being copied through a heap buffer first.
+ * Files larger than one window (and larger than 2 GB) are mapped piece by piece.
+ */
+public class MappedFileInputStream extends InputStream {
+
+	private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+	private final Path path;
+	private final boolean deleteOnClose;
+	private final FileChannel channel;
+	private final long size;
+
+	private long windowStart;
+	private MappedByteBuffer window;
+	private boolean closed;
+
+	/**
+	 * @param path          file to read
+	 * @param deleteOnClose whether the file is temporary and should be removed once read
+	 */
+	public MappedFileInputStream(final Path path, final boolean deleteOnClose) throws IOException {
+		this.path = path;
+		this.deleteOnClose = deleteOnClose;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.size = channel.size();
+	}
+
+	/**
+	 * Copies a stream to a new file in the given directory and closes it. The
+	 * caller owns the returned file.
+	 */
+	public static Path spool(final InputStream in, final File directory) throws IOException {
+		directory.mkdirs();
+		final Path file = Files.createTempFile(directory.toPath(), "cx-", ".spool");
+		try (InputStream source = in) {
+			Files.copy(source, file, StandardCopyOption.REPLACE_EXISTING);
+			return file;
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(file);
+			throw e;
+		}
+	}
+
+	public long length() {
+		return size;
+	}
+
+	private long position() {
+		return window == null ? windowStart : windowStart + window.position();
+	}
+
+	private boolean ensureWindow() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		if (window != null && window.hasRemaining()) {
+			return true;
+		}
+		return map(position());
+	}
+
+	private boolean map(final long position) throws IOException {
+		windowStart = position;
+		window = null;
+		if (position >= size) {
+			return false;
+		}
+		window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!ensureWindow()) {
+			return -1;
+		}
+		return window.get() & 0xff;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!ensureWindow()) {
+			return -1;
+		}
+		final int n = Math.min(len, window.remaining());
+		window.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		if (n <= 0) {
+			return 0;
+		}
+		final long position = position();
+		final long skipped = Math.min(n, size - position);
+		if (window != null && skipped <= window.remaining()) {
+			window.position(window.position() + (int) skipped);
+		} else {
+			map(position + skipped);
+		}
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		return (int) Math.min(size - position(), Integer.MAX_VALUE);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		window = null;
+		channel.close();
+		if (deleteOnClose) {
+			try {
+				Files.deleteIfExists(path);
+			} catch (IOException e) {
+				// Some platforms refuse while the mapping is still alive
+				Logger.getLogger(MappedFileInputStream.class.getName()).log(Level.FINE, "Deferring removal of " + path, e);
+				path.toFile().deleteOnExit();
+			}
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package org.cytoscape.cyndex2.internal.util;
+
+/**
+ * A server-side NDEx query whose result subgraph is imported instead of the
+ * whole network.
+ */
+public class NetworkQuery {
+
+	public static final int DEFAULT_DEPTH = 1;
+	public static final int DEFAULT_EDGE_LIMIT = 50000;
+
+	private final String searchString;
+	private final int depth;
+	private final int edgeLimit;
+	private final boolean interconnect;
+
+	/**
+	 * @param searchString
+	 *            - space separated node names, e.g. gene symbols
+	 * @param depth
+	 *            - number of hops from the matching nodes
+	 * @param edgeLimit
+	 *            - largest number of edges in the result; larger results are
+	 *            rejected by the server
+	 * @param interconnect
+	 *            - only keep paths between the matching nodes, instead of their
+	 *            whole neighborhood
+	 */
+	public NetworkQuery(final String searchString, final int depth, final int edgeLimit, final boolean interconnect) {
+		this.searchString = searchString;
+		this.depth = depth;
+		this.edgeLimit = edgeLimit;
+		this.interconnect = interconnect;
+	}
+
+	public String getSearchString() {
+		return searchString;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public int getEdgeLimit() {
+		return edgeLimit;
+	}
+
+	public boolean isInterconnect() {
+		return interconnect;
+	}
+
+	@Override
+	public String toString() {
+		return (interconnect ? "Interconnect of " : "Neighborhood of ") + searchString;
+	}
+}
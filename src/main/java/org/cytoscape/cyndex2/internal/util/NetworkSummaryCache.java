@@ -0,0 +1,181 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.ndexbio.cxio.metadata.MetaDataCollection;
+import org.ndexbio.model.object.network.NetworkSummary;
+
+/**
+ * Process-wide cache of NDEx network summaries and metadata, so that a search
+ * result can be imported without fetching its summary again.
+ *
+ * Entries are keyed by server, user name and network UUID, expire after a short
+ * time and are dropped when this app writes to the network. Summaries fetched
+ * with an access key are not cached.
+ */
+public class NetworkSummaryCache {
+
+	public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	public static final NetworkSummaryCache INSTANCE = new NetworkSummaryCache(DEFAULT_TTL_MILLIS, DEFAULT_MAX_ENTRIES);
+
+	private final long ttlMillis;
+	private final Map<Key, Entry> entries;
+
+	public NetworkSummaryCache(final long ttlMillis, final int maxEntries) {
+		this.ttlMillis = ttlMillis;
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached summary, or null if there is none or it has expired.
+	 */
+	public NetworkSummary getSummary(final String url, final String username, final UUID uuid) {
+		final Entry entry = getEntry(url, username, uuid);
+		return entry == null ? null : entry.summary;
+	}
+
+	public void putSummary(final String url, final String username, final NetworkSummary summary) {
+		if (summary == null || summary.getExternalId() == null) {
+			return;
+		}
+		final Key key = new Key(url, username, summary.getExternalId());
+		final long now = System.currentTimeMillis();
+		synchronized (entries) {
+			final Entry entry = entries.get(key);
+			// Keep metadata that is still valid for the same version of the network
+			final MetaDataCollection metadata = entry != null && !entry.isExpired(now, ttlMillis)
+					&& Objects.equals(entry.modificationTime(), summary.getModificationTime()) ? entry.metadata : null;
+			entries.put(key, new Entry(summary, metadata, now));
+		}
+	}
+
+	public void putSummaries(final String url, final String username, final Collection<NetworkSummary> summaries) {
+		if (summaries == null) {
+			return;
+		}
+		for (NetworkSummary summary : summaries) {
+			putSummary(url, username, summary);
+		}
+	}
+
+	/**
+	 * Returns the cached metadata, or null if there is none or it has expired.
+	 */
+	public MetaDataCollection getMetadata(final String url, final String username, final UUID uuid) {
+		final Entry entry = getEntry(url, username, uuid);
+		return entry == null ? null : entry.metadata;
+	}
+
+	public void putMetadata(final String url, final String username, final UUID uuid,
+			final MetaDataCollection metadata) {
+		if (uuid == null || metadata == null) {
+			return;
+		}
+		final Key key = new Key(url, username, uuid);
+		final long now = System.currentTimeMillis();
+		synchronized (entries) {
+			final Entry entry = entries.get(key);
+			final NetworkSummary summary = entry != null && !entry.isExpired(now, ttlMillis) ? entry.summary : null;
+			entries.put(key, new Entry(summary, metadata, now));
+		}
+	}
+
+	/**
+	 * Drops everything cached for the network, on every server and for every user.
+	 */
+	public void invalidate(final UUID uuid) {
+		synchronized (entries) {
+			entries.keySet().removeIf(key -> key.uuid.equals(uuid));
+		}
+	}
+
+	public void invalidateAll() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	private Entry getEntry(final String url, final String username, final UUID uuid) {
+		if (uuid == null) {
+			return null;
+		}
+		final Key key = new Key(url, username, uuid);
+		synchronized (entries) {
+			final Entry entry = entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.isExpired(System.currentTimeMillis(), ttlMillis)) {
+				entries.remove(key);
+				return null;
+			}
+			return entry;
+		}
+	}
+
+	private static class Key {
+		private final String url;
+		private final String username;
+		private final UUID uuid;
+
+		Key(final String url, final String username, final UUID uuid) {
+			this.url = String.valueOf(UrlUtils.getBaseRoute(url));
+			this.username = username == null || username.isEmpty() ? null : username;
+			this.uuid = uuid;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(url, username, uuid);
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			if (!(object instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) object;
+			return url.equals(other.url) && Objects.equals(username, other.username) && uuid.equals(other.uuid);
+		}
+	}
+
+	private static class Entry {
+		private final NetworkSummary summary;
+		private final MetaDataCollection metadata;
+		private final long createdAt;
+
+		Entry(final NetworkSummary summary, final MetaDataCollection metadata, final long createdAt) {
+			this.summary = summary;
+			this.metadata = metadata;
+			this.createdAt = createdAt;
+		}
+
+		boolean isExpired(final long now, final long ttlMillis) {
+			return now - createdAt > ttlMillis;
+		}
+
+		Object modificationTime() {
+			return summary == null ? null : summary.getModificationTime();
+		}
+	}
+}
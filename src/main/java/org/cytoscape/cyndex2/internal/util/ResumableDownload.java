@@ -0,0 +1,487 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Downloads to a local file with HTTP Range requests, so that a transfer that
+ * fails part way is continued instead of started over.
+ *
+ * Progress is checkpointed next to the target file. Transient failures are
+ * retried with a growing delay, and a later download of the same file resumes
+ * from the last checkpoint. The finished file is checked against the length
+ * and, when the server sends one, the digest of the content before it is
+ * handed out.
+ */
+public class ResumableDownload {
+
+	private static final Logger logger = Logger.getLogger(ResumableDownload.class.getName());
+
+	private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+	public static final String PART_SUFFIX = ".part";
+	private static final int BUFFER_SIZE = 256 * 1024;
+	private static final long CHECKPOINT_INTERVAL = 16L * 1024 * 1024;
+
+	public static final int DEFAULT_MAX_RETRIES = 5;
+	public static final long DEFAULT_RETRY_DELAY_MILLIS = 1000;
+	private static final long MAX_RETRY_DELAY_MILLIS = 30000;
+
+	/**
+	 * Opens the content from the given offset.
+	 */
+	@FunctionalInterface
+	public interface RangeSource {
+		/**
+		 * @param offset
+		 *            - first byte wanted
+		 * @param validator
+		 *            - ETag or Last-Modified of the bytes already downloaded, to be
+		 *            sent as If-Range; null on the first request
+		 */
+		Range open(long offset, String validator) throws IOException;
+	}
+
+	@FunctionalInterface
+	public interface ProgressListener {
+		/**
+		 * @param bytes
+		 *            - bytes in the target file so far
+		 * @param totalBytes
+		 *            - size of the content, or -1 if unknown
+		 */
+		void progress(long bytes, long totalBytes);
+	}
+
+	/**
+	 * A response to {@link RangeSource#open(long, String)}.
+	 */
+	public static class Range {
+
+		private final InputStream content;
+		private final long start;
+		private final long end;
+		private final long total;
+		private final String validator;
+		private String digestAlgorithm;
+		private byte[] digest;
+
+		/**
+		 * @param content
+		 *            - bytes from start on
+		 * @param start
+		 *            - offset of the first byte; 0 when the server ignored the range
+		 * @param total
+		 *            - size of the whole content, or -1 if unknown
+		 * @param validator
+		 *            - strong ETag or Last-Modified identifying this version, or null
+		 */
+		public Range(final InputStream content, final long start, final long total, final String validator) {
+			this(content, start, -1, total, validator);
+		}
+
+		/**
+		 * @param end
+		 *            - offset of the last byte sent, or -1 if the content is sent
+		 *            to the end
+		 */
+		public Range(final InputStream content, final long start, final long end, final long total,
+				final String validator) {
+			this.content = content;
+			this.start = start;
+			this.end = end;
+			this.total = total;
+			this.validator = validator;
+		}
+
+		/**
+		 * Digest of the whole content, e.g. from a Digest response header.
+		 *
+		 * @param algorithm
+		 *            - a MessageDigest algorithm such as SHA-256 or MD5
+		 */
+		public Range setDigest(final String algorithm, final byte[] digest) {
+			this.digestAlgorithm = algorithm;
+			this.digest = digest;
+			return this;
+		}
+
+		public InputStream getContent() {
+			return content;
+		}
+
+		public long getStart() {
+			return start;
+		}
+
+		public long getEnd() {
+			return end;
+		}
+
+		public long getTotal() {
+			return total;
+		}
+
+		public String getValidator() {
+			return validator;
+		}
+
+		public String getDigestAlgorithm() {
+			return digestAlgorithm;
+		}
+
+		public byte[] getDigest() {
+			return digest;
+		}
+	}
+
+	private final Path target;
+	private final RangeSource source;
+
+	private int maxRetries = DEFAULT_MAX_RETRIES;
+	private long retryDelayMillis = DEFAULT_RETRY_DELAY_MILLIS;
+	private long expectedLength = -1;
+	private ProgressListener progressListener;
+
+	private volatile boolean cancelled;
+	private volatile InputStream current;
+
+	private Checkpoint checkpoint;
+
+	/**
+	 * @param target
+	 *            - file to download to. Bytes left in it by an earlier attempt are
+	 *            kept if its checkpoint is still there.
+	 */
+	public ResumableDownload(final Path target, final RangeSource source) {
+		this.target = target;
+		this.source = source;
+	}
+
+	/**
+	 * Number of failed attempts in a row, without any progress, before giving up.
+	 */
+	public void setMaxRetries(final int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	public void setRetryDelay(final long retryDelayMillis) {
+		this.retryDelayMillis = retryDelayMillis;
+	}
+
+	/**
+	 * Size the content is known to have, checked when the server does not
+	 * report it. -1 if unknown.
+	 */
+	public void setExpectedLength(final long expectedLength) {
+		this.expectedLength = expectedLength;
+	}
+
+	public void setProgressListener(final ProgressListener progressListener) {
+		this.progressListener = progressListener;
+	}
+
+	public Path getTarget() {
+		return target;
+	}
+
+	/**
+	 * Removes downloads and checkpoints in a directory that have not been written
+	 * to for the given time, e.g. those of imports that were never retried.
+	 *
+	 * @return number of files removed
+	 */
+	public static int pruneStale(final Path directory, final long maxAgeMillis) {
+		if (!Files.isDirectory(directory)) {
+			return 0;
+		}
+		final long cutoff = System.currentTimeMillis() - maxAgeMillis;
+		int removed = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				final String name = file.getFileName().toString();
+				if (!name.endsWith(PART_SUFFIX) && !name.endsWith(CHECKPOINT_SUFFIX)
+						&& !name.endsWith(CHECKPOINT_SUFFIX + ".tmp")) {
+					continue;
+				}
+				try {
+					if (Files.getLastModifiedTime(file).toMillis() < cutoff && Files.deleteIfExists(file)) {
+						removed++;
+					}
+				} catch (IOException e) {
+					logger.log(Level.FINE, "Failed to remove " + file, e);
+				}
+			}
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Failed to list " + directory, e);
+		}
+		return removed;
+	}
+
+	/**
+	 * True if an earlier attempt left a checkpoint to continue from.
+	 */
+	public boolean hasCheckpoint() {
+		return Files.isRegularFile(target.resolveSibling(target.getFileName() + CHECKPOINT_SUFFIX));
+	}
+
+	/**
+	 * Stops the download. The bytes received so far are kept for a later resume.
+	 */
+	public void cancel() {
+		cancelled = true;
+		final InputStream in = current;
+		if (in != null) {
+			try {
+				in.close();
+			} catch (IOException e) {
+				// Only done to unblock the reader
+			}
+		}
+	}
+
+	/**
+	 * Downloads the rest of the content and verifies the result.
+	 *
+	 * @return the target file
+	 * @throws InterruptedIOException
+	 *             if cancelled
+	 * @throws IOException
+	 *             when the retries are exhausted or the file fails verification,
+	 *             in which case it is removed
+	 */
+	public Path run() throws IOException {
+		final Path checkpointFile = target.resolveSibling(target.getFileName() + CHECKPOINT_SUFFIX);
+		Files.createDirectories(target.toAbsolutePath().getParent());
+		checkpoint = Checkpoint.load(checkpointFile);
+		long offset = 0;
+		if (checkpoint != null && Files.exists(target) && Files.size(target) >= checkpoint.offset) {
+			offset = checkpoint.offset;
+		} else {
+			checkpoint = new Checkpoint(checkpointFile);
+		}
+
+		try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			// Anything past the checkpoint may not have reached the disk intact
+			channel.truncate(offset);
+			int failures = 0;
+			while (true) {
+				checkCancelled();
+				final long before = offset;
+				try {
+					offset = transfer(channel, offset);
+					break;
+				} catch (InterruptedIOException e) {
+					throw e;
+				} catch (IOException e) {
+					checkCancelled();
+					offset = checkpoint.offset;
+					failures = offset > before ? 1 : failures + 1;
+					if (failures > maxRetries) {
+						throw e;
+					}
+					final long delay = Math.min(retryDelayMillis << Math.min(failures - 1, 16), MAX_RETRY_DELAY_MILLIS);
+					logger.log(Level.INFO, "Download of " + target + " failed at byte " + offset + ", retrying in "
+							+ delay + " ms", e);
+					sleep(delay);
+				}
+			}
+		}
+
+		try {
+			verify(offset);
+		} catch (IOException e) {
+			discard();
+			throw e;
+		}
+		Files.deleteIfExists(checkpoint.file);
+		return target;
+	}
+
+	/**
+	 * Removes the target and its checkpoint.
+	 */
+	public void discard() throws IOException {
+		Files.deleteIfExists(target);
+		Files.deleteIfExists(target.resolveSibling(target.getFileName() + CHECKPOINT_SUFFIX));
+	}
+
+	private long transfer(final FileChannel channel, long offset) throws IOException {
+		channel.position(offset);
+		final Range range = source.open(offset, offset > 0 ? checkpoint.validator : null);
+		try (InputStream in = range.content) {
+			current = in;
+			checkCancelled();
+			if (range.start != offset) {
+				if (range.start != 0) {
+					throw new IOException("Server resumed at byte " + range.start + " instead of " + offset);
+				}
+				// The content changed or the server ignores ranges, so start over
+				offset = 0;
+				channel.truncate(0);
+				channel.position(0);
+				checkpoint.offset = 0;
+			}
+			checkpoint.validator = range.validator;
+			checkpoint.total = range.total;
+			checkpoint.digestAlgorithm = range.digestAlgorithm;
+			checkpoint.digest = range.digest;
+			checkpoint.save();
+
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			final ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+			long sinceCheckpoint = 0;
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				checkCancelled();
+				wrapped.clear().limit(read);
+				while (wrapped.hasRemaining()) {
+					channel.write(wrapped);
+				}
+				offset += read;
+				sinceCheckpoint += read;
+				if (sinceCheckpoint >= CHECKPOINT_INTERVAL) {
+					checkpoint(channel, offset);
+					sinceCheckpoint = 0;
+				}
+				if (progressListener != null) {
+					progressListener.progress(offset, range.total);
+				}
+			}
+			checkCancelled();
+			checkpoint(channel, offset);
+			if (range.total >= 0 && offset < range.total) {
+				throw new IOException("Connection closed at byte " + offset + " of " + range.total);
+			}
+			return offset;
+		} catch (IOException e) {
+			checkpoint(channel, channel.position());
+			throw e;
+		} finally {
+			current = null;
+		}
+	}
+
+	private void checkpoint(final FileChannel channel, final long offset) throws IOException {
+		channel.force(false);
+		checkpoint.offset = offset;
+		checkpoint.save();
+	}
+
+	private void verify(final long length) throws IOException {
+		final long expected = checkpoint.total >= 0 ? checkpoint.total : expectedLength;
+		if (expected >= 0 && length != expected) {
+			throw new IOException("Downloaded " + length + " bytes, expected " + expected);
+		}
+		if (checkpoint.digest != null) {
+			final byte[] actual = digest(target, checkpoint.digestAlgorithm);
+			if (actual != null && !Arrays.equals(actual, checkpoint.digest)) {
+				throw new IOException(checkpoint.digestAlgorithm + " digest of the download does not match");
+			}
+		}
+	}
+
+	static byte[] digest(final Path file, final String algorithm) throws IOException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			logger.log(Level.FINE, "Not verifying unsupported digest " + algorithm);
+			return null;
+		}
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream in = Files.newInputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return digest.digest();
+	}
+
+	private void checkCancelled() throws InterruptedIOException {
+		if (cancelled || Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException("Download of " + target + " cancelled");
+		}
+	}
+
+	private void sleep(final long millis) throws InterruptedIOException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Download of " + target + " interrupted");
+		}
+	}
+
+	/**
+	 * How far a download got and which version of the content it was.
+	 */
+	private static class Checkpoint {
+
+		private final Path file;
+		private long offset;
+		private long total = -1;
+		private String validator;
+		private String digestAlgorithm;
+		private byte[] digest;
+
+		Checkpoint(final Path file) {
+			this.file = file;
+		}
+
+		static Checkpoint load(final Path file) {
+			if (!Files.isRegularFile(file)) {
+				return null;
+			}
+			final Properties props = new Properties();
+			try (InputStream in = Files.newInputStream(file)) {
+				props.load(in);
+				final Checkpoint checkpoint = new Checkpoint(file);
+				checkpoint.offset = Long.parseLong(props.getProperty("offset", "0"));
+				checkpoint.total = Long.parseLong(props.getProperty("total", "-1"));
+				checkpoint.validator = props.getProperty("validator");
+				checkpoint.digestAlgorithm = props.getProperty("digestAlgorithm");
+				final String digest = props.getProperty("digest");
+				checkpoint.digest = digest == null ? null : Base64.getDecoder().decode(digest);
+				return checkpoint;
+			} catch (IOException | IllegalArgumentException e) {
+				logger.log(Level.INFO, "Ignoring unreadable checkpoint " + file, e);
+				return null;
+			}
+		}
+
+		void save() throws IOException {
+			final Properties props = new Properties();
+			props.setProperty("offset", Long.toString(offset));
+			props.setProperty("total", Long.toString(total));
+			if (validator != null) {
+				props.setProperty("validator", validator);
+			}
+			if (digest != null && digestAlgorithm != null) {
+				props.setProperty("digestAlgorithm", digestAlgorithm);
+				props.setProperty("digest", Base64.getEncoder().encodeToString(digest));
+			}
+			final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+			try (OutputStream out = Files.newOutputStream(temp)) {
+				props.store(out, null);
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
@@ -0,0 +1,348 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.cytoscape.cyndex2.internal.util.ResumableDownload.Range;
+
+/**
+ * Downloads to a local file over several connections at once, each fetching
+ * its own byte range into a pre-sized file.
+ *
+ * The first request asks for the first segment only. If the server answers
+ * with the whole content instead, the download continues as a single
+ * {@link ResumableDownload}. Every segment retries its own transient failures.
+ */
+public class SegmentedDownload {
+
+	private static final Logger logger = Logger.getLogger(SegmentedDownload.class.getName());
+
+	private static final int BUFFER_SIZE = 256 * 1024;
+	public static final long MIN_SEGMENT_SIZE = 4L * 1024 * 1024;
+
+	/**
+	 * Opens a byte range of the content.
+	 */
+	@FunctionalInterface
+	public interface SegmentSource {
+		/**
+		 * @param start
+		 *            - first byte wanted
+		 * @param end
+		 *            - last byte wanted, or -1 for everything from start on
+		 * @param validator
+		 *            - sent as If-Range, or null on the first request
+		 */
+		Range open(long start, long end, String validator) throws IOException;
+	}
+
+	private final Path target;
+	private final SegmentSource source;
+	private final int segments;
+
+	private int maxRetries = ResumableDownload.DEFAULT_MAX_RETRIES;
+	private long retryDelayMillis = ResumableDownload.DEFAULT_RETRY_DELAY_MILLIS;
+	private long expectedLength = -1;
+	private ResumableDownload.ProgressListener progressListener;
+
+	private final AtomicLong received = new AtomicLong();
+	private final Set<InputStream> openStreams = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean stopped = new AtomicBoolean();
+	private volatile boolean cancelled;
+	private volatile ResumableDownload single;
+
+	/**
+	 * @param segments
+	 *            - maximum number of connections used at once
+	 */
+	public SegmentedDownload(final Path target, final SegmentSource source, final int segments) {
+		this.target = target;
+		this.source = source;
+		this.segments = Math.max(1, segments);
+	}
+
+	public void setMaxRetries(final int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	public void setRetryDelay(final long retryDelayMillis) {
+		this.retryDelayMillis = retryDelayMillis;
+	}
+
+	/**
+	 * Size the content is expected to have, used to plan the segments before the
+	 * server reports the real size. -1 if unknown.
+	 */
+	public void setExpectedLength(final long expectedLength) {
+		this.expectedLength = expectedLength;
+	}
+
+	/**
+	 * Called from the download threads with the total number of bytes received.
+	 */
+	public void setProgressListener(final ResumableDownload.ProgressListener progressListener) {
+		this.progressListener = progressListener;
+	}
+
+	public void cancel() {
+		cancelled = true;
+		stop();
+		final ResumableDownload single = this.single;
+		if (single != null) {
+			single.cancel();
+		}
+	}
+
+	/**
+	 * Downloads and verifies the content.
+	 *
+	 * @return the target file
+	 * @throws InterruptedIOException
+	 *             if cancelled
+	 * @throws IOException
+	 *             if a segment failed after its retries, in which case the target
+	 *             is removed
+	 */
+	public Path run() throws IOException {
+		Files.createDirectories(target.toAbsolutePath().getParent());
+		final long firstEnd = Math.max(MIN_SEGMENT_SIZE, expectedLength / segments) - 1;
+		final Range first = source.open(0, firstEnd, null);
+		if (segments == 1 || first.getStart() != 0 || first.getEnd() < 0 || first.getTotal() < 0
+				|| first.getEnd() >= first.getTotal() - 1) {
+			// No ranges, or everything fits in one segment
+			return runSingle(first);
+		}
+
+		try {
+			runSegments(first);
+			verify(first);
+			return target;
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(target);
+			throw e;
+		}
+	}
+
+	private Path runSingle(final Range first) throws IOException {
+		final AtomicBoolean firstUsed = new AtomicBoolean();
+		final ResumableDownload download = new ResumableDownload(target, (offset, validator) -> {
+			if (offset == first.getStart() && firstUsed.compareAndSet(false, true)) {
+				return first;
+			}
+			return source.open(offset, -1, validator);
+		});
+		download.setMaxRetries(maxRetries);
+		download.setRetryDelay(retryDelayMillis);
+		download.setExpectedLength(expectedLength);
+		download.setProgressListener(progressListener);
+		download.discard();
+		single = download;
+		try {
+			if (cancelled) {
+				download.cancel();
+			}
+			return download.run();
+		} finally {
+			if (!firstUsed.get()) {
+				first.getContent().close();
+			}
+			single = null;
+		}
+	}
+
+	private void runSegments(final Range first) throws IOException {
+		final long total = first.getTotal();
+		final long rest = total - first.getEnd() - 1;
+		final int others = (int) Math.max(1, Math.min(segments - 1, rest / MIN_SEGMENT_SIZE));
+		final long segmentSize = (rest + others - 1) / others;
+
+		final AtomicInteger threadCount = new AtomicInteger();
+		final ExecutorService executor = Executors.newFixedThreadPool(others + 1, r -> {
+			final Thread thread = new Thread(r, "CyNDEx-2 segmented download " + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try (RandomAccessFile file = new RandomAccessFile(target.toFile(), "rw")) {
+			file.setLength(total);
+			final FileChannel channel = file.getChannel();
+			final CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+			final List<Segment> planned = new ArrayList<>();
+			planned.add(new Segment(channel, 0, first.getEnd(), first.getValidator(), first));
+			for (long start = first.getEnd() + 1; start < total; start += segmentSize) {
+				planned.add(new Segment(channel, start, Math.min(start + segmentSize, total) - 1,
+						first.getValidator(), null));
+			}
+			for (Segment segment : planned) {
+				completion.submit(() -> {
+					segment.download();
+					return null;
+				});
+			}
+			for (int i = 0; i < planned.size(); i++) {
+				try {
+					completion.take().get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					stop();
+					throw new InterruptedIOException("Download of " + target + " interrupted");
+				} catch (ExecutionException e) {
+					// Fail fast instead of waiting for the other segments
+					stop();
+					final Throwable cause = e.getCause();
+					if (cancelled) {
+						throw new InterruptedIOException("Download of " + target + " cancelled");
+					}
+					if (cause instanceof IOException) {
+						throw (IOException) cause;
+					}
+					throw new IOException("Segment download failed", cause);
+				}
+			}
+			channel.force(false);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void verify(final Range first) throws IOException {
+		if (received.get() != first.getTotal()) {
+			throw new IOException("Downloaded " + received.get() + " bytes, expected " + first.getTotal());
+		}
+		if (first.getDigest() != null) {
+			final byte[] actual = ResumableDownload.digest(target, first.getDigestAlgorithm());
+			if (actual != null && !Arrays.equals(actual, first.getDigest())) {
+				throw new IOException(first.getDigestAlgorithm() + " digest of the download does not match");
+			}
+		}
+	}
+
+	private void stop() {
+		stopped.set(true);
+		for (InputStream in : openStreams) {
+			try {
+				in.close();
+			} catch (IOException e) {
+				// Only done to unblock the reader
+			}
+		}
+	}
+
+	private void checkStopped() throws InterruptedIOException {
+		if (stopped.get() || cancelled) {
+			throw new InterruptedIOException("Download of " + target + " stopped");
+		}
+	}
+
+	/**
+	 * Downloads bytes start to end, inclusive, into the file.
+	 */
+	private class Segment {
+
+		private final FileChannel channel;
+		private final long end;
+		private final String validator;
+		private long position;
+		private Range range;
+
+		Segment(final FileChannel channel, final long start, final long end, final String validator,
+				final Range range) {
+			this.channel = channel;
+			this.position = start;
+			this.end = end;
+			this.validator = validator;
+			this.range = range;
+		}
+
+		void download() throws IOException {
+			int failures = 0;
+			while (position <= end) {
+				checkStopped();
+				final long before = position;
+				try {
+					if (range == null) {
+						range = source.open(position, end, validator);
+					}
+					transfer(range);
+				} catch (InterruptedIOException | ChangedException e) {
+					throw e;
+				} catch (IOException e) {
+					checkStopped();
+					failures = position > before ? 1 : failures + 1;
+					if (failures > maxRetries) {
+						throw e;
+					}
+					logger.log(Level.INFO, "Segment of " + target + " failed at byte " + position + ", retrying", e);
+					try {
+						Thread.sleep(Math.min(retryDelayMillis << Math.min(failures - 1, 16), 30000));
+					} catch (InterruptedException ie) {
+						throw new InterruptedIOException("Download of " + target + " interrupted");
+					}
+				} finally {
+					if (range != null) {
+						openStreams.remove(range.getContent());
+						range.getContent().close();
+						range = null;
+					}
+				}
+			}
+		}
+
+		private void transfer(final Range range) throws IOException {
+			final InputStream in = range.getContent();
+			openStreams.add(in);
+			checkStopped();
+			if (range.getStart() != position) {
+				throw new ChangedException("Server sent byte " + range.getStart() + " instead of " + position
+						+ "; the content may have changed");
+			}
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while (position <= end
+					&& (read = in.read(buffer, 0, (int) Math.min(buffer.length, end - position + 1))) != -1) {
+				final ByteBuffer wrapped = ByteBuffer.wrap(buffer, 0, read);
+				while (wrapped.hasRemaining()) {
+					position += channel.write(wrapped, position);
+				}
+				final long bytes = received.addAndGet(read);
+				if (progressListener != null) {
+					progressListener.progress(bytes, range.getTotal());
+				}
+			}
+			if (position <= end) {
+				throw new IOException("Connection closed at byte " + position + " of segment ending at " + end);
+			}
+		}
+	}
+
+	/**
+	 * Not retried: the server no longer serves the version being downloaded.
+	 */
+	private static class ChangedException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		ChangedException(final String message) {
+			super(message);
+		}
+	}
+}
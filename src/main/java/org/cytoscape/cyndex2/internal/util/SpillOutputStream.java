@@ -0,0 +1,161 @@
+package org.cytoscape.cyndex2.internal.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Output buffer that is kept in memory until it grows past a threshold, after
+ * which everything written is moved to a temporary file.
+ *
+ * Once closed, the content can be read back any number of times with
+ * {@link #openInputStream()}, which makes uploads from it retryable. Spilled
+ * content is read through a {@link FileChannel}, so it never has to fit on the
+ * heap. Call {@link #delete()} when done to remove the temporary file.
+ */
+public class SpillOutputStream extends OutputStream {
+
+	private static final int FILE_BUFFER_SIZE = 256 * 1024;
+
+	private final long threshold;
+	private final File directory;
+
+	private ExposedByteArrayOutputStream memory = new ExposedByteArrayOutputStream();
+	private Path file;
+	private OutputStream fileOut;
+	private long length;
+	private boolean closed;
+
+	/**
+	 * @param threshold number of bytes kept in memory before spilling to disk
+	 * @param directory directory for the temporary file, or null for the system default
+	 */
+	public SpillOutputStream(final long threshold, final File directory) {
+		this.threshold = threshold;
+		this.directory = directory;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		ensureOpen();
+		target(1).write(b);
+		length++;
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		ensureOpen();
+		target(len).write(b, off, len);
+		length += len;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (fileOut != null) {
+			fileOut.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (fileOut != null) {
+			fileOut.close();
+			fileOut = null;
+		}
+	}
+
+	/**
+	 * Exact number of bytes written.
+	 */
+	public long length() {
+		return length;
+	}
+
+	public boolean isSpilled() {
+		return file != null;
+	}
+
+	/**
+	 * Opens a new stream over the full content. The buffer must be closed first.
+	 */
+	public InputStream openInputStream() throws IOException {
+		if (!closed) {
+			throw new IOException("Buffer is still being written");
+		}
+		if (file == null) {
+			if (memory == null) {
+				throw new IOException("Buffer has been deleted");
+			}
+			return memory.toInputStream();
+		}
+		return Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ));
+	}
+
+	/**
+	 * Releases the in-memory buffer and removes the temporary file, if any.
+	 */
+	public void delete() {
+		try {
+			close();
+		} catch (IOException e) {
+			Logger.getLogger(SpillOutputStream.class.getName()).log(Level.FINE, "Failed to close spill file", e);
+		}
+		memory = null;
+		if (file != null) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				Logger.getLogger(SpillOutputStream.class.getName()).log(Level.WARNING, "Failed to delete " + file, e);
+				file.toFile().deleteOnExit();
+			}
+		}
+	}
+
+	private OutputStream target(final int len) throws IOException {
+		if (fileOut != null) {
+			return fileOut;
+		}
+		if (memory.size() + (long) len <= threshold) {
+			return memory;
+		}
+		if (directory != null) {
+			directory.mkdirs();
+			file = Files.createTempFile(directory.toPath(), "cx-export-", ".cx");
+		} else {
+			file = Files.createTempFile("cx-export-", ".cx");
+		}
+		fileOut = new BufferedOutputStream(Files.newOutputStream(file), FILE_BUFFER_SIZE);
+		memory.writeTo(fileOut);
+		memory = null;
+		return fileOut;
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+		// Reads the backing array directly instead of copying it with toByteArray()
+		InputStream toInputStream() {
+			return new ByteArrayInputStream(buf, 0, count);
+		}
+	}
+}
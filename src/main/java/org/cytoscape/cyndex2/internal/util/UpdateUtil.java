@@ -5,8 +5,12 @@ import java.sql.Timestamp;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+
+import javax.ws.rs.WebApplicationException;
+
 import org.cytoscape.cyndex2.internal.CyActivator;
 import org.cytoscape.cyndex2.internal.CyServiceModule;
+import org.cytoscape.cyndex2.internal.rest.NdexClient;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNetworkManager;
 import org.cytoscape.model.subnetwork.CyRootNetwork;
@@ -61,7 +65,7 @@ public class UpdateUtil {
 
 		NetworkSummary ns = null;
 		try {
-			ns = mal.getNetworkSummaryById(uuid);
+			ns = getNetworkSummary(uuid, nc, mal);
 
 			if (ns.getIsReadOnly())
 				throw new Exception("The network is read only.");
@@ -88,6 +92,24 @@ public class UpdateUtil {
 		return uuid;
 	}
 
+	/**
+	 * Fetches the summary through the shared NdexClient when possible, so that
+	 * repeated checks of an unchanged network are answered with 304 Not Modified.
+	 */
+	private static NetworkSummary getNetworkSummary(final UUID uuid, final NdexRestClient nc,
+			final NdexRestClientModelAccessLayer mal) throws IOException, NdexException {
+		final NdexClient client = CyServiceModule.getNdexClient();
+		if (client == null || nc == null || nc.getUsername() == null || nc.getBaseroute() == null) {
+			return mal.getNetworkSummaryById(uuid);
+		}
+		try {
+			return client.getNetworkSummary(nc.getBaseroute(), uuid.toString(), null, nc.getUsername(),
+					nc.getPassword());
+		} catch (WebApplicationException e) {
+			return mal.getNetworkSummaryById(uuid);
+		}
+	}
+
 	public static UUID updateIsPossibleHelper(final Long suid, final boolean isCollection, final NdexRestClient nc,
 			final NdexRestClientModelAccessLayer mal) throws Exception {
 		return updateIsPossibleHelper(suid, isCollection, nc, mal, true);
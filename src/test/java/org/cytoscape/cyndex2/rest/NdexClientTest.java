@@ -0,0 +1,119 @@
+package org.cytoscape.cyndex2.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeader;
+import org.cytoscape.cyndex2.internal.rest.NdexClient;
+import org.cytoscape.cyndex2.internal.rest.errors.ErrorBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class NdexClientTest {
+
+	private CloseableHttpClient httpClient;
+	private CloseableHttpResponse response;
+	private StatusLine statusLine;
+	private NdexClient client;
+
+	@Before
+	public void setUp() throws IOException {
+		httpClient = mock(CloseableHttpClient.class);
+		response = mock(CloseableHttpResponse.class);
+		statusLine = mock(StatusLine.class);
+		HttpEntity entity = mock(HttpEntity.class);
+		when(statusLine.getStatusCode()).thenReturn(200);
+		when(response.getStatusLine()).thenReturn(statusLine);
+		when(response.getEntity()).thenReturn(entity);
+		when(entity.getContent()).thenAnswer(invocation -> new ByteArrayInputStream(
+				"{\"name\":\"test\"}".getBytes(StandardCharsets.UTF_8)));
+		when(entity.getContentLength()).thenReturn(-1L);
+		when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(response);
+
+		client = new NdexClient(mock(ErrorBuilder.class), httpClient, new PoolingHttpClientConnectionManager());
+	}
+
+	@Test
+	public void getSummary_sends_credentials_per_request() throws IOException {
+		Map<String, ?> summary = client.getSummary("http://example.org/v2", "abc", "user", "pw");
+		client.getSummary("http://example.org/v2", "abc", null, null);
+
+		assertEquals("test", summary.get("name"));
+		ArgumentCaptor<HttpUriRequest> captor = ArgumentCaptor.forClass(HttpUriRequest.class);
+		verify(httpClient, times(2)).execute(captor.capture());
+		assertTrue(captor.getAllValues().get(0).containsHeader(HttpHeaders.AUTHORIZATION));
+		assertFalse(captor.getAllValues().get(1).containsHeader(HttpHeaders.AUTHORIZATION));
+		assertEquals("http://example.org/v2/network/abc/summary", captor.getAllValues().get(0).getURI().toString());
+	}
+
+	@Test
+	public void server_urls_without_api_route_get_v2() throws IOException {
+		client.getNetworkAsCXStream("http://example.org", "abc", null, null, null).close();
+		client.getNetworkSummary("example.org/", "def", null, null, null);
+
+		ArgumentCaptor<HttpUriRequest> captor = ArgumentCaptor.forClass(HttpUriRequest.class);
+		verify(httpClient, times(2)).execute(captor.capture());
+		assertEquals("http://example.org/v2/network/abc", captor.getAllValues().get(0).getURI().toString());
+		assertEquals("http://example.org/v2/network/def/summary", captor.getAllValues().get(1).getURI().toString());
+	}
+
+	@Test
+	public void responses_are_closed() throws IOException {
+		client.getSummary("http://example.org/v2", "abc", "user", "pw");
+		client.setVisibility("http://example.org/v2", "abc", true, "user", "pw");
+
+		verify(response, times(2)).close();
+	}
+
+	@Test
+	public void unchanged_summary_is_revalidated() throws IOException {
+		when(response.getFirstHeader(HttpHeaders.ETAG)).thenReturn(new BasicHeader(HttpHeaders.ETAG, "\"v1\""));
+		Map<String, ?> first = client.getSummary("http://example.org/v2", "abc", "user", "pw");
+
+		when(statusLine.getStatusCode()).thenReturn(304);
+		Map<String, ?> second = client.getSummary("http://example.org/v2", "abc", "user", "pw");
+
+		assertEquals(first, second);
+		ArgumentCaptor<HttpUriRequest> captor = ArgumentCaptor.forClass(HttpUriRequest.class);
+		verify(httpClient, times(2)).execute(captor.capture());
+		assertFalse(captor.getAllValues().get(0).containsHeader(HttpHeaders.IF_NONE_MATCH));
+		assertEquals("\"v1\"", captor.getAllValues().get(1).getFirstHeader(HttpHeaders.IF_NONE_MATCH).getValue());
+	}
+
+	@Test
+	public void summaries_of_other_users_are_not_revalidated() throws IOException {
+		when(response.getFirstHeader(HttpHeaders.ETAG)).thenReturn(new BasicHeader(HttpHeaders.ETAG, "\"v1\""));
+		client.getSummary("http://example.org/v2", "abc", "user", "pw");
+		client.getSummary("http://example.org/v2", "abc", "other", "pw");
+
+		ArgumentCaptor<HttpUriRequest> captor = ArgumentCaptor.forClass(HttpUriRequest.class);
+		verify(httpClient, times(2)).execute(captor.capture());
+		assertFalse(captor.getAllValues().get(1).containsHeader(HttpHeaders.IF_NONE_MATCH));
+	}
+
+	@Test
+	public void pool_stats_are_exposed() {
+		assertEquals(0, client.getPoolStats().getLeased());
+		assertNull(new NdexClient(mock(ErrorBuilder.class), httpClient, null).getPoolStats());
+	}
+}
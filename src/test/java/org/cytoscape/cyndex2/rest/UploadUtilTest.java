@@ -0,0 +1,139 @@
+package org.cytoscape.cyndex2.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import org.cytoscape.cyndex2.internal.rest.UploadUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class UploadUtilTest {
+
+	private HttpServer server;
+	private final AtomicReference<String> method = new AtomicReference<>();
+	private final AtomicReference<String> encoding = new AtomicReference<>();
+	private final AtomicReference<String> contentLength = new AtomicReference<>();
+	private final AtomicReference<String> transferEncoding = new AtomicReference<>();
+	private final AtomicReference<byte[]> body = new AtomicReference<>();
+	private volatile int status = 200;
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			method.set(exchange.getRequestMethod());
+			encoding.set(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+			contentLength.set(exchange.getRequestHeaders().getFirst("Content-Length"));
+			transferEncoding.set(exchange.getRequestHeaders().getFirst("Transfer-Encoding"));
+			body.set(readAll(exchange.getRequestBody()));
+			final byte[] response = "http://example.org/v2/network/abc".getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(status, response.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(response);
+			}
+		});
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	private String url() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/v2/network";
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	@Test
+	public void gzip_upload_compresses_multipart_body() throws IOException {
+		final UploadUtil upload = new UploadUtil(url(), "PUT", "UTF-8", null, true);
+		upload.addFilePart("CXNetworkStream", new ByteArrayInputStream("[{\"nodes\":[]}]".getBytes(StandardCharsets.UTF_8)));
+		final List<String> response = upload.finish();
+
+		assertEquals("PUT", method.get());
+		assertEquals("gzip", encoding.get());
+		final String multipart = new String(readAll(new GZIPInputStream(new ByteArrayInputStream(body.get()))),
+				StandardCharsets.UTF_8);
+		assertTrue(multipart.contains("name=\"CXNetworkStream\""));
+		assertTrue(multipart.contains("[{\"nodes\":[]}]"));
+		assertEquals("http://example.org/v2/network/abc", response.get(0));
+	}
+
+	@Test
+	public void plain_upload_is_not_encoded() throws IOException {
+		final UploadUtil upload = new UploadUtil(url(), "UTF-8", null);
+		upload.addFilePart("CXNetworkStream", new ByteArrayInputStream(new byte[] { '[', ']' }));
+		upload.finish();
+
+		assertEquals("POST", method.get());
+		assertEquals(null, encoding.get());
+	}
+
+	@Test
+	public void known_length_is_sent_with_content_length() throws IOException {
+		final byte[] cx = new byte[300000];
+		final List<Long> progress = new ArrayList<>();
+		final UploadUtil upload = new UploadUtil(url(), "UTF-8", null);
+		upload.addFilePart("CXNetworkStream", new ByteArrayInputStream(cx), cx.length);
+		upload.setProgressListener((sent, total) -> {
+			assertEquals(upload.getContentLength(), total);
+			progress.add(sent);
+		});
+		upload.finish();
+
+		assertEquals(String.valueOf(upload.getContentLength()), contentLength.get());
+		assertNull(transferEncoding.get());
+		assertEquals(upload.getContentLength(), body.get().length);
+		assertEquals(upload.getContentLength(), progress.get(progress.size() - 1).longValue());
+	}
+
+	@Test
+	public void unknown_length_is_sent_in_chunks() throws IOException {
+		final UploadUtil upload = new UploadUtil(url(), "UTF-8", null);
+		upload.addFilePart("CXNetworkStream", new ByteArrayInputStream(new byte[1000]));
+		upload.finish();
+
+		assertEquals(-1, upload.getContentLength());
+		assertEquals("chunked", transferEncoding.get());
+	}
+
+	@Test
+	public void rejected_upload_reports_status() throws IOException {
+		status = 415;
+		final UploadUtil upload = new UploadUtil(url(), "POST", "UTF-8", null, true);
+		upload.addFilePart("CXNetworkStream", new ByteArrayInputStream(new byte[] { '[', ']' }));
+		try {
+			upload.finish();
+			fail();
+		} catch (UploadUtil.HttpStatusException e) {
+			assertEquals(415, e.getStatus());
+		}
+	}
+}
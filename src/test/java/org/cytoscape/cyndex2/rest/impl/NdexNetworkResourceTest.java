@@ -11,6 +11,8 @@ import org.cytoscape.cyndex2.internal.rest.endpoints.NdexNetworkResource.CISumma
 import org.cytoscape.cyndex2.internal.rest.endpoints.impl.NdexNetworkResourceImpl;
 import org.cytoscape.cyndex2.internal.rest.errors.ErrorBuilder;
 import org.cytoscape.cyndex2.internal.rest.errors.ErrorType;
+import org.cytoscape.cyndex2.internal.rest.parameter.NDExBatchImportParameters;
+import org.cytoscape.cyndex2.internal.rest.parameter.NDExBatchSaveParameters;
 import org.cytoscape.cyndex2.internal.rest.parameter.NDExImportParameters;
 import org.cytoscape.cyndex2.internal.rest.parameter.NDExSaveParameters;
 import org.cytoscape.cyndex2.internal.rest.response.SummaryResponse;
@@ -351,6 +353,23 @@ public class NdexNetworkResourceTest {
 		verify(mockedImportTaskFactory).createTaskIterator();
 	}
 	
+	@Test(expected = WebApplicationException.class)
+	public void testCreateNetworksFromNdexRequiresNetworks() {
+		NdexNetworkResourceImpl impl = new NdexNetworkResourceImpl(client, appManager, networkManager, ciServiceManager);
+		
+		impl.createNetworksFromNdex(new NDExBatchImportParameters());
+	}
+	
+	@Test(expected = WebApplicationException.class)
+	public void testSaveNetworksToNdexRequiresCredentials() {
+		NdexNetworkResourceImpl impl = new NdexNetworkResourceImpl(client, appManager, networkManager, ciServiceManager);
+		NDExBatchSaveParameters params = new NDExBatchSaveParameters();
+		params.suids = new ArrayList<Long>();
+		params.suids.add(669l);
+		
+		impl.saveNetworksToNdex(params);
+	}
+	
 	@Test
 	public void testCurrentNetworkToNdex() {
 		NdexNetworkResourceImpl impl = new NdexNetworkResourceImpl(client, appManager, networkManager, ciServiceManager);
@@ -0,0 +1,81 @@
+package org.cytoscape.cyndex2.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.cytoscape.cyndex2.internal.task.NDExJob;
+import org.cytoscape.cyndex2.internal.task.NDExJobManager;
+import org.junit.Test;
+
+public class NDExJobManagerTest {
+
+	private static NDExJob finishedJob() {
+		final NDExJob job = new NDExJob(NDExJob.TYPE_IMPORT);
+		// A queued job without a worker finishes as soon as it is cancelled
+		job.cancel();
+		return job;
+	}
+
+	@Test
+	public void finds_jobs_by_id() {
+		final NDExJobManager manager = new NDExJobManager(4, 60000);
+		final NDExJob job = new NDExJob(NDExJob.TYPE_IMPORT);
+
+		assertTrue(manager.add(job));
+
+		assertSame(job, manager.get(job.getId()));
+		assertNull(manager.get("unknown"));
+	}
+
+	@Test
+	public void cancelling_queued_job_finishes_it() {
+		final NDExJob job = new NDExJob(NDExJob.TYPE_EXPORT);
+
+		assertTrue(job.cancel());
+
+		assertEquals(NDExJob.State.CANCELLED, job.getState());
+		assertTrue(job.isDone());
+		assertFalse(job.cancel());
+	}
+
+	@Test
+	public void full_registry_evicts_oldest_finished_job() {
+		final NDExJobManager manager = new NDExJobManager(2, 60000);
+		final NDExJob finished = finishedJob();
+		final NDExJob running = new NDExJob(NDExJob.TYPE_IMPORT);
+		manager.add(finished);
+		manager.add(running);
+
+		final NDExJob next = new NDExJob(NDExJob.TYPE_IMPORT);
+		assertTrue(manager.add(next));
+
+		assertNull(manager.get(finished.getId()));
+		assertSame(running, manager.get(running.getId()));
+		assertSame(next, manager.get(next.getId()));
+	}
+
+	@Test
+	public void full_registry_of_running_jobs_rejects_new_job() {
+		final NDExJobManager manager = new NDExJobManager(2, 60000);
+		manager.add(new NDExJob(NDExJob.TYPE_IMPORT));
+		manager.add(new NDExJob(NDExJob.TYPE_IMPORT));
+
+		assertFalse(manager.add(new NDExJob(NDExJob.TYPE_IMPORT)));
+		assertEquals(2, manager.size());
+	}
+
+	@Test
+	public void finished_jobs_expire() {
+		final NDExJobManager manager = new NDExJobManager(4, 0);
+		final NDExJob finished = finishedJob();
+		final NDExJob running = new NDExJob(NDExJob.TYPE_IMPORT);
+		manager.add(finished);
+		manager.add(running);
+
+		assertNull(manager.get(finished.getId()));
+		assertSame(running, manager.get(running.getId()));
+	}
+}
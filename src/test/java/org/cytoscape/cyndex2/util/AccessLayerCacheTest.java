@@ -0,0 +1,83 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cytoscape.cyndex2.internal.util.AccessLayerCache;
+import org.cytoscape.cyndex2.internal.util.ServerKey;
+import org.junit.Before;
+import org.junit.Test;
+import org.ndexbio.rest.client.NdexRestClient;
+import org.ndexbio.rest.client.NdexRestClientModelAccessLayer;
+
+public class AccessLayerCacheTest {
+
+	private static final String URL = "http://example.org/v2";
+
+	private AtomicInteger created;
+	private AccessLayerCache cache;
+
+	@Before
+	public void setUp() {
+		created = new AtomicInteger();
+		cache = new AccessLayerCache(60000, (username, password, url, idToken) -> {
+			created.incrementAndGet();
+			return mock(NdexRestClient.class);
+		});
+	}
+
+	@Test
+	public void same_credentials_reuse_session() throws Exception {
+		NdexRestClientModelAccessLayer first = cache.getAccessLayer("user", "pw", URL);
+		NdexRestClientModelAccessLayer second = cache.getAccessLayer("user", "pw", URL);
+
+		assertSame(first, second);
+		assertEquals(1, created.get());
+	}
+
+	@Test
+	public void changed_password_builds_new_session() throws Exception {
+		NdexRestClientModelAccessLayer first = cache.getAccessLayer("user", "pw", URL);
+		NdexRestClientModelAccessLayer second = cache.getAccessLayer("user", "other", URL);
+
+		assertNotSame(first, second);
+		assertEquals(2, created.get());
+	}
+
+	@Test
+	public void anonymous_and_token_sessions_are_separate() throws Exception {
+		cache.getAccessLayer(null, null, URL);
+		cache.getAccessLayer(null, null, URL, "token");
+		cache.getAccessLayer(null, null, URL);
+
+		assertEquals(2, created.get());
+	}
+
+	@Test
+	public void invalidate_drops_profile_sessions() throws Exception {
+		cache.getAccessLayer("user", "pw", URL);
+		cache.getAccessLayer("other", "pw", URL);
+
+		cache.invalidate(new ServerKey("user", "example.org"));
+
+		assertEquals(1, cache.size());
+		cache.getAccessLayer("user", "pw", URL);
+		assertEquals(3, created.get());
+	}
+
+	@Test
+	public void idle_sessions_are_evicted() throws Exception {
+		AccessLayerCache shortLived = new AccessLayerCache(-1, (username, password, url, idToken) -> {
+			created.incrementAndGet();
+			return mock(NdexRestClient.class);
+		});
+		shortLived.getAccessLayer("user", "pw", URL);
+		shortLived.getAccessLayer("user", "pw", URL);
+
+		assertEquals(2, created.get());
+	}
+}
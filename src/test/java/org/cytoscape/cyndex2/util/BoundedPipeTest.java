@@ -0,0 +1,147 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.cytoscape.cyndex2.internal.util.BoundedPipe;
+import org.junit.Test;
+
+public class BoundedPipeTest {
+
+	private static byte[] randomBytes(int size) {
+		byte[] data = new byte[size];
+		new Random(42).nextBytes(data);
+		return data;
+	}
+
+	private static byte[] drain(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1000];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	@Test
+	public void readAhead_copies_all_bytes() throws IOException {
+		byte[] data = randomBytes(100_003);
+		InputStream in = BoundedPipe.readAhead(new ByteArrayInputStream(data), "test-copier", 1024, 4);
+		assertArrayEquals(data, drain(in));
+	}
+
+	@Test
+	public void writer_thread_bytes_reach_reader() throws Exception {
+		final byte[] data = randomBytes(50_000);
+		final BoundedPipe pipe = new BoundedPipe(512, 2);
+		Thread writer = new Thread(() -> {
+			try (OutputStream out = pipe.getOutputStream()) {
+				for (byte b : data) {
+					out.write(b);
+				}
+			} catch (IOException e) {
+				pipe.fail(e);
+			}
+		});
+		writer.start();
+		assertArrayEquals(data, drain(pipe.getInputStream()));
+		writer.join();
+	}
+
+	@Test
+	public void producer_failure_is_rethrown_to_reader() throws Exception {
+		BoundedPipe pipe = new BoundedPipe(16, 2);
+		pipe.getOutputStream().write(new byte[] { 1, 2, 3 });
+		pipe.getOutputStream().flush();
+		pipe.fail(new IOException("boom"));
+
+		InputStream in = pipe.getInputStream();
+		assertEquals(1, in.read());
+		assertEquals(2, in.read());
+		assertEquals(3, in.read());
+		try {
+			in.read();
+			fail("Expected producer failure");
+		} catch (IOException e) {
+			assertEquals("boom", e.getMessage());
+		}
+	}
+
+	@Test
+	public void closing_reader_releases_blocked_writer() throws Exception {
+		final BoundedPipe pipe = new BoundedPipe(8, 1);
+		final IOException[] writerError = new IOException[1];
+		Thread writer = new Thread(() -> {
+			try {
+				pipe.getOutputStream().write(new byte[1024]);
+			} catch (IOException e) {
+				writerError[0] = e;
+			}
+		});
+		writer.start();
+		Thread.sleep(200);
+		pipe.getInputStream().close();
+		writer.join(5000);
+		assertEquals(false, writer.isAlive());
+		assertEquals("Pipe reader closed", writerError[0].getMessage());
+	}
+
+	@Test
+	public void closing_reader_releases_blocked_reader() throws Exception {
+		// A source that blocks until closed, then fails, like a socket
+		final Object lock = new Object();
+		final boolean[] sourceClosed = new boolean[1];
+		final InputStream source = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				synchronized (lock) {
+					while (!sourceClosed[0]) {
+						try {
+							lock.wait();
+						} catch (InterruptedException e) {
+							throw new IOException(e);
+						}
+					}
+				}
+				throw new IOException("Socket closed");
+			}
+
+			@Override
+			public void close() {
+				synchronized (lock) {
+					sourceClosed[0] = true;
+					lock.notifyAll();
+				}
+			}
+		};
+		final InputStream in = BoundedPipe.readAhead(source, "test-copier", 8, 1);
+		final IOException[] readerError = new IOException[1];
+		Thread reader = new Thread(() -> {
+			try {
+				in.read();
+			} catch (IOException e) {
+				readerError[0] = e;
+			}
+		});
+		reader.start();
+		Thread.sleep(200);
+		in.close();
+		reader.join(5000);
+		assertEquals(false, reader.isAlive());
+		assertEquals("Pipe closed", readerError[0].getMessage());
+	}
+
+	@Test
+	public void capacity_is_chunk_size_times_count() {
+		assertEquals(64L * 1024 * 16, new BoundedPipe().getCapacity());
+	}
+}
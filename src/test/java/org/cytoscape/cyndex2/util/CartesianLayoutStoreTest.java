@@ -0,0 +1,106 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.cytoscape.cyndex2.internal.util.CartesianLayoutStore;
+import org.junit.Test;
+
+public class CartesianLayoutStoreTest {
+
+	@Test
+	public void positions_are_found_after_unordered_adds() {
+		final CartesianLayoutStore store = new CartesianLayoutStore();
+		final int count = 100000;
+		final long[] ids = new long[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = i * 3L;
+		}
+		final Random random = new Random(5);
+		for (int i = count - 1; i > 0; i--) {
+			final int j = random.nextInt(i + 1);
+			final long id = ids[i];
+			ids[i] = ids[j];
+			ids[j] = id;
+		}
+		for (long id : ids) {
+			store.add(id, id, -id, id / 2.0);
+		}
+
+		assertEquals(count, store.size());
+		final double[] position = new double[3];
+		for (long id = 0; id < count * 3L; id += 3) {
+			assertTrue(store.get(id, position));
+			assertArrayEquals(new double[] { id, -id, id / 2.0 }, position, 0);
+		}
+		assertFalse(store.get(1, position));
+	}
+
+	private static CartesianLayoutStore storeOfFourNodes() {
+		final CartesianLayoutStore store = new CartesianLayoutStore(4);
+		store.addNode(40, "d");
+		store.addNode(10, "a");
+		store.addNode(30, "c");
+		store.addNode(20, null);
+		store.add(30, 3, 3, 0);
+		store.add(10, 1, 1, 7);
+		return store;
+	}
+
+	@Test
+	public void positions_are_rekeyed_by_suid() {
+		assertFalse(storeOfFourNodes().resolve(new long[] { 101, 102, 103 }, new String[] { "a", "b", "c" }));
+
+		final CartesianLayoutStore other = storeOfFourNodes();
+		// The node without a name in the CX matches any name
+		assertTrue(other.resolve(new long[] { 101, 102, 103, 104 }, new String[] { "a", "b", "c", "d" }));
+
+		final double[] position = new double[3];
+		assertTrue(other.get(101, position));
+		assertArrayEquals(new double[] { 1, 1, 7 }, position, 0);
+		assertTrue(other.get(103, position));
+		assertArrayEquals(new double[] { 3, 3, 0 }, position, 0);
+		assertFalse(other.get(102, position));
+		assertFalse(other.get(30, position));
+	}
+
+	@Test
+	public void nodes_created_out_of_cx_order_are_matched_by_name() {
+		final CartesianLayoutStore store = new CartesianLayoutStore(4);
+		store.addNode(40, "d");
+		store.addNode(10, "a");
+		store.addNode(30, "c");
+		store.addNode(20, "b");
+		store.add(30, 3, 3, 0);
+		store.add(10, 1, 1, 7);
+
+		// Created in the order of the nodes aspect, not by CX id
+		assertTrue(store.resolve(new long[] { 101, 102, 103, 104 }, new String[] { "d", "a", "c", "b" }));
+
+		final double[] position = new double[3];
+		assertTrue(store.get(102, position));
+		assertArrayEquals(new double[] { 1, 1, 7 }, position, 0);
+		assertTrue(store.get(103, position));
+		assertArrayEquals(new double[] { 3, 3, 0 }, position, 0);
+		assertFalse(store.get(101, position));
+	}
+
+	@Test
+	public void mismatched_names_are_not_resolved() {
+		// Unnamed nodes can't be matched by name
+		final CartesianLayoutStore store = storeOfFourNodes();
+		assertFalse(store.resolve(new long[] { 101, 102, 103, 104 }, new String[] { "c", "b", "a", "d" }));
+		assertFalse(store.isResolved());
+
+		final CartesianLayoutStore duplicates = new CartesianLayoutStore(3);
+		duplicates.addNode(3, "a");
+		duplicates.addNode(1, "a");
+		duplicates.addNode(2, "b");
+		duplicates.add(1, 1, 1, 0);
+		assertFalse(duplicates.resolve(new long[] { 101, 102, 103 }, new String[] { "b", "a", "a" }));
+	}
+}
@@ -0,0 +1,68 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.cytoscape.cyndex2.internal.util.CartesianLayoutStore;
+import org.cytoscape.cyndex2.internal.util.CartesianLayoutTap;
+import org.junit.Test;
+
+public class CartesianLayoutTapTest {
+
+	private static final String CX = "[{\"numberVerification\":[{\"longNumber\":281474976710655}]},"
+			+ "{\"nodes\":[{\"@id\":7,\"n\":\"TP53\"},{\"@id\":2}]},"
+			+ "{\"cartesianLayout\":[{\"node\":7,\"x\":1.5,\"y\":-2.0},{\"node\":2,\"x\":3,\"y\":4,\"z\":5}]},"
+			+ "{\"nodes\":[{\"@id\":5}]},"
+			+ "{\"status\":[{\"error\":\"\",\"success\":true}]}]";
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[7];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	@Test
+	public void layout_is_collected_while_stream_is_read() throws Exception {
+		final byte[] cx = CX.getBytes(StandardCharsets.UTF_8);
+		final CartesianLayoutTap tap = new CartesianLayoutTap(new ByteArrayInputStream(cx), "test", 3);
+
+		assertArrayEquals(cx, readAll(tap));
+		final CartesianLayoutStore store = tap.getStore();
+
+		assertEquals(2, store.size());
+		assertEquals(3, store.getNodeCount());
+		final double[] position = new double[3];
+		store.get(7, position);
+		assertArrayEquals(new double[] { 1.5, -2.0, 0 }, position, 0);
+		store.get(2, position);
+		assertArrayEquals(new double[] { 3, 4, 5 }, position, 0);
+		assertFalse(store.get(5, position));
+		assertFalse(store.resolve(new long[] { 11, 12, 13 }, new String[] { "TP53", null, null }));
+		assertTrue(store.resolve(new long[] { 11, 12, 13 }, new String[] { null, null, "TP53" }));
+		store.get(13, position);
+		assertArrayEquals(new double[] { 1.5, -2.0, 0 }, position, 0);
+	}
+
+	@Test
+	public void truncated_stream_yields_no_layout() throws Exception {
+		final byte[] cx = CX.substring(0, CX.indexOf("{\"node\":2")).getBytes(StandardCharsets.UTF_8);
+		final CartesianLayoutTap tap = new CartesianLayoutTap(new ByteArrayInputStream(cx), "test", 3);
+
+		readAll(tap);
+
+		assertNull(tap.getStore());
+	}
+}
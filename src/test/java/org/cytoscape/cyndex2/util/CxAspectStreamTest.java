@@ -0,0 +1,58 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.cytoscape.cyndex2.internal.util.CxAspectStream;
+import org.junit.Test;
+
+public class CxAspectStreamTest {
+
+	private static String readAll(InputStream in) throws IOException {
+		try (InputStream stream = in) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[7];
+			int read;
+			while ((read = stream.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	public void aspects_are_joined_into_one_cx_document() throws IOException {
+		final InputStream in = new CxAspectStream("[{\"name\":\"nodes\"},{\"name\":\"edges\"}]",
+				Arrays.asList("nodes", "edges"), aspect -> new ByteArrayInputStream(
+						("nodes".equals(aspect) ? "[{\"@id\":1},{\"@id\":2}]" : "[{\"@id\":3,\"s\":1,\"t\":2}]")
+								.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals("[{\"numberVerification\":[{\"longNumber\":281474976710655}]},"
+				+ "{\"metaData\":[{\"name\":\"nodes\"},{\"name\":\"edges\"}]},"
+				+ "{\"nodes\":[{\"@id\":1},{\"@id\":2}]},"
+				+ "{\"edges\":[{\"@id\":3,\"s\":1,\"t\":2}]},"
+				+ "{\"status\":[{\"error\":\"\",\"success\":true}]}]", readAll(in));
+	}
+
+	@Test
+	public void aspects_are_opened_only_when_reached() throws IOException {
+		final List<String> opened = new ArrayList<>();
+		final InputStream in = new CxAspectStream("[]", Arrays.asList("nodes", "edges"), aspect -> {
+			opened.add(aspect);
+			return new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8));
+		});
+
+		in.read(new byte[10]);
+		in.close();
+
+		assertEquals(0, opened.size());
+	}
+}
@@ -0,0 +1,115 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.cytoscape.cyndex2.internal.util.CxCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CxCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static byte[] randomBytes(int size) {
+		byte[] data = new byte[size];
+		new Random(11).nextBytes(data);
+		return data;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		try (InputStream stream = in) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = stream.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	@Test
+	public void keys_depend_on_modification_time() {
+		final String uuid = "b1e9a3b4-0b4e-11e8-9a9e-0ac135e8bacf";
+		assertEquals(CxCache.getKey("http://ndexbio.org/v2", uuid, 1L),
+				CxCache.getKey("http://ndexbio.org/v2", uuid, 1L));
+		assertNotEquals(CxCache.getKey("http://ndexbio.org/v2", uuid, 1L),
+				CxCache.getKey("http://ndexbio.org/v2", uuid, 2L));
+	}
+
+	@Test
+	public void fully_read_download_is_cached() throws IOException {
+		final CxCache cache = new CxCache(folder.newFolder(), 1024 * 1024);
+		final byte[] data = randomBytes(100000);
+
+		assertNull(cache.open("a"));
+		assertArrayEquals(data, readAll(cache.cacheWhileReading("a", new ByteArrayInputStream(data))));
+
+		assertArrayEquals(data, readAll(cache.open("a")));
+		assertEquals(data.length, cache.size());
+	}
+
+	@Test
+	public void partial_download_is_not_cached() throws IOException {
+		final File directory = folder.newFolder();
+		final CxCache cache = new CxCache(directory, 1024 * 1024);
+
+		try (InputStream in = cache.cacheWhileReading("a", new ByteArrayInputStream(randomBytes(100000)))) {
+			in.read(new byte[1000]);
+		}
+
+		assertNull(cache.open("a"));
+		assertEquals(0, directory.list().length);
+	}
+
+	@Test
+	public void download_closed_at_its_end_is_cached() throws IOException {
+		final CxCache cache = new CxCache(folder.newFolder(), 1024 * 1024);
+		final byte[] data = randomBytes(100000);
+
+		try (InputStream in = cache.cacheWhileReading("a", new ByteArrayInputStream(data), data.length)) {
+			// Like a parser that stops after the closing bracket
+			assertEquals(data.length - 2, in.read(new byte[data.length - 2]));
+		}
+
+		assertArrayEquals(data, readAll(cache.open("a")));
+	}
+
+	@Test
+	public void least_recently_used_entries_are_evicted() throws IOException {
+		final File directory = folder.newFolder();
+		final CxCache cache = new CxCache(directory, 2500);
+		readAll(cache.cacheWhileReading("a", new ByteArrayInputStream(randomBytes(1000))));
+		readAll(cache.cacheWhileReading("b", new ByteArrayInputStream(randomBytes(1000))));
+		new File(directory, "a.cx").setLastModified(System.currentTimeMillis() - 60000);
+		new File(directory, "b.cx").setLastModified(System.currentTimeMillis() - 30000);
+
+		readAll(cache.cacheWhileReading("c", new ByteArrayInputStream(randomBytes(1000))));
+
+		assertNull(cache.open("a"));
+		assertNotNull(cache.open("b"));
+		assertNotNull(cache.open("c"));
+	}
+
+	@Test
+	public void disabled_cache_passes_stream_through() throws IOException {
+		final CxCache cache = new CxCache(folder.newFolder(), 0);
+		final InputStream source = new ByteArrayInputStream(randomBytes(10));
+
+		assertEquals(source, cache.cacheWhileReading("a", source));
+		assertNull(cache.open("a"));
+	}
+}
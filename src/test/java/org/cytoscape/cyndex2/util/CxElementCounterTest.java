@@ -0,0 +1,36 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.cytoscape.cyndex2.internal.util.CxElementCounter;
+import org.junit.Test;
+
+public class CxElementCounterTest {
+
+	@Test
+	public void nodes_and_edges_are_counted_across_fragments() throws IOException {
+		final String cx = "[{\"numberVerification\":[{\"longNumber\":281474976710655}]},"
+				+ "{\"metaData\":[{\"name\":\"nodes\",\"elementCount\":3}]},"
+				+ "{\"nodes\":[{\"@id\":1,\"n\":\"TP53\"},{\"@id\":2}]},"
+				+ "{\"edges\":[{\"@id\":4,\"s\":1,\"t\":2,\"i\":\"binds\"}]},"
+				+ "{\"nodes\":[{\"@id\":3}]},"
+				+ "{\"nodeAttributes\":[{\"po\":1,\"n\":\"type\",\"v\":[\"a\",\"b\"]}]},"
+				+ "{\"status\":[{\"error\":\"\",\"success\":true}]}]";
+
+		final CxElementCounter counter = CxElementCounter
+				.count(new ByteArrayInputStream(cx.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(3, counter.getNodeCount());
+		assertEquals(1, counter.getEdgeCount());
+	}
+
+	@Test(expected = IOException.class)
+	public void truncated_cx_is_rejected() throws IOException {
+		final String cx = "[{\"nodes\":[{\"@id\":1},";
+		CxElementCounter.count(new ByteArrayInputStream(cx.getBytes(StandardCharsets.UTF_8)));
+	}
+}
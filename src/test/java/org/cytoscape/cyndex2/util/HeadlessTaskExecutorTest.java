@@ -0,0 +1,92 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.cytoscape.cyndex2.internal.util.HeadlessTaskExecutor;
+import org.cytoscape.cyndex2.internal.util.HeadlessTaskMonitor;
+import org.cytoscape.work.AbstractTask;
+import org.cytoscape.work.FinishStatus;
+import org.cytoscape.work.TaskIterator;
+import org.cytoscape.work.TaskMonitor;
+import org.junit.After;
+import org.junit.Test;
+
+public class HeadlessTaskExecutorTest {
+
+	private final HeadlessTaskExecutor executor = new HeadlessTaskExecutor(2);
+
+	@After
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void runs_appended_tasks_in_order() throws InterruptedException {
+		final StringBuilder order = new StringBuilder();
+		final TaskIterator iter = new TaskIterator(new AbstractTask() {
+			@Override
+			public void run(TaskMonitor taskMonitor) {
+				order.append('a');
+				insertTasksAfterCurrentTask(new AbstractTask() {
+					@Override
+					public void run(TaskMonitor taskMonitor) {
+						order.append('b');
+					}
+				});
+			}
+		});
+
+		final FinishStatus status = executor.execute(iter, null);
+
+		assertEquals(FinishStatus.Type.SUCCEEDED, status.getType());
+		assertEquals("ab", order.toString());
+	}
+
+	@Test
+	public void reports_failure() throws InterruptedException {
+		final IllegalStateException failure = new IllegalStateException("boom");
+		final TaskIterator iter = new TaskIterator(new AbstractTask() {
+			@Override
+			public void run(TaskMonitor taskMonitor) {
+				throw failure;
+			}
+		});
+
+		final FinishStatus status = executor.execute(iter, null);
+
+		assertEquals(FinishStatus.Type.FAILED, status.getType());
+		assertSame(failure, status.getException());
+	}
+
+	@Test
+	public void cancel_stops_running_task() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch released = new CountDownLatch(1);
+		final TaskIterator iter = new TaskIterator(new AbstractTask() {
+			@Override
+			public void run(TaskMonitor taskMonitor) throws InterruptedException {
+				started.countDown();
+				released.await(10, TimeUnit.SECONDS);
+			}
+
+			@Override
+			public void cancel() {
+				super.cancel();
+				released.countDown();
+			}
+		});
+
+		final Future<FinishStatus> future = executor.submit(iter, new HeadlessTaskMonitor(), null);
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		future.cancel(false);
+
+		// Cancelling the future cancels the running task instead of leaving it to time out
+		assertEquals(0, released.getCount());
+	}
+}
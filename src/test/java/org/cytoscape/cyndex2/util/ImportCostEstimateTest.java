@@ -0,0 +1,46 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.cytoscape.cyndex2.internal.util.ImportCostEstimate;
+import org.cytoscape.cyndex2.internal.util.MachineCapacity;
+import org.junit.Test;
+
+public class ImportCostEstimateTest {
+
+	private final MachineCapacity capacity = new MachineCapacity(100000, 500, 10 * 1024 * 1024, true);
+
+	@Test
+	public void download_size_falls_back_to_element_counts() {
+		assertEquals(5000, ImportCostEstimate.of(10, 20, 5000, 0, capacity).getDownloadBytes());
+		// Metadata counts attributes too, so it is preferred over nodes and edges
+		assertEquals(90 * 1000, ImportCostEstimate.of(100, 200, 0, 1000, capacity).getDownloadBytes());
+		assertEquals(90 * 300, ImportCostEstimate.of(100, 200, 0, 0, capacity).getDownloadBytes());
+	}
+
+	@Test
+	public void heap_is_checked_against_free_memory() {
+		final long megabyte = 1024L * 1024;
+		final ImportCostEstimate estimate = ImportCostEstimate.of(400000, 600000, 100 * megabyte, 0, capacity);
+
+		assertEquals(1000000 * 500L + 200 * megabyte, estimate.getModelHeap());
+		assertEquals(1000000 * 750L, estimate.getViewHeap());
+		assertEquals(30000 + 10000, estimate.getImportMillis());
+		assertFalse(estimate.exceedsHeap(1536 * megabyte));
+		assertTrue(estimate.viewExceedsHeap(1536 * megabyte));
+		assertTrue(estimate.exceedsHeap(512 * megabyte));
+	}
+
+	@Test
+	public void costs_are_formatted_for_display() {
+		assertEquals("512 B", ImportCostEstimate.formatBytes(512));
+		assertEquals("1.5 KB", ImportCostEstimate.formatBytes(1536));
+		assertEquals("300 MB", ImportCostEstimate.formatBytes(300L * 1024 * 1024));
+		assertEquals("< 1 s", ImportCostEstimate.formatMillis(999));
+		assertEquals("45 s", ImportCostEstimate.formatMillis(45000));
+		assertEquals("3 min", ImportCostEstimate.formatMillis(170000));
+		assertEquals("1.5 h", ImportCostEstimate.formatMillis(90 * 60000));
+	}
+}
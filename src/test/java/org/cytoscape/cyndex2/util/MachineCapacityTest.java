@@ -0,0 +1,37 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.cytoscape.cyndex2.internal.util.MachineCapacity;
+import org.junit.Test;
+
+public class MachineCapacityTest {
+
+	private final MachineCapacity capacity = new MachineCapacity(100000, 500, 10 * 1024 * 1024, true);
+
+	@Test
+	public void predictions_scale_with_network_size() {
+		assertEquals(1000, capacity.predictBuildMillis(100000));
+		assertEquals(2000, capacity.predictViewMillis(100000));
+		assertEquals(20000, capacity.predictLayoutMillis(40000, 60000));
+		assertEquals(3000, capacity.predictParseMillis(10 * 1024 * 1024));
+		assertEquals(100000 * 500L + 2 * 1000L, capacity.predictModelHeap(100000, 1000));
+		assertEquals(100000 * 750L, capacity.predictViewHeap(100000));
+		assertEquals(0, capacity.predictModelHeap(-1, -1));
+	}
+
+	@Test
+	public void views_are_refused_by_heap_or_time() {
+		final long gigabyte = 1024L * 1024 * 1024;
+		assertTrue(capacity.canCreateView(100000, 200000, 50 * 1024 * 1024, gigabyte));
+		// 600 MB of model and 900 MB of view do not fit in 1 GB
+		assertFalse(capacity.canCreateView(400000, 800000, 0, gigabyte));
+		// Fits in 64 GB but takes longer than a minute
+		assertFalse(capacity.canCreateView(2000000, 2000000, 0, 64 * gigabyte));
+		assertTrue(capacity.exceedsHeap(1000000, 0, 512L * 1024 * 1024));
+		assertTrue(capacity.canApplyLayout(50000, 100000));
+		assertFalse(capacity.canApplyLayout(100000, 100000));
+	}
+}
@@ -0,0 +1,82 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.cytoscape.cyndex2.internal.util.MappedFileInputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFileInputStreamTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static byte[] randomBytes(int size) {
+		byte[] data = new byte[size];
+		new Random(13).nextBytes(data);
+		return data;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		try (InputStream stream = in) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = stream.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	@Test
+	public void reads_spooled_stream() throws IOException {
+		final byte[] data = randomBytes(300000);
+		final Path file = MappedFileInputStream.spool(new ByteArrayInputStream(data), folder.newFolder());
+
+		final MappedFileInputStream in = new MappedFileInputStream(file, false);
+		assertEquals(data.length, in.length());
+		assertArrayEquals(data, readAll(in));
+		assertTrue(Files.exists(file));
+	}
+
+	@Test
+	public void skips_and_reads_single_bytes() throws IOException {
+		final byte[] data = randomBytes(1000);
+		final Path file = folder.newFile().toPath();
+		Files.write(file, data);
+
+		try (InputStream in = new MappedFileInputStream(file, false)) {
+			assertEquals(data[0] & 0xff, in.read());
+			assertEquals(99, in.skip(99));
+			assertEquals(900, in.available());
+			final byte[] rest = new byte[2000];
+			assertEquals(900, in.read(rest));
+			assertArrayEquals(Arrays.copyOfRange(data, 100, 1000), Arrays.copyOf(rest, 900));
+			assertEquals(-1, in.read());
+			assertEquals(0, in.skip(10));
+		}
+	}
+
+	@Test
+	public void temporary_file_is_removed_on_close() throws IOException {
+		final Path file = MappedFileInputStream.spool(new ByteArrayInputStream(randomBytes(10)), folder.newFolder());
+
+		readAll(new MappedFileInputStream(file, true));
+
+		assertFalse(Files.exists(file));
+	}
+}
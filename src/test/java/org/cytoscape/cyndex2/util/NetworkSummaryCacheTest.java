@@ -0,0 +1,83 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.cytoscape.cyndex2.internal.util.NetworkSummaryCache;
+import org.junit.Test;
+import org.ndexbio.model.object.network.NetworkSummary;
+
+public class NetworkSummaryCacheTest {
+
+	private static final String URL = "http://example.org/v2";
+
+	private static NetworkSummary summary(final UUID uuid) {
+		final NetworkSummary summary = new NetworkSummary();
+		summary.setExternalId(uuid);
+		return summary;
+	}
+
+	@Test
+	public void search_results_are_found_by_uuid() {
+		final NetworkSummaryCache cache = new NetworkSummaryCache(60000, 10);
+		final NetworkSummary first = summary(UUID.randomUUID());
+		final NetworkSummary second = summary(UUID.randomUUID());
+
+		cache.putSummaries(URL, "user", Arrays.asList(first, second));
+
+		assertSame(second, cache.getSummary(URL, "user", second.getExternalId()));
+		assertNull(cache.getSummary(URL, "other", first.getExternalId()));
+	}
+
+	@Test
+	public void anonymous_user_names_match() {
+		final NetworkSummaryCache cache = new NetworkSummaryCache(60000, 10);
+		final NetworkSummary summary = summary(UUID.randomUUID());
+
+		cache.putSummary(URL, "", summary);
+
+		assertSame(summary, cache.getSummary(URL, null, summary.getExternalId()));
+	}
+
+	@Test
+	public void entries_expire() {
+		final NetworkSummaryCache cache = new NetworkSummaryCache(-1, 10);
+		final NetworkSummary summary = summary(UUID.randomUUID());
+
+		cache.putSummary(URL, "user", summary);
+
+		assertNull(cache.getSummary(URL, "user", summary.getExternalId()));
+	}
+
+	@Test
+	public void least_recently_used_entry_is_evicted() {
+		final NetworkSummaryCache cache = new NetworkSummaryCache(60000, 2);
+		final NetworkSummary first = summary(UUID.randomUUID());
+		final NetworkSummary second = summary(UUID.randomUUID());
+		cache.putSummary(URL, "user", first);
+		cache.putSummary(URL, "user", second);
+		cache.getSummary(URL, "user", first.getExternalId());
+
+		cache.putSummary(URL, "user", summary(UUID.randomUUID()));
+
+		assertEquals(2, cache.size());
+		assertSame(first, cache.getSummary(URL, "user", first.getExternalId()));
+		assertNull(cache.getSummary(URL, "user", second.getExternalId()));
+	}
+
+	@Test
+	public void writes_invalidate_every_user() {
+		final NetworkSummaryCache cache = new NetworkSummaryCache(60000, 10);
+		final NetworkSummary summary = summary(UUID.randomUUID());
+		cache.putSummary(URL, "user", summary);
+		cache.putSummary(URL, null, summary);
+
+		cache.invalidate(summary.getExternalId());
+
+		assertEquals(0, cache.size());
+	}
+}
@@ -0,0 +1,278 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeader;
+import org.cytoscape.cyndex2.internal.rest.NdexClient;
+import org.cytoscape.cyndex2.internal.rest.errors.ErrorBuilder;
+import org.cytoscape.cyndex2.internal.util.ResumableDownload;
+import org.cytoscape.cyndex2.internal.util.ResumableDownload.Range;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResumableDownloadTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static byte[] randomBytes(int size) {
+		byte[] data = new byte[size];
+		new Random(17).nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * Serves a byte array, dropping the connection after a number of bytes on the
+	 * first few requests.
+	 */
+	private static class FlakySource implements ResumableDownload.RangeSource {
+		private final byte[] data;
+		private final int dropAfter;
+		private int drops;
+		private boolean honorRanges = true;
+		private final List<Long> offsets = new ArrayList<>();
+		private final List<String> validators = new ArrayList<>();
+
+		FlakySource(byte[] data, int dropAfter, int drops) {
+			this.data = data;
+			this.dropAfter = dropAfter;
+			this.drops = drops;
+		}
+
+		@Override
+		public Range open(long offset, String validator) throws IOException {
+			offsets.add(offset);
+			validators.add(validator);
+			final int start = honorRanges ? (int) offset : 0;
+			final byte[] rest = Arrays.copyOfRange(data, start, data.length);
+			if (drops > 0) {
+				drops--;
+				return new Range(new DroppingStream(rest, dropAfter), start, data.length, "\"v1\"");
+			}
+			return new Range(new ByteArrayInputStream(rest), start, data.length, "\"v1\"");
+		}
+	}
+
+	private static class DroppingStream extends FilterInputStream {
+		private int remaining;
+
+		DroppingStream(byte[] data, int remaining) {
+			super(new ByteArrayInputStream(data));
+			this.remaining = remaining;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (remaining <= 0) {
+				throw new IOException("Connection reset");
+			}
+			final int n = super.read(b, off, Math.min(len, remaining));
+			remaining -= n;
+			return n;
+		}
+	}
+
+	private ResumableDownload newDownload(Path target, ResumableDownload.RangeSource source) {
+		final ResumableDownload download = new ResumableDownload(target, source);
+		download.setRetryDelay(1);
+		return download;
+	}
+
+	@Test
+	public void dropped_connection_is_resumed_from_checkpoint() throws IOException {
+		final byte[] data = randomBytes(1000000);
+		final FlakySource source = new FlakySource(data, 300000, 2);
+		final Path target = new File(folder.getRoot(), "network.part").toPath();
+
+		newDownload(target, source).run();
+
+		assertArrayEquals(data, Files.readAllBytes(target));
+		assertEquals(Arrays.asList(0L, 300000L, 600000L), source.offsets);
+		assertEquals("\"v1\"", source.validators.get(1));
+		assertFalse(Files.exists(target.resolveSibling("network.part.checkpoint")));
+	}
+
+	@Test
+	public void later_download_resumes_where_earlier_one_gave_up() throws IOException {
+		final byte[] data = randomBytes(500000);
+		final Path target = new File(folder.getRoot(), "network.part").toPath();
+		final ResumableDownload first = newDownload(target, new FlakySource(data, 200000, 10));
+		first.setMaxRetries(0);
+		try {
+			first.run();
+			fail("Expected the download to give up");
+		} catch (IOException e) {
+			// expected
+		}
+
+		final FlakySource source = new FlakySource(data, 0, 0);
+		newDownload(target, source).run();
+
+		assertEquals(Arrays.asList(200000L), source.offsets);
+		assertArrayEquals(data, Files.readAllBytes(target));
+	}
+
+	@Test
+	public void server_error_on_range_request_is_retried() throws IOException {
+		final byte[] data = randomBytes(500000);
+		final Path target = new File(folder.getRoot(), "network.part").toPath();
+		final ResumableDownload first = newDownload(target, new FlakySource(data, 200000, 10));
+		first.setMaxRetries(0);
+		try {
+			first.run();
+			fail("Expected the download to give up");
+		} catch (IOException e) {
+			// expected
+		}
+
+		final CloseableHttpResponse failed = mockResponse(500, null);
+		final CloseableHttpResponse partial = mockResponse(206, Arrays.copyOfRange(data, 200000, data.length));
+		when(partial.getFirstHeader(HttpHeaders.CONTENT_RANGE))
+				.thenReturn(new BasicHeader(HttpHeaders.CONTENT_RANGE, "bytes 200000-499999/500000"));
+		when(partial.getFirstHeader(HttpHeaders.ETAG)).thenReturn(new BasicHeader(HttpHeaders.ETAG, "\"v1\""));
+		final CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+		when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(failed, partial);
+		final NdexClient client = new NdexClient(mock(ErrorBuilder.class), httpClient,
+				new PoolingHttpClientConnectionManager());
+
+		final ResumableDownload download = client.newDownload("http://example.org/v2", "abc", null, null, null,
+				target, data.length);
+		download.setRetryDelay(1);
+		download.run();
+
+		assertArrayEquals(data, Files.readAllBytes(target));
+		verify(httpClient, times(2)).execute(any(HttpUriRequest.class));
+	}
+
+	private static CloseableHttpResponse mockResponse(final int code, final byte[] body) throws IOException {
+		final CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+		final StatusLine statusLine = mock(StatusLine.class);
+		when(statusLine.getStatusCode()).thenReturn(code);
+		when(response.getStatusLine()).thenReturn(statusLine);
+		if (body != null) {
+			final HttpEntity entity = mock(HttpEntity.class);
+			when(entity.getContent()).thenReturn(new ByteArrayInputStream(body));
+			when(entity.getContentLength()).thenReturn((long) body.length);
+			when(response.getEntity()).thenReturn(entity);
+		}
+		return response;
+	}
+
+	@Test
+	public void full_response_to_range_request_starts_over() throws IOException {
+		final byte[] data = randomBytes(400000);
+		final FlakySource source = new FlakySource(data, 100000, 1);
+		source.honorRanges = false;
+		final Path target = new File(folder.getRoot(), "network.part").toPath();
+
+		newDownload(target, source).run();
+
+		assertArrayEquals(data, Files.readAllBytes(target));
+	}
+
+	@Test
+	public void wrong_length_is_rejected() throws IOException {
+		final byte[] data = randomBytes(1000);
+		final Path target = new File(folder.getRoot(), "network.part").toPath();
+		final ResumableDownload download = newDownload(target,
+				(offset, validator) -> new Range(new ByteArrayInputStream(data), 0, -1, null));
+		download.setExpectedLength(2000);
+
+		try {
+			download.run();
+			fail("Expected the length check to fail");
+		} catch (IOException e) {
+			// expected
+		}
+		assertFalse(Files.exists(target));
+	}
+
+	@Test
+	public void stale_parts_are_pruned() throws IOException {
+		final File directory = folder.newFolder();
+		final Path stale = new File(directory, "a-1.part").toPath();
+		final Path staleCheckpoint = new File(directory, "a-1.part.checkpoint").toPath();
+		final Path recent = new File(directory, "b-1.part").toPath();
+		final Path other = new File(directory, "c.cx").toPath();
+		for (Path file : new Path[] { stale, staleCheckpoint, recent, other }) {
+			Files.write(file, new byte[] { 1 });
+		}
+		final FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 10000);
+		Files.setLastModifiedTime(stale, old);
+		Files.setLastModifiedTime(staleCheckpoint, old);
+		Files.setLastModifiedTime(other, old);
+
+		assertEquals(2, ResumableDownload.pruneStale(directory.toPath(), 5000));
+		assertFalse(Files.exists(stale));
+		assertFalse(Files.exists(staleCheckpoint));
+		assertTrue(Files.exists(recent));
+		assertTrue(Files.exists(other));
+	}
+
+	@Test
+	public void digest_is_verified() throws Exception {
+		final byte[] data = randomBytes(1000);
+		final byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+		final Path target = new File(folder.getRoot(), "network.part").toPath();
+
+		newDownload(target, (offset, validator) -> new Range(new ByteArrayInputStream(data), 0, data.length, null)
+				.setDigest("SHA-256", digest)).run();
+		assertArrayEquals(data, Files.readAllBytes(target));
+
+		final byte[] corrupt = data.clone();
+		corrupt[500]++;
+		final Path other = new File(folder.getRoot(), "other.part").toPath();
+		try {
+			newDownload(other, (offset, validator) -> new Range(new ByteArrayInputStream(corrupt), 0, corrupt.length,
+					null).setDigest("SHA-256", digest)).run();
+			fail("Expected the digest check to fail");
+		} catch (IOException e) {
+			// expected
+		}
+		assertFalse(Files.exists(other));
+	}
+
+	@Test
+	public void cancelled_download_stops() throws IOException {
+		final byte[] data = randomBytes(100000);
+		final Path target = new File(folder.getRoot(), "network.part").toPath();
+		final ResumableDownload download = newDownload(target, new FlakySource(data, 0, 0));
+		download.cancel();
+		try {
+			download.run();
+			fail("Expected the download to be cancelled");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+}
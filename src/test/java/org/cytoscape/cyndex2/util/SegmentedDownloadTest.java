@@ -0,0 +1,154 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cytoscape.cyndex2.internal.util.ResumableDownload.Range;
+import org.cytoscape.cyndex2.internal.util.SegmentedDownload;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentedDownloadTest {
+
+	private static final int SIZE = (int) (SegmentedDownload.MIN_SEGMENT_SIZE * 3 + 12345);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static byte[] randomBytes(int size) {
+		byte[] data = new byte[size];
+		new Random(23).nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * Serves byte ranges of an array the way NDEx would with Range requests.
+	 */
+	private static class RangeServer implements SegmentedDownload.SegmentSource {
+		private final byte[] data;
+		private boolean honorRanges = true;
+		private final AtomicInteger failures = new AtomicInteger();
+		private final List<String> requests = new CopyOnWriteArrayList<>();
+
+		RangeServer(byte[] data) {
+			this.data = data;
+		}
+
+		@Override
+		public Range open(long start, long end, String validator) throws IOException {
+			requests.add(start + "-" + end);
+			if (!honorRanges) {
+				return new Range(new ByteArrayInputStream(data), 0, -1, data.length, "\"v1\"");
+			}
+			final int last = end < 0 ? data.length - 1 : (int) Math.min(end, data.length - 1);
+			final byte[] part = Arrays.copyOfRange(data, (int) start, last + 1);
+			if (start > 0 && failures.getAndDecrement() > 0) {
+				return new Range(new FailingStream(part, part.length / 2), start, last, data.length, "\"v1\"");
+			}
+			return new Range(new ByteArrayInputStream(part), start, last, data.length, "\"v1\"");
+		}
+	}
+
+	private static class FailingStream extends FilterInputStream {
+		private int remaining;
+
+		FailingStream(byte[] data, int remaining) {
+			super(new ByteArrayInputStream(data));
+			this.remaining = remaining;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (remaining <= 0) {
+				throw new IOException("Connection reset");
+			}
+			final int n = super.read(b, off, Math.min(len, remaining));
+			remaining -= n;
+			return n;
+		}
+	}
+
+	private SegmentedDownload newDownload(Path target, SegmentedDownload.SegmentSource source) {
+		final SegmentedDownload download = new SegmentedDownload(target, source, 4);
+		download.setRetryDelay(1);
+		download.setExpectedLength(SIZE);
+		return download;
+	}
+
+	@Test
+	public void segments_are_downloaded_into_one_file() throws IOException {
+		final byte[] data = randomBytes(SIZE);
+		final RangeServer server = new RangeServer(data);
+		final Path target = new File(folder.getRoot(), "network.part").toPath();
+
+		newDownload(target, server).run();
+
+		assertArrayEquals(data, Files.readAllBytes(target));
+		assertTrue(server.requests.size() > 1);
+	}
+
+	@Test
+	public void failed_segment_is_retried_from_where_it_stopped() throws IOException {
+		final byte[] data = randomBytes(SIZE);
+		final RangeServer server = new RangeServer(data);
+		server.failures.set(2);
+		final Path target = new File(folder.getRoot(), "network.part").toPath();
+
+		newDownload(target, server).run();
+
+		assertArrayEquals(data, Files.readAllBytes(target));
+	}
+
+	@Test
+	public void server_without_ranges_is_read_over_one_connection() throws IOException {
+		final byte[] data = randomBytes(SIZE);
+		final RangeServer server = new RangeServer(data);
+		server.honorRanges = false;
+		final Path target = new File(folder.getRoot(), "network.part").toPath();
+
+		newDownload(target, server).run();
+
+		assertArrayEquals(data, Files.readAllBytes(target));
+		assertEquals(1, server.requests.size());
+	}
+
+	@Test
+	public void changed_content_fails_the_download() throws IOException {
+		final byte[] data = randomBytes(SIZE);
+		final Path target = new File(folder.getRoot(), "network.part").toPath();
+		final RangeServer server = new RangeServer(data) {
+			@Override
+			public Range open(long start, long end, String validator) throws IOException {
+				if (start > 0) {
+					// If-Range did not match, so the server sends the new version in full
+					return new Range(new ByteArrayInputStream(data), 0, -1, data.length, "\"v2\"");
+				}
+				return super.open(start, end, validator);
+			}
+		};
+
+		try {
+			newDownload(target, server).run();
+			fail("Expected the download to fail");
+		} catch (IOException e) {
+			// expected
+		}
+		assertFalse(Files.exists(target));
+	}
+}
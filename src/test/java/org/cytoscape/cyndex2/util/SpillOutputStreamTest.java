@@ -0,0 +1,80 @@
+package org.cytoscape.cyndex2.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.cytoscape.cyndex2.internal.util.SpillOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SpillOutputStreamTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static byte[] randomBytes(int size) {
+		byte[] data = new byte[size];
+		new Random(7).nextBytes(data);
+		return data;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		try (InputStream stream = in) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = stream.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	@Test
+	public void small_content_stays_in_memory() throws IOException {
+		File dir = folder.newFolder();
+		byte[] data = randomBytes(100);
+		SpillOutputStream out = new SpillOutputStream(1024, dir);
+		out.write(data);
+		out.close();
+
+		assertFalse(out.isSpilled());
+		assertEquals(100, out.length());
+		assertArrayEquals(data, readAll(out.openInputStream()));
+		assertEquals(0, dir.list().length);
+	}
+
+	@Test
+	public void large_content_spills_and_can_be_reread() throws IOException {
+		File dir = folder.newFolder();
+		byte[] data = randomBytes(10_000);
+		SpillOutputStream out = new SpillOutputStream(1024, dir);
+		out.write(data, 0, 500);
+		out.write(data, 500, data.length - 500);
+		out.close();
+
+		assertTrue(out.isSpilled());
+		assertEquals(data.length, out.length());
+		assertArrayEquals(data, readAll(out.openInputStream()));
+		assertArrayEquals(data, readAll(out.openInputStream()));
+
+		out.delete();
+		assertEquals(0, dir.list().length);
+	}
+
+	@Test(expected = IOException.class)
+	public void open_before_close_fails() throws IOException {
+		SpillOutputStream out = new SpillOutputStream(1024, folder.newFolder());
+		out.write(1);
+		out.openInputStream();
+	}
+}